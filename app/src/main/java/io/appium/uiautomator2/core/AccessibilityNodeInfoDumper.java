@@ -18,219 +18,174 @@ package io.appium.uiautomator2.core;
 
 import android.graphics.Point;
 import android.os.SystemClock;
-import android.util.SparseArray;
-import android.util.Xml;
 import android.view.Display;
-import android.view.View;
 import android.view.accessibility.AccessibilityNodeInfo;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import org.apache.commons.io.IOUtils;
-import org.apache.xerces.jaxp.DocumentBuilderFactoryImpl;
 import org.eclipse.wst.xml.xpath2.api.Item;
 import org.eclipse.wst.xml.xpath2.api.ResultSequence;
-import org.eclipse.wst.xml.xpath2.api.XPath2Expression;
-import org.eclipse.wst.xml.xpath2.processor.Engine;
-import org.eclipse.wst.xml.xpath2.processor.XPathParserException;
-import org.eclipse.wst.xml.xpath2.processor.util.DynamicContextBuilder;
-import org.eclipse.wst.xml.xpath2.processor.util.StaticContextBuilder;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
-import org.xmlpull.v1.XmlSerializer;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.Semaphore;
 
-import io.appium.uiautomator2.common.exceptions.InvalidSelectorException;
 import io.appium.uiautomator2.common.exceptions.UiAutomator2Exception;
+import io.appium.uiautomator2.http.RawContent;
+import io.appium.uiautomator2.http.StreamableContent;
+import io.appium.uiautomator2.http.StreamableJsonContent;
 import io.appium.uiautomator2.model.NotificationListener;
+import io.appium.uiautomator2.model.SnapshotCache;
 import io.appium.uiautomator2.model.UiElement;
 import io.appium.uiautomator2.model.UiElementSnapshot;
-import io.appium.uiautomator2.model.settings.EnforceXpath1;
+import io.appium.uiautomator2.model.dom.SnapshotDocument;
+import io.appium.uiautomator2.model.dom.SnapshotElement;
 import io.appium.uiautomator2.model.settings.LimitXpathContextScope;
-import io.appium.uiautomator2.model.settings.NormalizeTagNames;
 import io.appium.uiautomator2.model.settings.Settings;
+import io.appium.uiautomator2.server.metrics.ServerMetrics;
+import io.appium.uiautomator2.server.metrics.Stage;
 import io.appium.uiautomator2.utils.Attribute;
 import io.appium.uiautomator2.utils.Logger;
 import io.appium.uiautomator2.utils.NodeInfoList;
-import io.appium.uiautomator2.utils.StringHelpers;
 
 import static io.appium.uiautomator2.utils.AXWindowHelpers.getCachedWindowRoots;
-import static io.appium.uiautomator2.utils.XMLHelpers.toNodeName;
-import static io.appium.uiautomator2.utils.XMLHelpers.toSafeString;
-import static net.gcardone.junidecode.Junidecode.unidecode;
-
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpression;
+
 import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 
 public class AccessibilityNodeInfoDumper {
-    private static final String UI_ELEMENT_INDEX = "uiElementIndex";
-    private static final String NON_XML_CHAR_REPLACEMENT = "?";
-    private static final String NAMESPACE = "";
-    private static final String DEFAULT_VIEW_CLASS_NAME = View.class.getName();
+    public static final String BINARY_CONTENT_TYPE = "application/vnd.appium.hierarchy";
+    private static final Set<Attribute> SOURCE_ATTRIBUTES = collectSourceAttributes();
     private static final String XML_ENCODING = "UTF-8";
     private final Semaphore RESOURCES_GUARD = new Semaphore(1);
-    private static final XPathFactory XPATH_FACTORY = XPathFactory.newInstance();
 
     @Nullable
     private final AccessibilityNodeInfo root;
-    private final SparseArray<UiElement<?, ?>> uiElementsMapping = new SparseArray<>();
     private final Set<Attribute> includedAttributes;
-    private boolean shouldAddDisplayInfo;
-    private XmlSerializer serializer;
+    private final int maxDepth;
 
     public AccessibilityNodeInfoDumper(@Nullable AccessibilityNodeInfo root,
                                        Set<Attribute> includedAttributes) {
+        this(root, includedAttributes, UiElementSnapshot.DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * @param root the element to start the hierarchy from or null to start from window roots
+     * @param includedAttributes attributes to include into the hierarchy snapshot
+     * @param maxDepth the maximum depth of elements relative to the root
+     */
+    public AccessibilityNodeInfoDumper(@Nullable AccessibilityNodeInfo root,
+                                       Set<Attribute> includedAttributes, int maxDepth) {
         this.root = root;
         this.includedAttributes = includedAttributes;
+        this.maxDepth = maxDepth;
     }
 
-    private int matchRootElementIndex() {
-        if (root == null) {
-            throw new RuntimeException(
-                    "Root node search query cannot be built if the root is unset"
-            );
-        }
-        for (int i = 0; i < uiElementsMapping.size(); ++i) {
-            if (Objects.equals(uiElementsMapping.valueAt(i).getNode(), root)) {
-                return uiElementsMapping.keyAt(i);
+    private static Set<Attribute> collectSourceAttributes() {
+        Set<Attribute> result = new HashSet<>();
+        for (Attribute attribute : Attribute.values()) {
+            if (attribute.isExposableToXml()) {
+                result.add(attribute);
             }
         }
-        throw new RuntimeException("Cannot match the index of the root node");
+        return Collections.unmodifiableSet(result);
     }
 
-    @Nullable
-    private static Node matchRootElement(Node root, final int elementIndex) {
-        if (root instanceof Element
-                && ((Element) root).hasAttribute(UI_ELEMENT_INDEX)
-                && Integer.parseInt(((Element) root).getAttribute(UI_ELEMENT_INDEX)) == elementIndex
-        ) {
-            return root;
-        }
-        if (!root.hasChildNodes()) {
-            return null;
-        }
-        NodeList childNodes = root.getChildNodes();
-        for (int i = 0; i < childNodes.getLength(); ++i) {
-            Node result = matchRootElement(childNodes.item(i), elementIndex);
-            if (result != null) {
-                return result;
-            }
-        }
-        return null;
+    /**
+     * @return all attributes the page source may have
+     */
+    public static Set<Attribute> getSourceAttributes() {
+        return SOURCE_ATTRIBUTES;
     }
 
     @NonNull
-    private Node fetchContext(InputStream xml) {
-        Document doc = loadDocument(xml);
+    private Node fetchContext(UiElement<?, ?> snapshot) {
+        // Cached snapshots have all attributes, but only the queried ones should be retrieved
+        SnapshotDocument document = new SnapshotDocument(snapshot, getRootAttributes(), includedAttributes);
         return root == null || Settings.get(LimitXpathContextScope.class).getValue()
-                ? doc
+                ? document
                 : Objects.requireNonNull(
-                    matchRootElement(doc.getDocumentElement(), matchRootElementIndex()),
+                    document.findElement(root),
                     "Cannot match the root element for the context-based XPath lookup"
                 );
     }
 
-    private void addDisplayInfo() throws IOException {
+    private static Map<String, String> getDisplayAttributes() {
         Display display = UiAutomatorBridge.getInstance().getDefaultDisplay();
         Point size = new Point();
         display.getSize(size);
-        serializer.attribute(NAMESPACE, "rotation", Integer.toString(display.getRotation()));
-        serializer.attribute(NAMESPACE, "width", Integer.toString(size.x));
-        serializer.attribute(NAMESPACE, "height", Integer.toString(size.y));
+        Map<String, String> result = new LinkedHashMap<>();
+        result.put("rotation", Integer.toString(display.getRotation()));
+        result.put("width", Integer.toString(size.x));
+        result.put("height", Integer.toString(size.y));
+        return result;
     }
 
-    private static String toXmlNodeName(@Nullable String className) {
-        if (StringHelpers.isBlank(className)) {
-            return DEFAULT_VIEW_CLASS_NAME;
-        }
-
-        String fixedName = className
-                .replaceAll("[$@#&]", ".")
-                .replaceAll("\\.+", ".")
-                .replaceAll("(^\\.|\\.$)", "");
-
-        if (Settings.get(NormalizeTagNames.class).getValue()) {
-            // A workaround for the Apache Harmony bug described in https://github.com/appium/appium/issues/11854
-            // The buggy implementation: https://android.googlesource.com/platform/dalvik/+/21d27c095fee51fd6eac6a68d50b79df4dc97d85/libcore/xml/src/main/java/org/apache/harmony/xml/dom/DocumentImpl.java#84
-            fixedName = unidecode(fixedName).replaceAll("[^A-Za-z0-9\\-._]", "_");
-        }
+    private static void recordStage(Stage stage, long startNs) {
+        ServerMetrics.getInstance().recordStage(stage, System.nanoTime() - startNs);
+    }
 
-        fixedName = toNodeName(fixedName);
-        if (StringHelpers.isBlank(fixedName)) {
-            fixedName = DEFAULT_VIEW_CLASS_NAME;
-        }
-        if (!fixedName.equals(className)) {
-            Logger.info(String.format("Rewrote class name '%s' to XML node name '%s'", className, fixedName));
+    private UiElement<?, ?> takeSnapshot() {
+        final long startNs = System.nanoTime();
+        try {
+            //noinspection ConstantConditions
+            return isContextScopeLimited()
+                    ? UiElementSnapshot.take(root, maxDepth, includedAttributes)
+                    : SnapshotCache.getInstance().take(includedAttributes);
+        } finally {
+            recordStage(Stage.SNAPSHOT, startNs);
         }
-        return fixedName;
     }
 
-    private void serializeUiElement(UiElement<?, ?> uiElement, boolean isIndexed) throws IOException {
-        final String className = uiElement.getClassName();
-        final String nodeName = toXmlNodeName(className);
-        serializer.startTag(NAMESPACE, nodeName);
-
-        for (Attribute attr : uiElement.attributeKeys()) {
-            if (!attr.isExposableToXml()) {
-                continue;
-            }
-            Object value = uiElement.get(attr);
-            if (value == null) {
-                continue;
-            }
-            serializer.attribute(NAMESPACE, attr.getName(), toSafeString(String.valueOf(value), NON_XML_CHAR_REPLACEMENT));
-        }
-        if (shouldAddDisplayInfo) {
-            addDisplayInfo();
-            // Display info is only added once to the root node
-            shouldAddDisplayInfo = false;
+    /**
+     * Page source is always started from the root element if there is one.
+     * The cached snapshot has all attributes of the whole hierarchy,
+     * so it is only used if the source is requested without any limitations.
+     */
+    private UiElement<?, ?> takeSourceSnapshot() {
+        if (root == null && maxDepth == UiElementSnapshot.DEFAULT_MAX_DEPTH
+                && includedAttributes.containsAll(SOURCE_ATTRIBUTES)) {
+            return takeSnapshot();
         }
 
-        final int uiElementIndex = uiElementsMapping.size();
-        uiElementsMapping.put(uiElementIndex, uiElement);
-        if (isIndexed) {
-            serializer.attribute(NAMESPACE, UI_ELEMENT_INDEX, Integer.toString(uiElementIndex));
+        final long startNs = System.nanoTime();
+        try {
+            return root == null
+                    ? UiElementSnapshot.take(getCachedWindowRoots(),
+                            NotificationListener.getInstance().getToastMessage(), maxDepth, includedAttributes)
+                    : UiElementSnapshot.take(root, maxDepth, includedAttributes);
+        } finally {
+            recordStage(Stage.SNAPSHOT, startNs);
         }
+    }
 
-        for (UiElement<?, ?> child : uiElement.getChildren()) {
-            serializeUiElement(child, isIndexed);
+    private void serialize(UiElement<?, ?> uiRootElement, OutputStream outputStream,
+                           boolean shouldIndent) throws IOException {
+        final long startNs = System.nanoTime();
+        try {
+            XmlHierarchyWriter.write(uiRootElement, getRootAttributes(), outputStream, shouldIndent);
+        } finally {
+            recordStage(Stage.SERIALIZATION, startNs);
         }
-        serializer.endTag(NAMESPACE, nodeName);
     }
 
-    private InputStream toStream(boolean isIndexed) throws IOException {
+    private InputStream toStream() throws IOException {
         final long startTime = SystemClock.uptimeMillis();
         try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            serializer = Xml.newSerializer();
-            shouldAddDisplayInfo = root == null;
-            serializer.setOutput(outputStream, XML_ENCODING);
-            serializer.startDocument(XML_ENCODING, true);
-            serializer.setFeature("http://xmlpull.org/v1/doc/features.html#indent-output", true);
-            UiElement<?, ?> uiRootElement = root != null && Settings.get(LimitXpathContextScope.class).getValue()
-                    ? UiElementSnapshot.take(root, includedAttributes)
-                    : UiElementSnapshot.take(
-                        getCachedWindowRoots(), NotificationListener.getInstance().getToastMessage(),
-                        includedAttributes
-                    );
-            serializeUiElement(uiRootElement, isIndexed);
-            serializer.endDocument();
+            serialize(takeSourceSnapshot(), outputStream, true);
             Logger.debug(String.format("The source XML tree (%s bytes) has been fetched in %sms",
                     outputStream.size(), SystemClock.uptimeMillis() - startTime));
             return new ByteArrayInputStream(outputStream.toByteArray());
@@ -243,68 +198,118 @@ public class AccessibilityNodeInfoDumper {
         } catch (InterruptedException e) {
             throw new UiAutomator2Exception(e);
         }
-        try (InputStream xmlStream = toStream(false)) {
+        try (InputStream xmlStream = toStream()) {
             return IOUtils.toString(xmlStream, XML_ENCODING);
         } catch (IOException e) {
             throw new UiAutomator2Exception(e);
         } finally {
-            uiElementsMapping.clear();
             RESOURCES_GUARD.release();
         }
     }
 
-    private static Document loadDocument(InputStream in) {
-        DocumentBuilderFactory factory = new DocumentBuilderFactoryImpl();
-        factory.setNamespaceAware(true);
-        factory.setValidating(false);
-        try {
-            return factory.newDocumentBuilder().parse(in);
-        } catch (SAXException | ParserConfigurationException | IOException e) {
-            throw new RuntimeException(e);
-        }
+    /**
+     * Takes the hierarchy snapshot immediately, but defers its serialization
+     * until the content is written to the response stream.
+     *
+     * @param shouldIndent whether to put each element on a separate indented line
+     * @return the page source XML content
+     */
+    public StreamableContent dumpToXmlContent(final boolean shouldIndent) {
+        final UiElement<?, ?> snapshot = takeSourceSnapshot();
+        return new StreamableContent() {
+            @Override
+            public void writeTo(OutputStream outputStream) throws IOException {
+                try {
+                    RESOURCES_GUARD.acquire();
+                } catch (InterruptedException e) {
+                    throw new UiAutomator2Exception(e);
+                }
+                try {
+                    serialize(snapshot, outputStream, shouldIndent);
+                } finally {
+                    RESOURCES_GUARD.release();
+                }
+            }
+        };
     }
 
-    private NodeInfoList findNodesUsingXpath1(String xpath1Selector, boolean multiple) {
-        final XPathExpression expression;
-        try {
-            expression = XPATH_FACTORY.newXPath().compile(xpath1Selector);
-        } catch (XPathExpressionException e) {
-            throw new InvalidSelectorException(e);
-        }
+    /**
+     * Takes the hierarchy snapshot immediately, but defers its serialization
+     * until the content is written to the response stream.
+     *
+     * @return the page source as a JSON tree of elements
+     */
+    public StreamableJsonContent dumpToJsonContent() {
+        final UiElement<?, ?> snapshot = takeSourceSnapshot();
+        final Map<String, String> rootAttributes = getRootAttributes();
+        return new StreamableJsonContent() {
+            @Override
+            public void writeTo(OutputStream outputStream) throws IOException {
+                final long startNs = System.nanoTime();
+                try {
+                    JsonHierarchyWriter.write(snapshot, rootAttributes, outputStream);
+                } finally {
+                    recordStage(Stage.SERIALIZATION, startNs);
+                }
+            }
+        };
+    }
+
+    /**
+     * Takes the hierarchy snapshot immediately, but defers its serialization
+     * until the content is written to the response stream.
+     *
+     * @return the page source encoded as described in {@link BinaryHierarchyWriter}
+     */
+    public RawContent dumpToBinaryContent() {
+        final UiElement<?, ?> snapshot = takeSourceSnapshot();
+        final Map<String, String> rootAttributes = getRootAttributes();
+        return new RawContent() {
+            @Override
+            public String getContentType() {
+                return BINARY_CONTENT_TYPE;
+            }
+
+            @Override
+            public void writeTo(OutputStream outputStream) throws IOException {
+                final long startNs = System.nanoTime();
+                try {
+                    BinaryHierarchyWriter.write(snapshot, rootAttributes, outputStream);
+                } finally {
+                    recordStage(Stage.SERIALIZATION, startNs);
+                }
+            }
+        };
+    }
+
+    @Nullable
+    private static AccessibilityNodeInfo toAccessibilityNode(@Nullable Object item) {
+        return item instanceof SnapshotElement
+                ? ((SnapshotElement) item).getUiElement().getNode()
+                : null;
+    }
 
+    private NodeInfoList findNodesUsingXpath1(CompiledXPath expression, boolean multiple) {
         try {
-            RESOURCES_GUARD.acquire();
-        } catch (InterruptedException e) {
-            throw new UiAutomator2Exception(e);
-        }
-        try (InputStream xmlStream = toStream(true)) {
-            NodeList elements = (NodeList) expression.evaluate(
-                    fetchContext(xmlStream), XPathConstants.NODESET
-            );
+            UiElement<?, ?> snapshot = takeSnapshot();
+            final long evaluationStartNs = System.nanoTime();
+            NodeList elements = expression.evaluateXpath1(fetchContext(snapshot));
+            recordStage(Stage.XPATH_EVALUATION, evaluationStartNs);
             final NodeInfoList matchedNodes = new NodeInfoList();
             final long timeStarted = SystemClock.uptimeMillis();
             for (int i = 0; i < elements.getLength(); ++i) {
-                if (!(elements.item(i) instanceof Element)) {
-                    continue;
-                }
-                Element item = (Element) elements.item(i);
-                if (!item.hasAttribute(UI_ELEMENT_INDEX)) {
-                    continue;
-                }
-                UiElement<?, ?> uiElement = uiElementsMapping.get(
-                        Integer.parseInt(item.getAttribute(UI_ELEMENT_INDEX))
-                );
-                if (uiElement == null || uiElement.getNode() == null) {
+                AccessibilityNodeInfo node = toAccessibilityNode(elements.item(i));
+                if (node == null) {
                     continue;
                 }
 
-                matchedNodes.add(uiElement.getNode());
+                matchedNodes.add(node);
                 if (!multiple) {
                     break;
                 }
             }
             Logger.info(String.format("Took %sms to retrieve %s matches for '%s' XPath1 query",
-                    SystemClock.uptimeMillis() - timeStarted, matchedNodes.size(), xpath1Selector));
+                    SystemClock.uptimeMillis() - timeStarted, matchedNodes.size(), expression.getExpression()));
             return matchedNodes;
         } catch (XPathExpressionException | IllegalArgumentException e) {
             throw new UiAutomator2Exception(
@@ -314,61 +319,30 @@ public class AccessibilityNodeInfoDumper {
         } catch (Exception e) {
             e.printStackTrace();
             throw new UiAutomator2Exception(e);
-        } finally {
-            uiElementsMapping.clear();
-            RESOURCES_GUARD.release();
         }
     }
 
-    private NodeInfoList findNodesUsingXpath2(String xpath2Selector, boolean multiple) {
-        StaticContextBuilder scb = new StaticContextBuilder();
-        final XPath2Expression expr;
-        try {
-            expr = new Engine().parseExpression(xpath2Selector, scb);
-        } catch (XPathParserException e) {
-            throw new InvalidSelectorException(e);
-        }
-
+    private NodeInfoList findNodesUsingXpath2(CompiledXPath expression, boolean multiple) {
         try {
-            RESOURCES_GUARD.acquire();
-        } catch (InterruptedException e) {
-            throw new UiAutomator2Exception(e);
-        }
-        try (InputStream xmlStream = toStream(true)) {
-            ResultSequence rs = expr.evaluate(
-                    new DynamicContextBuilder(scb), new Object[]{fetchContext(xmlStream)}
-            );
+            UiElement<?, ?> snapshot = takeSnapshot();
+            final long evaluationStartNs = System.nanoTime();
+            ResultSequence rs = expression.evaluateXpath2(fetchContext(snapshot));
+            recordStage(Stage.XPATH_EVALUATION, evaluationStartNs);
             NodeInfoList matchedNodes = new NodeInfoList();
             Iterator<Item> iterator = rs.iterator();
             final long timeStarted = SystemClock.uptimeMillis();
             while (iterator.hasNext()) {
-                Item item = iterator.next();
-                if (!(item.getNativeValue() instanceof Node)) {
-                    continue;
-                }
-                Node node = (Node) item.getNativeValue();
-                if (node.getNodeType() != Node.ELEMENT_NODE) {
+                AccessibilityNodeInfo node = toAccessibilityNode(iterator.next().getNativeValue());
+                if (node == null) {
                     continue;
                 }
-
-                NamedNodeMap attributes = node.getAttributes();
-                Node uiElementIndexAttr = attributes.getNamedItem(UI_ELEMENT_INDEX);
-                if (uiElementIndexAttr == null) {
-                    continue;
-                }
-                UiElement<?, ?> uiElement = uiElementsMapping.get(
-                        Integer.parseInt(uiElementIndexAttr.getNodeValue())
-                );
-                if (uiElement == null || uiElement.getNode() == null) {
-                    continue;
-                }
-                matchedNodes.add(uiElement.getNode());
+                matchedNodes.add(node);
                 if (!multiple) {
                     break;
                 }
             }
             Logger.info(String.format("Took %sms to retrieve %s matches for '%s' XPath2 query",
-                    SystemClock.uptimeMillis() - timeStarted, matchedNodes.size(), xpath2Selector));
+                    SystemClock.uptimeMillis() - timeStarted, matchedNodes.size(), expression.getExpression()));
             return matchedNodes;
         } catch (Exception e) {
             e.printStackTrace();
@@ -376,15 +350,67 @@ public class AccessibilityNodeInfoDumper {
                     String.format("%s. Try changing the '%s' driver setting to 'true' in order " +
                                     "to workaround the problem.", e.getMessage(),
                             Settings.ENFORCE_XPATH1.getSetting().getName()), e);
-        } finally {
-            uiElementsMapping.clear();
-            RESOURCES_GUARD.release();
         }
     }
 
-    public NodeInfoList findNodes(String xpathSelector, boolean multiple) {
-        return Settings.get(EnforceXpath1.class).getValue()
-                ? findNodesUsingXpath1(xpathSelector, multiple)
-                : findNodesUsingXpath2(xpathSelector, multiple);
+    private boolean isContextScopeLimited() {
+        return root != null && Settings.get(LimitXpathContextScope.class).getValue();
+    }
+
+    private Map<String, String> getRootAttributes() {
+        return root == null ? getDisplayAttributes() : Collections.<String, String>emptyMap();
+    }
+
+    /**
+     * @return the cached snapshot if it is still up to date, otherwise the live hierarchy.
+     * null is returned if the hierarchy contains toast elements, which only exist in snapshots.
+     */
+    @Nullable
+    private HierarchyTree<?> createTree() {
+        if (isContextScopeLimited()) {
+            //noinspection ConstantConditions
+            return AccessibilityNodeTree.fromNode(root);
+        }
+        UiElementSnapshot snapshot = SnapshotCache.getInstance().peek();
+        if (snapshot != null) {
+            return new UiElementTree(snapshot, getRootAttributes());
+        }
+        return NotificationListener.getInstance().getToastMessage().isEmpty()
+                ? AccessibilityNodeTree.fromWindows(getCachedWindowRoots(), getRootAttributes())
+                : null;
+    }
+
+    private static <N> NodeInfoList findNodesUsingFastXPath(FastXPath fastXPath, HierarchyTree<N> tree,
+                                                            String expression, boolean multiple) {
+        final long startNs = System.nanoTime();
+        final long timeStarted = SystemClock.uptimeMillis();
+        NodeInfoList matchedNodes = new NodeInfoList();
+        for (N element : fastXPath.evaluate(tree, tree.getDocumentElement(), multiple)) {
+            AccessibilityNodeInfo node = tree.toAccessibilityNode(element);
+            if (node != null) {
+                matchedNodes.add(node);
+            }
+        }
+        recordStage(Stage.XPATH_EVALUATION, startNs);
+        Logger.info(String.format("Took %sms to retrieve %s matches for '%s' XPath query " +
+                        "by walking the hierarchy directly",
+                SystemClock.uptimeMillis() - timeStarted, matchedNodes.size(), expression));
+        return matchedNodes;
+    }
+
+    /**
+     * Simple absolute expressions are evaluated while walking the hierarchy and the walk
+     * stops at the first match if only one is needed. Other expressions are evaluated
+     * by the full XPath engines against the hierarchy snapshot.
+     */
+    public NodeInfoList findNodes(CompiledXPath expression, boolean multiple) {
+        FastXPath fastXPath = expression.getFastXPath();
+        HierarchyTree<?> tree = fastXPath == null ? null : createTree();
+        if (tree != null) {
+            return findNodesUsingFastXPath(fastXPath, tree, expression.getExpression(), multiple);
+        }
+        return expression.isXpath1()
+                ? findNodesUsingXpath1(expression, multiple)
+                : findNodesUsingXpath2(expression, multiple);
     }
 }
@@ -0,0 +1,171 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.core;
+
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.appium.uiautomator2.model.UiElementSnapshot;
+import io.appium.uiautomator2.model.settings.AllowInvisibleElements;
+import io.appium.uiautomator2.model.settings.NormalizeTagNames;
+import io.appium.uiautomator2.model.settings.Settings;
+import io.appium.uiautomator2.utils.Attribute;
+import io.appium.uiautomator2.utils.Logger;
+
+import static io.appium.uiautomator2.utils.StringHelpers.charSequenceToNullableString;
+import static io.appium.uiautomator2.utils.XMLHelpers.NON_XML_CHAR_REPLACEMENT;
+import static io.appium.uiautomator2.utils.XMLHelpers.toSafeString;
+import static io.appium.uiautomator2.utils.XMLHelpers.toXmlNodeName;
+
+/**
+ * Exposes the live accessibility hierarchy to {@link FastXPath}. Nodes are only fetched
+ * when the walk reaches them, but the visibility and depth rules, element names and
+ * attribute values are the same as in {@link UiElementSnapshot}.
+ */
+class AccessibilityNodeTree implements HierarchyTree<AccessibilityNodeTree.Element> {
+    private static final Map<String, Attribute> XML_ATTRIBUTES = new HashMap<>();
+
+    static {
+        for (Attribute attribute : UiElementSnapshot.SUPPORTED_ATTRIBUTES) {
+            if (attribute.isExposableToXml()) {
+                XML_ATTRIBUTES.put(attribute.getName(), attribute);
+            }
+        }
+    }
+
+    private final boolean areInvisibleElementsAllowed =
+            Settings.get(AllowInvisibleElements.class).getValue();
+    private final boolean shouldNormalizeTagNames = Settings.get(NormalizeTagNames.class).getValue();
+    private final Element documentElement;
+
+    private AccessibilityNodeTree(Element documentElement) {
+        this.documentElement = documentElement;
+    }
+
+    /**
+     * @param windowRoots root nodes of all windows
+     * @param rootAttributes additional attributes of the root hierarchy element
+     */
+    static AccessibilityNodeTree fromWindows(AccessibilityNodeInfo[] windowRoots,
+                                             Map<String, String> rootAttributes) {
+        return new AccessibilityNodeTree(new Element(windowRoots, rootAttributes));
+    }
+
+    static AccessibilityNodeTree fromNode(AccessibilityNodeInfo root) {
+        return new AccessibilityNodeTree(new Element(root, AxNodeInfoHelper.calculateIndex(root), 0));
+    }
+
+    @Override
+    public Element getDocumentElement() {
+        return documentElement;
+    }
+
+    @Nullable
+    @Override
+    public AccessibilityNodeInfo toAccessibilityNode(Element element) {
+        return element.node;
+    }
+
+    @Override
+    public String getTagName(Element element) {
+        String className = element.node == null
+                ? UiElementSnapshot.ROOT_NODE_NAME
+                : charSequenceToNullableString(element.node.getClassName());
+        return toXmlNodeName(className, shouldNormalizeTagNames);
+    }
+
+    @Nullable
+    @Override
+    public String getAttribute(Element element, String name) {
+        if (element.node == null) {
+            if (Attribute.CLASS.getName().equals(name)) {
+                return UiElementSnapshot.ROOT_NODE_NAME;
+            }
+            if (Attribute.INDEX.getName().equals(name)) {
+                return String.valueOf(element.index);
+            }
+            return element.rootAttributes.get(name);
+        }
+        Attribute attribute = XML_ATTRIBUTES.get(name);
+        if (attribute == null) {
+            return null;
+        }
+        Object value = UiElementSnapshot.getNodeAttributeValue(element.node, attribute, element.index);
+        return value == null ? null : toSafeString(value, NON_XML_CHAR_REPLACEMENT);
+    }
+
+    @Override
+    public List<Element> getChildren(Element element) {
+        if (element.node == null) {
+            List<Element> result = new ArrayList<>(element.windowRoots.length);
+            for (int i = 0; i < element.windowRoots.length; i++) {
+                result.add(new Element(element.windowRoots[i], i, element.depth + 1));
+            }
+            return result;
+        }
+
+        final int childCount = element.node.getChildCount();
+        if (childCount == 0 || element.depth >= UiElementSnapshot.DEFAULT_MAX_DEPTH) {
+            return Collections.emptyList();
+        }
+        List<Element> result = new ArrayList<>(childCount);
+        for (int index = 0; index < childCount; ++index) {
+            AccessibilityNodeInfo child = AxNodeFetcher.getChild(element.node, index);
+            if (child == null) {
+                Logger.info(String.format("The child node #%s of %s is null", index, element.node));
+                continue;
+            }
+            if (areInvisibleElementsAllowed || child.isVisibleToUser()) {
+                result.add(new Element(child, index, element.depth + 1));
+            }
+        }
+        return result;
+    }
+
+    static class Element {
+        // null for the root hierarchy element
+        @Nullable
+        private final AccessibilityNodeInfo node;
+        private final int index;
+        private final int depth;
+        private final AccessibilityNodeInfo[] windowRoots;
+        private final Map<String, String> rootAttributes;
+
+        Element(AccessibilityNodeInfo node, int index, int depth) {
+            this.node = node;
+            this.index = index;
+            this.depth = depth;
+            this.windowRoots = new AccessibilityNodeInfo[0];
+            this.rootAttributes = Collections.emptyMap();
+        }
+
+        Element(AccessibilityNodeInfo[] windowRoots, Map<String, String> rootAttributes) {
+            this.node = null;
+            this.index = 0;
+            this.depth = 0;
+            this.windowRoots = windowRoots;
+            this.rootAttributes = rootAttributes;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.core;
+
+import android.os.Build;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import androidx.annotation.Nullable;
+
+import java.lang.reflect.Method;
+
+import io.appium.uiautomator2.common.exceptions.UiAutomator2Exception;
+import io.appium.uiautomator2.server.metrics.ServerMetrics;
+import io.appium.uiautomator2.server.metrics.TraversalMetrics;
+import io.appium.uiautomator2.utils.Logger;
+
+import static io.appium.uiautomator2.utils.ReflectionUtils.getMethod;
+import static io.appium.uiautomator2.utils.ReflectionUtils.invoke;
+
+/**
+ * Fetches child accessibility nodes while traversing the hierarchy.
+ *
+ * Each node lookup which cannot be served from the accessibility cache of the instrumentation
+ * process is a binder transaction to the target app. Lookups may request the target to
+ * prefetch related nodes into that cache, so following lookups are served locally.
+ * On API 33+ the traversal asks for uninterruptible depth-first prefetching of descendants,
+ * which matches the order the hierarchy is walked in. Older platforms always prefetch
+ * descendants of the requested node (and of window roots), so the default lookup is used there.
+ */
+public class AxNodeFetcher {
+    // These are AccessibilityNodeInfo.FLAG_PREFETCH_* values available since API 33
+    private static final int FLAG_PREFETCH_DESCENDANTS_DEPTH_FIRST = 0x00000008;
+    private static final int FLAG_PREFETCH_UNINTERRUPTIBLE = 0x00000020;
+    private static final int API_LEVEL_PREFETCH_STRATEGIES = 33;
+    private static final int PREFETCH_STRATEGY =
+            FLAG_PREFETCH_DESCENDANTS_DEPTH_FIRST | FLAG_PREFETCH_UNINTERRUPTIBLE;
+
+    private static final TraversalMetrics metrics = ServerMetrics.getInstance().getTraversalMetrics();
+    @Nullable
+    private static final Method getChildWithPrefetchMethod = findGetChildWithPrefetchMethod();
+
+    @Nullable
+    private static Method findGetChildWithPrefetchMethod() {
+        if (Build.VERSION.SDK_INT < API_LEVEL_PREFETCH_STRATEGIES) {
+            return null;
+        }
+        try {
+            Method result = getMethod(AccessibilityNodeInfo.class, "getChild", int.class, int.class);
+            Logger.info("Accessibility nodes are going to be prefetched depth-first");
+            return result;
+        } catch (UiAutomator2Exception e) {
+            Logger.warn("Cannot use the prefetching strategy for accessibility nodes. " +
+                    "Falling back to the default one", e);
+            return null;
+        }
+    }
+
+    /**
+     * @param parent the node whose child to fetch
+     * @param index the index of the child
+     * @return the child node or null if it is not available anymore
+     */
+    @Nullable
+    public static AccessibilityNodeInfo getChild(AccessibilityNodeInfo parent, int index) {
+        long startNs = System.nanoTime();
+        AccessibilityNodeInfo child = getChildWithPrefetchMethod == null
+                ? parent.getChild(index)
+                : (AccessibilityNodeInfo) invoke(getChildWithPrefetchMethod, parent, index, PREFETCH_STRATEGY);
+        metrics.recordChildFetch(System.nanoTime() - startNs);
+        return child;
+    }
+}
@@ -23,8 +23,11 @@ import android.graphics.Rect;
 import android.os.Build;
 import android.os.Bundle;
 import android.util.Pair;
+import android.view.accessibility.AccessibilityEvent;
 import android.view.accessibility.AccessibilityNodeInfo;
 import android.view.accessibility.AccessibilityNodeInfo.AccessibilityAction;
+import android.view.accessibility.AccessibilityRecord;
+import android.view.accessibility.AccessibilityWindowInfo;
 
 import androidx.annotation.Nullable;
 import androidx.test.uiautomator.Direction;
@@ -49,7 +52,8 @@ import static io.appium.uiautomator2.utils.StringHelpers.charSequenceToString;
  */
 public class AxNodeInfoHelper {
     // https://github.com/appium/appium/issues/12892
-    private static final int MAX_DEPTH = 70;
+    // Ancestors farther than this are not considered while calculating visible bounds
+    public static final int MAX_DEPTH = 70;
     private static final long UNDEFINED_NODE_ID =
             (((long) Integer.MAX_VALUE) << 32) | Integer.MAX_VALUE;
     private static final int UNDEFINED_WINDOW_ID = -1;
@@ -58,8 +62,20 @@ public class AxNodeInfoHelper {
     public static String toUuid(AccessibilityNodeInfo info) {
         // mSourceNodeId and windowId properties define
         // the uniqueness of the particular AccessibilityNodeInfo instance
-        long sourceNodeId = (Long) getField("mSourceNodeId", info);
-        int windowId = info.getWindowId();
+        return toUuid((Long) getField("mSourceNodeId", info), info.getWindowId());
+    }
+
+    /**
+     * Builds the same identifier as {@link #toUuid(AccessibilityNodeInfo)} for the source
+     * node of the given event without fetching the node itself.
+     */
+    @Nullable
+    public static String toUuid(AccessibilityEvent event) {
+        return toUuid((Long) getField(AccessibilityRecord.class, "mSourceNodeId", event), event.getWindowId());
+    }
+
+    @Nullable
+    private static String toUuid(long sourceNodeId, int windowId) {
         if (sourceNodeId == UNDEFINED_NODE_ID || windowId == UNDEFINED_WINDOW_ID) {
             return null;
         }
@@ -214,9 +230,91 @@ public class AxNodeInfoHelper {
             return rect;
         }
 
+        return getBounds(node, getDisplayRect(), 0);
+    }
+
+    /**
+     * @return the rect of the whole display
+     */
+    public static Rect getDisplayRect() {
         UiDevice uiDevice = getUiDevice();
-        Rect screenRect = new Rect(0, 0, uiDevice.getDisplayWidth(), uiDevice.getDisplayHeight());
-        return getBounds(node, screenRect, 0);
+        return new Rect(0, 0, uiDevice.getDisplayWidth(), uiDevice.getDisplayHeight());
+    }
+
+    /**
+     * @return bounds of the window the node belongs to or null if the window is unknown
+     */
+    @Nullable
+    public static Rect getWindowBounds(AccessibilityNodeInfo node) {
+        AccessibilityWindowInfo window = node.getWindow();
+        if (window == null) {
+            return null;
+        }
+        Rect result = new Rect();
+        window.getBoundsInScreen(result);
+        return result;
+    }
+
+    /**
+     * Calculates the same visible bounds as {@link #getBounds(AccessibilityNodeInfo)} does,
+     * but takes the bounds of the node surroundings from the caller. This allows to
+     * calculate them for the whole hierarchy top-down without walking up through
+     * ancestors of each node.
+     *
+     * @param node the node to calculate the visible bounds for
+     * @param displayRect the rect of the whole display
+     * @param windowBounds bounds of the node window or null if the window is unknown
+     * @param scrollableAncestorBounds visible bounds of the nearest scrollable ancestor
+     *                                 or null if the node does not have such ancestor
+     * @return visible bounds of the node
+     */
+    @SuppressLint("CheckResult")
+    public static Rect getVisibleBounds(AccessibilityNodeInfo node, Rect displayRect,
+                                        @Nullable Rect windowBounds,
+                                        @Nullable Rect scrollableAncestorBounds) {
+        Rect ret = new Rect();
+        // Get the object bounds in screen coordinates
+        node.getBoundsInScreen(ret);
+
+        // Trim any portion of the bounds that are not on the screen
+        ret.intersect(displayRect);
+
+        // Trim any portion of the bounds that are outside the window
+        if (windowBounds != null) {
+            ret.intersect(windowBounds);
+        }
+
+        // Trim any portion of the bounds that are hidden by the non-visible portion of our
+        // scrollable ancestor
+        if (scrollableAncestorBounds != null) {
+            ret.intersect(scrollableAncestorBounds);
+        }
+        return ret;
+    }
+
+    /**
+     * @return visible bounds of the nearest scrollable ancestor of the node or null
+     * if the node does not have such ancestor
+     */
+    @Nullable
+    public static Rect getScrollableAncestorBounds(AccessibilityNodeInfo node) {
+        return getScrollableAncestorBounds(node, getDisplayRect(), 0);
+    }
+
+    /**
+     * @return the count of the node ancestors, but not more than {@link #MAX_DEPTH}
+     */
+    public static int countAncestors(AccessibilityNodeInfo node) {
+        int result = 0;
+        Set<AccessibilityNodeInfo> ancestors = new HashSet<>();
+        AccessibilityNodeInfo ancestor = node.getParent();
+        // An erroneous situation is possible where node parent equals to the node itself
+        while (result < MAX_DEPTH && ancestor != null && !ancestors.contains(ancestor)) {
+            ++result;
+            ancestors.add(ancestor);
+            ancestor = ancestor.getParent();
+        }
+        return result;
     }
 
     public static int calculateIndex(AccessibilityNodeInfo node) {
@@ -238,26 +336,17 @@ public class AxNodeInfoHelper {
      *
      * @return Empty rect if node is null, else a Rect containing visible bounds
      */
-    @SuppressLint("CheckResult")
     private static Rect getBounds(@Nullable AccessibilityNodeInfo node, Rect displayRect, int depth) {
-        Rect ret = new Rect();
         if (node == null) {
-            return ret;
-        }
-
-        // Get the object bounds in screen coordinates
-        node.getBoundsInScreen(ret);
-
-        // Trim any portion of the bounds that are not on the screen
-        ret.intersect(displayRect);
-
-        // Trim any portion of the bounds that are outside the window
-        Rect window = new Rect();
-        if (node.getWindow() != null) {
-            node.getWindow().getBoundsInScreen(window);
-            ret.intersect(window);
+            return new Rect();
         }
+        return getVisibleBounds(node, displayRect, getWindowBounds(node),
+                getScrollableAncestorBounds(node, displayRect, depth));
+    }
 
+    @Nullable
+    private static Rect getScrollableAncestorBounds(AccessibilityNodeInfo node, Rect displayRect,
+                                                    int depth) {
         // Find the visible bounds of our first scrollable ancestor
         int currentDepth = depth;
         Set<AccessibilityNodeInfo> ancestors = new HashSet<>();
@@ -266,17 +355,12 @@ public class AxNodeInfoHelper {
         while (++currentDepth < MAX_DEPTH && ancestor != null && !ancestors.contains(ancestor)) {
             // If this ancestor is scrollable
             if (ancestor.isScrollable()) {
-                // Trim any portion of the bounds that are hidden by the non-visible portion of our
-                // ancestor
-                Rect ancestorRect = getBounds(ancestor, displayRect, currentDepth);
-                ret.intersect(ancestorRect);
-                return ret;
+                return getBounds(ancestor, displayRect, currentDepth);
             }
             ancestors.add(ancestor);
             ancestor = ancestor.getParent();
         }
-
-        return ret;
+        return null;
     }
 
     /**
@@ -0,0 +1,247 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.core;
+
+import android.graphics.Rect;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.appium.uiautomator2.model.UiElement;
+import io.appium.uiautomator2.model.UiElementSnapshot;
+import io.appium.uiautomator2.utils.Attribute;
+
+/**
+ * Encodes a hierarchy snapshot into a compact binary form. All numbers are unsigned LEB128
+ * varints, signed ones are zigzag-encoded first. Strings are stored once in the string table
+ * and referenced by their table index everywhere else. The layout is:
+ * <pre>
+ * magic       "U2H" followed by the format version byte
+ * strings     count, then the UTF-8 byte length and bytes of each string
+ * attributes  count, then the name index and the type byte of each attribute
+ * root        count of additional root element attributes, then name and value indexes
+ * tree        the root element
+ * </pre>
+ * Each element is encoded as:
+ * <pre>
+ * presence    bit N is set if the element has the Nth attribute from the attributes section
+ * booleans    bit N holds the value of the Nth attribute if it is a boolean one
+ * values      values of other present attributes in the attributes section order:
+ *             integers are signed varints, strings are indexes, bounds are four signed
+ *             varints (left, top, right, bottom)
+ * children    count, then each child element
+ * </pre>
+ */
+class BinaryHierarchyWriter {
+    static final byte[] MAGIC = new byte[]{'U', '2', 'H'};
+    static final byte VERSION = 1;
+    static final byte TYPE_BOOLEAN = 0;
+    static final byte TYPE_INTEGER = 1;
+    static final byte TYPE_STRING = 2;
+    static final byte TYPE_BOUNDS = 3;
+
+    private static final Attribute[] ATTRIBUTES;
+    private static final byte[] TYPES;
+
+    static {
+        List<Attribute> attributes = new ArrayList<>();
+        for (Attribute attribute : UiElementSnapshot.SUPPORTED_ATTRIBUTES) {
+            if (attribute.isExposableToXml()) {
+                attributes.add(attribute);
+            }
+        }
+        ATTRIBUTES = attributes.toArray(new Attribute[0]);
+        TYPES = new byte[ATTRIBUTES.length];
+        for (int i = 0; i < ATTRIBUTES.length; i++) {
+            TYPES[i] = getType(ATTRIBUTES[i]);
+        }
+    }
+
+    private final Map<String, Integer> stringIndexes = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    private BinaryHierarchyWriter() {
+    }
+
+    private static byte getType(Attribute attribute) {
+        switch (attribute) {
+            case CHECKABLE:
+            case CHECKED:
+            case CLICKABLE:
+            case ENABLED:
+            case FOCUSABLE:
+            case FOCUSED:
+            case LONG_CLICKABLE:
+            case PASSWORD:
+            case SCROLLABLE:
+            case SELECTED:
+            case DISPLAYED:
+                return TYPE_BOOLEAN;
+            case INDEX:
+            case SELECTION_START:
+            case SELECTION_END:
+                return TYPE_INTEGER;
+            case BOUNDS:
+                return TYPE_BOUNDS;
+            default:
+                return TYPE_STRING;
+        }
+    }
+
+    /**
+     * @param root the root of the hierarchy snapshot
+     * @param rootAttributes additional attributes of the root element,
+     *                       which are not part of the snapshot
+     * @param outputStream the stream to write to. It is not closed.
+     */
+    static void write(UiElement<?, ?> root, Map<String, String> rootAttributes,
+                      OutputStream outputStream) throws IOException {
+        new BinaryHierarchyWriter().writeDocument(root, rootAttributes, outputStream);
+    }
+
+    private void writeDocument(UiElement<?, ?> root, Map<String, String> rootAttributes,
+                               OutputStream outputStream) throws IOException {
+        writeVarint(body, ATTRIBUTES.length);
+        for (int i = 0; i < ATTRIBUTES.length; i++) {
+            writeVarint(body, intern(ATTRIBUTES[i].getName()));
+            body.write(TYPES[i]);
+        }
+        writeVarint(body, rootAttributes.size());
+        for (Map.Entry<String, String> entry : rootAttributes.entrySet()) {
+            writeVarint(body, intern(entry.getKey()));
+            writeVarint(body, intern(entry.getValue()));
+        }
+        writeElement(root);
+
+        // The string table must precede everything else, but it is only complete now
+        outputStream.write(MAGIC);
+        outputStream.write(VERSION);
+        writeVarint(outputStream, strings.size());
+        for (String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            writeVarint(outputStream, bytes.length);
+            outputStream.write(bytes);
+        }
+        body.writeTo(outputStream);
+        outputStream.flush();
+    }
+
+    private int intern(String value) {
+        Integer index = stringIndexes.get(value);
+        if (index == null) {
+            index = strings.size();
+            strings.add(value);
+            stringIndexes.put(value, index);
+        }
+        return index;
+    }
+
+    private void writeElement(UiElement<?, ?> element) throws IOException {
+        Object[] values = new Object[ATTRIBUTES.length];
+        int presence = 0;
+        int booleans = 0;
+        for (int i = 0; i < ATTRIBUTES.length; i++) {
+            // Snapshots provide numeric bounds, so they do not need to be parsed from strings
+            Object value = TYPES[i] == TYPE_BOUNDS && element instanceof UiElementSnapshot
+                    ? ((UiElementSnapshot) element).getBoundsRect()
+                    : element.get(ATTRIBUTES[i]);
+            if (value == null) {
+                continue;
+            }
+            switch (TYPES[i]) {
+                case TYPE_BOOLEAN:
+                    if (Boolean.parseBoolean(String.valueOf(value))) {
+                        booleans |= 1 << i;
+                    }
+                    break;
+                case TYPE_INTEGER:
+                    if (!(value instanceof Number)) {
+                        continue;
+                    }
+                    break;
+                case TYPE_BOUNDS:
+                    if (!(value instanceof Rect)) {
+                        value = element.getBoundsCoordinates();
+                        if (value == null) {
+                            continue;
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+            values[i] = value;
+            presence |= 1 << i;
+        }
+
+        writeVarint(body, presence);
+        writeVarint(body, booleans);
+        for (int i = 0; i < ATTRIBUTES.length; i++) {
+            if (values[i] == null) {
+                continue;
+            }
+            switch (TYPES[i]) {
+                case TYPE_INTEGER:
+                    writeSignedVarint(body, ((Number) values[i]).intValue());
+                    break;
+                case TYPE_BOUNDS:
+                    if (values[i] instanceof Rect) {
+                        Rect bounds = (Rect) values[i];
+                        writeSignedVarint(body, bounds.left);
+                        writeSignedVarint(body, bounds.top);
+                        writeSignedVarint(body, bounds.right);
+                        writeSignedVarint(body, bounds.bottom);
+                    } else {
+                        for (int coordinate : (int[]) values[i]) {
+                            writeSignedVarint(body, coordinate);
+                        }
+                    }
+                    break;
+                case TYPE_STRING:
+                    writeVarint(body, intern(String.valueOf(values[i])));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        List<? extends UiElement<?, ?>> children = element.getChildren();
+        writeVarint(body, children.size());
+        for (UiElement<?, ?> child : children) {
+            writeElement(child);
+        }
+    }
+
+    private static void writeSignedVarint(OutputStream stream, int value) throws IOException {
+        writeVarint(stream, (value << 1) ^ (value >> 31));
+    }
+
+    private static void writeVarint(OutputStream stream, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            stream.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        stream.write(value);
+    }
+}
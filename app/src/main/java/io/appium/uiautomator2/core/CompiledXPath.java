@@ -0,0 +1,154 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.core;
+
+import androidx.annotation.Nullable;
+
+import org.eclipse.wst.xml.xpath2.api.ResultSequence;
+import org.eclipse.wst.xml.xpath2.api.XPath2Expression;
+import org.eclipse.wst.xml.xpath2.processor.Engine;
+import org.eclipse.wst.xml.xpath2.processor.XPathParserException;
+import org.eclipse.wst.xml.xpath2.processor.util.DynamicContextBuilder;
+import org.eclipse.wst.xml.xpath2.processor.util.StaticContextBuilder;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+import io.appium.uiautomator2.common.exceptions.InvalidSelectorException;
+import io.appium.uiautomator2.model.UiElementSnapshot;
+import io.appium.uiautomator2.utils.Attribute;
+
+/**
+ * An XPath expression compiled by one of the supported engines together with
+ * the set of element attributes it queries. Compiled expressions are not thread-safe,
+ * so their evaluation is serialized.
+ */
+public class CompiledXPath {
+    private static final XPathFactory XPATH_FACTORY = XPathFactory.newInstance();
+
+    private final String expression;
+    private final Set<Attribute> queriedAttributes;
+    @Nullable
+    private final XPathExpression xpath1Expression;
+    @Nullable
+    private final XPath2Expression xpath2Expression;
+    @Nullable
+    private final StaticContextBuilder staticContext;
+    @Nullable
+    private final FastXPath fastXPath;
+
+    private CompiledXPath(String expression, @Nullable XPathExpression xpath1Expression,
+                          @Nullable XPath2Expression xpath2Expression,
+                          @Nullable StaticContextBuilder staticContext) {
+        this.expression = expression;
+        this.queriedAttributes = Collections.unmodifiableSet(extractQueriedAttributes(expression));
+        this.xpath1Expression = xpath1Expression;
+        this.xpath2Expression = xpath2Expression;
+        this.staticContext = staticContext;
+        this.fastXPath = FastXPath.compile(expression);
+    }
+
+    /**
+     * @param expression the XPath expression to compile
+     * @param isXpath1 whether to use the XPath 1 engine instead of the XPath 2 one
+     * @return the compiled expression
+     * @throws InvalidSelectorException if the expression cannot be compiled
+     */
+    public static CompiledXPath compile(String expression, boolean isXpath1) {
+        if (isXpath1) {
+            try {
+                XPathExpression xpath1Expression;
+                synchronized (XPATH_FACTORY) {
+                    xpath1Expression = XPATH_FACTORY.newXPath().compile(expression);
+                }
+                return new CompiledXPath(expression, xpath1Expression, null, null);
+            } catch (XPathExpressionException e) {
+                throw new InvalidSelectorException(e);
+            }
+        }
+
+        StaticContextBuilder scb = new StaticContextBuilder();
+        try {
+            return new CompiledXPath(expression, null, new Engine().parseExpression(expression, scb), scb);
+        } catch (XPathParserException e) {
+            throw new InvalidSelectorException(e);
+        }
+    }
+
+    /**
+     * We are trying to be smart here and only include the actually queried
+     * attributes into the snapshot. This allows to improve the performance a lot
+     * while building it.
+     */
+    static Set<Attribute> extractQueriedAttributes(String xpathExpression) {
+        if (xpathExpression.contains("@*")) {
+            return new HashSet<>(Arrays.asList(UiElementSnapshot.SUPPORTED_ATTRIBUTES));
+        }
+
+        Set<Attribute> result = new HashSet<>();
+        for (Attribute attr : Attribute.values()) {
+            if (xpathExpression.contains("@" + attr.toString())) {
+                result.add(attr);
+            }
+        }
+        return result;
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    public boolean isXpath1() {
+        return xpath1Expression != null;
+    }
+
+    /**
+     * @return attributes the expression refers to. Other attributes
+     * do not need to be fetched to evaluate it.
+     */
+    public Set<Attribute> getQueriedAttributes() {
+        return queriedAttributes;
+    }
+
+    /**
+     * @return the expression compiled for the direct tree walk or null
+     * if it is too complex and requires one of the full engines
+     */
+    @Nullable
+    FastXPath getFastXPath() {
+        return fastXPath;
+    }
+
+    synchronized NodeList evaluateXpath1(Node context) throws XPathExpressionException {
+        //noinspection ConstantConditions
+        return (NodeList) xpath1Expression.evaluate(context, XPathConstants.NODESET);
+    }
+
+    synchronized ResultSequence evaluateXpath2(Node context) {
+        //noinspection ConstantConditions
+        return xpath2Expression.evaluate(new DynamicContextBuilder(staticContext), new Object[]{context});
+    }
+}
@@ -0,0 +1,470 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.core;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Evaluates a small but widely used subset of XPath directly while walking the element tree,
+ * without building any DOM. Supported are absolute location paths made of child (/) and
+ * descendant (//) steps with element name tests or *, and the following predicates:
+ * <ul>
+ *     <li>positions, e.g. [2]</li>
+ *     <li>attribute comparisons, e.g. [@text='OK'] or [@checked!='true']</li>
+ *     <li>contains() and starts-with() calls on attributes, e.g. [contains(@text, 'OK')]</li>
+ *     <li>conjunctions of the above comparisons, e.g. [@enabled='true' and @clickable='true']</li>
+ * </ul>
+ * Nodes are visited in document order, so the walk stops as soon as the first match is found
+ * if only one match is requested. All other expressions must be evaluated by a full XPath engine.
+ */
+class FastXPath {
+    // Bit 0 of the match mask stands for the document node, so one step is reserved
+    private static final int MAX_STEPS = Long.SIZE - 1;
+
+    private final Step[] steps;
+    // Bits of steps preceding the ones using the child axis and the descendant axis
+    private final long childContextMask;
+    private final long descendantContextMask;
+    private final boolean hasPositions;
+
+    private FastXPath(Step[] steps) {
+        this.steps = steps;
+        long childContextMask = 0;
+        long descendantContextMask = 0;
+        boolean hasPositions = false;
+        for (int i = 0; i < steps.length; i++) {
+            if (steps[i].isDescendant) {
+                descendantContextMask |= 1L << i;
+            } else {
+                childContextMask |= 1L << i;
+            }
+            hasPositions |= steps[i].hasPositions();
+        }
+        this.childContextMask = childContextMask;
+        this.descendantContextMask = descendantContextMask;
+        this.hasPositions = hasPositions;
+    }
+
+    /**
+     * The element tree the expression is evaluated against.
+     *
+     * @param <N> the type of tree nodes
+     */
+    interface Tree<N> {
+        /**
+         * @return the element node name the same way it appears in the XML page source
+         */
+        String getTagName(N node);
+
+        /**
+         * @return the attribute value the same way it appears in the XML page source
+         * or null if the node has no such attribute
+         */
+        @Nullable
+        String getAttribute(N node, String name);
+
+        List<N> getChildren(N node);
+    }
+
+    /**
+     * @param expression the XPath expression to compile
+     * @return the compiled expression or null if the expression
+     * does not belong to the supported subset
+     */
+    @Nullable
+    static FastXPath compile(String expression) {
+        List<Step> steps = new Parser(expression).parse();
+        return steps == null || steps.isEmpty() || steps.size() > MAX_STEPS
+                ? null
+                : new FastXPath(steps.toArray(new Step[0]));
+    }
+
+    /**
+     * Finds nodes matching the expression in document order.
+     *
+     * @param tree the tree to walk
+     * @param documentElement the single child of the document node
+     * @param multiple whether to collect all matches or stop after the first one
+     * @return the list of matched nodes
+     */
+    <N> List<N> evaluate(Tree<N> tree, N documentElement, boolean multiple) {
+        List<N> result = new ArrayList<>();
+        List<N> documentChildren = new ArrayList<>(1);
+        documentChildren.add(documentElement);
+        visitChildren(tree, documentChildren, 1L, 0L, multiple, result);
+        return result;
+    }
+
+    /**
+     * @param contextMask bit N is set if the parent node is matched by the first N steps
+     * @param ancestorsMask the same for all ancestors of the parent node combined
+     * @return false if the walk should be stopped
+     */
+    private <N> boolean visitChildren(Tree<N> tree, List<N> children, long contextMask,
+                                      long ancestorsMask, boolean multiple, List<N> result) {
+        final long descendantContext = contextMask | ancestorsMask;
+        final long finalStepBit = 1L << steps.length;
+        // Positions are counted among the siblings separately for each step and predicate
+        int[][] positions = hasPositions ? new int[steps.length][] : null;
+        for (N child : children) {
+            long mask = 0;
+            for (int i = 0; i < steps.length; i++) {
+                Step step = steps[i];
+                long stepContext = step.isDescendant ? descendantContext : contextMask;
+                if ((stepContext & (1L << i)) == 0) {
+                    continue;
+                }
+                int[] stepPositions = null;
+                if (positions != null && step.hasPositions()) {
+                    if (positions[i] == null) {
+                        positions[i] = new int[step.predicates.length];
+                    }
+                    stepPositions = positions[i];
+                }
+                if (step.matches(tree, child, stepPositions)) {
+                    mask |= 1L << (i + 1);
+                }
+            }
+            if ((mask & finalStepBit) != 0) {
+                result.add(child);
+                if (!multiple) {
+                    return false;
+                }
+            }
+
+            // Skip the subtree if no step can match any of its nodes
+            if ((mask & childContextMask) == 0 && ((mask | descendantContext) & descendantContextMask) == 0) {
+                continue;
+            }
+            List<N> grandChildren = tree.getChildren(child);
+            if (!grandChildren.isEmpty()
+                    && !visitChildren(tree, grandChildren, mask, descendantContext, multiple, result)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class Step {
+        private final boolean isDescendant;
+        // null means any name
+        @Nullable
+        private final String name;
+        private final Predicate[] predicates;
+
+        Step(boolean isDescendant, @Nullable String name, Predicate[] predicates) {
+            this.isDescendant = isDescendant;
+            this.name = name;
+            this.predicates = predicates;
+        }
+
+        boolean hasPositions() {
+            for (Predicate predicate : predicates) {
+                if (predicate.position > 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        <N> boolean matches(Tree<N> tree, N node, @Nullable int[] positions) {
+            if (name != null && !name.equals(tree.getTagName(node))) {
+                return false;
+            }
+            for (int i = 0; i < predicates.length; i++) {
+                Predicate predicate = predicates[i];
+                if (predicate.position > 0) {
+                    //noinspection ConstantConditions
+                    if (++positions[i] != predicate.position) {
+                        return false;
+                    }
+                } else if (!predicate.matches(tree, node)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class Predicate {
+        // Only set for positional predicates
+        private final int position;
+        // All the comparisons must be true for the predicate to match
+        private final Comparison[] comparisons;
+
+        Predicate(int position) {
+            this.position = position;
+            this.comparisons = new Comparison[0];
+        }
+
+        Predicate(Comparison[] comparisons) {
+            this.position = 0;
+            this.comparisons = comparisons;
+        }
+
+        <N> boolean matches(Tree<N> tree, N node) {
+            for (Comparison comparison : comparisons) {
+                if (!comparison.matches(tree.getAttribute(node, comparison.attribute))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private enum Operator {
+        EQUALS, NOT_EQUALS, CONTAINS, STARTS_WITH
+    }
+
+    private static class Comparison {
+        private final String attribute;
+        private final Operator operator;
+        private final String literal;
+
+        Comparison(String attribute, Operator operator, String literal) {
+            this.attribute = attribute;
+            this.operator = operator;
+            this.literal = literal;
+        }
+
+        boolean matches(@Nullable String value) {
+            switch (operator) {
+                case EQUALS:
+                    return value != null && value.equals(literal);
+                case NOT_EQUALS:
+                    return value != null && !value.equals(literal);
+                case CONTAINS:
+                    // Missing attributes are converted to empty strings by string functions
+                    return (value == null ? "" : value).contains(literal);
+                case STARTS_WITH:
+                    return (value == null ? "" : value).startsWith(literal);
+                default:
+                    return false;
+            }
+        }
+    }
+
+    /**
+     * A single pass recursive descent parser. Every method returns null
+     * as soon as it meets a construct outside of the supported subset.
+     */
+    private static class Parser {
+        private static final String CONTAINS = "contains";
+        private static final String STARTS_WITH = "starts-with";
+        private static final String AND = "and";
+
+        private final String expression;
+        private int pos;
+
+        Parser(String expression) {
+            this.expression = expression;
+        }
+
+        @Nullable
+        List<Step> parse() {
+            List<Step> steps = new ArrayList<>();
+            skipSpaces();
+            while (pos < expression.length()) {
+                if (!consume('/')) {
+                    return null;
+                }
+                boolean isDescendant = consume('/');
+                Step step = parseStep(isDescendant);
+                if (step == null) {
+                    return null;
+                }
+                steps.add(step);
+                skipSpaces();
+            }
+            return steps;
+        }
+
+        @Nullable
+        private Step parseStep(boolean isDescendant) {
+            skipSpaces();
+            String name = null;
+            if (!consume('*')) {
+                name = parseName();
+                if (name == null) {
+                    return null;
+                }
+            }
+            List<Predicate> predicates = new ArrayList<>();
+            skipSpaces();
+            while (consume('[')) {
+                Predicate predicate = parsePredicate();
+                if (predicate == null || !consume(']')) {
+                    return null;
+                }
+                predicates.add(predicate);
+                skipSpaces();
+            }
+            return new Step(isDescendant, name, predicates.toArray(new Predicate[0]));
+        }
+
+        @Nullable
+        private Predicate parsePredicate() {
+            skipSpaces();
+            if (pos < expression.length() && Character.isDigit(expression.charAt(pos))) {
+                int start = pos;
+                while (pos < expression.length() && Character.isDigit(expression.charAt(pos))) {
+                    pos++;
+                }
+                int position;
+                try {
+                    position = Integer.parseInt(expression.substring(start, pos));
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+                skipSpaces();
+                return position > 0 ? new Predicate(position) : null;
+            }
+
+            List<Comparison> comparisons = new ArrayList<>();
+            do {
+                Comparison comparison = parseComparison();
+                if (comparison == null) {
+                    return null;
+                }
+                comparisons.add(comparison);
+                skipSpaces();
+            } while (consumeKeyword(AND));
+            return new Predicate(comparisons.toArray(new Comparison[0]));
+        }
+
+        @Nullable
+        private Comparison parseComparison() {
+            skipSpaces();
+            if (consume('@')) {
+                String attribute = parseName();
+                if (attribute == null) {
+                    return null;
+                }
+                skipSpaces();
+                Operator operator;
+                if (consume('=')) {
+                    operator = Operator.EQUALS;
+                } else if (consume('!') && consume('=')) {
+                    operator = Operator.NOT_EQUALS;
+                } else {
+                    return null;
+                }
+                skipSpaces();
+                String literal = parseLiteral();
+                return literal == null ? null : new Comparison(attribute, operator, literal);
+            }
+
+            String function = parseName();
+            Operator operator;
+            if (CONTAINS.equals(function)) {
+                operator = Operator.CONTAINS;
+            } else if (STARTS_WITH.equals(function)) {
+                operator = Operator.STARTS_WITH;
+            } else {
+                return null;
+            }
+            skipSpaces();
+            if (!consume('(')) {
+                return null;
+            }
+            skipSpaces();
+            if (!consume('@')) {
+                return null;
+            }
+            String attribute = parseName();
+            skipSpaces();
+            if (attribute == null || !consume(',')) {
+                return null;
+            }
+            skipSpaces();
+            String literal = parseLiteral();
+            skipSpaces();
+            return literal == null || !consume(')') ? null : new Comparison(attribute, operator, literal);
+        }
+
+        @Nullable
+        private String parseLiteral() {
+            if (pos >= expression.length()) {
+                return null;
+            }
+            char quote = expression.charAt(pos);
+            if (quote != '\'' && quote != '"') {
+                return null;
+            }
+            int end = expression.indexOf(quote, pos + 1);
+            // XPath 2 treats doubled quotes as an escaped quote, while XPath 1 does not
+            if (end < 0 || (end + 1 < expression.length() && expression.charAt(end + 1) == quote)) {
+                return null;
+            }
+            String result = expression.substring(pos + 1, end);
+            pos = end + 1;
+            return result;
+        }
+
+        @Nullable
+        private String parseName() {
+            int start = pos;
+            while (pos < expression.length() && isNameChar(expression.charAt(pos), pos == start)) {
+                pos++;
+            }
+            if (pos == start) {
+                return null;
+            }
+            // Namespaces, axes and node type tests are not supported
+            if (pos < expression.length() && (expression.charAt(pos) == ':')) {
+                return null;
+            }
+            return expression.substring(start, pos);
+        }
+
+        private static boolean isNameChar(char c, boolean isFirst) {
+            if (Character.isLetter(c) || c == '_') {
+                return true;
+            }
+            return !isFirst && (Character.isDigit(c) || c == '.' || c == '-');
+        }
+
+        private boolean consumeKeyword(String keyword) {
+            if (!expression.startsWith(keyword, pos)) {
+                return false;
+            }
+            int end = pos + keyword.length();
+            if (end < expression.length() && isNameChar(expression.charAt(end), false)) {
+                return false;
+            }
+            pos = end;
+            return true;
+        }
+
+        private boolean consume(char c) {
+            if (pos < expression.length() && expression.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void skipSpaces() {
+            while (pos < expression.length() && Character.isWhitespace(expression.charAt(pos))) {
+                pos++;
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.core;
+
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import androidx.annotation.Nullable;
+
+/**
+ * The element hierarchy as it appears in the XML page source.
+ *
+ * @param <N> the type of tree nodes
+ */
+interface HierarchyTree<N> extends FastXPath.Tree<N> {
+    /**
+     * @return the topmost element of the hierarchy
+     */
+    N getDocumentElement();
+
+    /**
+     * @return the accessibility node the given element represents or null
+     * if it is a synthetic element, like the root hierarchy element
+     */
+    @Nullable
+    AccessibilityNodeInfo toAccessibilityNode(N node);
+}
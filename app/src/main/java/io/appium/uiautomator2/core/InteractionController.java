@@ -18,9 +18,13 @@ package io.appium.uiautomator2.core;
 import android.view.InputEvent;
 import android.view.MotionEvent.PointerCoords;
 
+import java.lang.reflect.Method;
+
 import io.appium.uiautomator2.common.exceptions.UiAutomator2Exception;
 import io.appium.uiautomator2.model.settings.Settings;
 import io.appium.uiautomator2.model.settings.TrackScrollEvents;
+import io.appium.uiautomator2.server.metrics.ServerMetrics;
+import io.appium.uiautomator2.server.metrics.Stage;
 import io.appium.uiautomator2.utils.Logger;
 
 import static io.appium.uiautomator2.utils.ReflectionUtils.getMethod;
@@ -42,21 +46,30 @@ public class InteractionController {
         this.interactionController = interactionController;
     }
 
+    private Boolean inject(Method method, Object... parameters) {
+        final long startNs = System.nanoTime();
+        try {
+            return (Boolean) invoke(method, interactionController, parameters);
+        } finally {
+            ServerMetrics.getInstance().recordStage(Stage.EVENT_INJECTION, System.nanoTime() - startNs);
+        }
+    }
+
     public boolean sendKey(int keyCode, int metaState) throws UiAutomator2Exception {
-        return (Boolean) invoke(getMethod(CLASS_INTERACTION_CONTROLLER, METHOD_SEND_KEY, int.class, int.class),
-                interactionController, keyCode, metaState);
+        return inject(getMethod(CLASS_INTERACTION_CONTROLLER, METHOD_SEND_KEY, int.class, int.class),
+                keyCode, metaState);
     }
 
     public boolean injectEventSync(final InputEvent event, boolean shouldRegister) throws UiAutomator2Exception {
         if (!shouldRegister) {
-            return (Boolean) invoke(getMethod(CLASS_INTERACTION_CONTROLLER,
-                    METHOD_INJECT_EVENT_SYNC, InputEvent.class), interactionController, event);
+            return inject(getMethod(CLASS_INTERACTION_CONTROLLER,
+                    METHOD_INJECT_EVENT_SYNC, InputEvent.class), event);
         }
         return EventRegister.runAndRegisterScrollEvents(new ReturningRunnable<Boolean>() {
             @Override
             public void run() {
-                Boolean result = (Boolean) invoke(getMethod(CLASS_INTERACTION_CONTROLLER,
-                        METHOD_INJECT_EVENT_SYNC, InputEvent.class), interactionController, event);
+                Boolean result = inject(getMethod(CLASS_INTERACTION_CONTROLLER,
+                        METHOD_INJECT_EVENT_SYNC, InputEvent.class), event);
                 setResult(result);
             }
         });
@@ -76,8 +89,8 @@ public class InteractionController {
     }
 
     private boolean doTouchDown(final int x, final int y) {
-        return (Boolean) invoke(getMethod(CLASS_INTERACTION_CONTROLLER,
-                METHOD_TOUCH_DOWN, int.class, int.class), interactionController, x, y);
+        return inject(getMethod(CLASS_INTERACTION_CONTROLLER,
+                METHOD_TOUCH_DOWN, int.class, int.class), x, y);
     }
 
     public boolean touchDown(final int x, final int y) throws UiAutomator2Exception {
@@ -92,8 +105,8 @@ public class InteractionController {
     }
 
     private boolean doTouchUp(final int x, final int y) {
-        return (Boolean) invoke(getMethod(CLASS_INTERACTION_CONTROLLER, METHOD_TOUCH_UP,
-                int.class, int.class), interactionController, x, y);
+        return inject(getMethod(CLASS_INTERACTION_CONTROLLER, METHOD_TOUCH_UP,
+                int.class, int.class), x, y);
     }
 
     public boolean touchUp(final int x, final int y) throws UiAutomator2Exception {
@@ -108,8 +121,8 @@ public class InteractionController {
     }
 
     private boolean doTouchMove(final int x, final int y) {
-        return (Boolean) invoke(getMethod(CLASS_INTERACTION_CONTROLLER,
-                METHOD_TOUCH_MOVE, int.class, int.class), interactionController, x, y);
+        return inject(getMethod(CLASS_INTERACTION_CONTROLLER,
+                METHOD_TOUCH_MOVE, int.class, int.class), x, y);
     }
 
     public boolean touchMove(final int x, final int y) throws UiAutomator2Exception {
@@ -124,14 +137,13 @@ public class InteractionController {
     }
 
     private boolean doPerformMultiPointerGesture(final PointerCoords[][] pcs) {
-        return (Boolean) invoke(getMethod(CLASS_INTERACTION_CONTROLLER,
-                METHOD_PERFORM_MULTI_POINTER_GESTURE, PointerCoords[][].class),
-                interactionController, (Object) pcs);
+        return inject(getMethod(CLASS_INTERACTION_CONTROLLER,
+                METHOD_PERFORM_MULTI_POINTER_GESTURE, PointerCoords[][].class), (Object) pcs);
     }
 
     public boolean clickNoSync(int x, int y) {
-        return (Boolean) invoke(getMethod(CLASS_INTERACTION_CONTROLLER,
-                METHOD_CLICK_NO_SYNC, int.class, int.class), interactionController, x, y);
+        return inject(getMethod(CLASS_INTERACTION_CONTROLLER,
+                METHOD_CLICK_NO_SYNC, int.class, int.class), x, y);
     }
 
     public Boolean performMultiPointerGesture(final PointerCoords[][] pcs) throws UiAutomator2Exception {
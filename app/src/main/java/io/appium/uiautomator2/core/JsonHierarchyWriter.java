@@ -0,0 +1,128 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.core;
+
+import android.graphics.Rect;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import io.appium.uiautomator2.model.UiElement;
+import io.appium.uiautomator2.model.UiElementSnapshot;
+import io.appium.uiautomator2.utils.Attribute;
+
+/**
+ * Streams a hierarchy snapshot as a JSON tree without indentation. Each element is
+ * an object with the same attributes the XML page source has, but values keep their native
+ * types and bounds are represented by [left, top, right, bottom] arrays. Child elements
+ * are listed in the "children" array, which is omitted for leaf elements.
+ */
+class JsonHierarchyWriter {
+    private static final String CHILDREN = "children";
+    private static final int BUFFER_SIZE = 8192;
+
+    private JsonHierarchyWriter() {
+    }
+
+    /**
+     * @param root the root of the hierarchy snapshot
+     * @param rootAttributes additional attributes of the root element,
+     *                       which are not part of the snapshot
+     * @param outputStream the stream to write to. It is flushed, but not closed.
+     */
+    static void write(UiElement<?, ?> root, Map<String, String> rootAttributes,
+                      OutputStream outputStream) throws IOException {
+        JsonWriter writer = new JsonWriter(new BufferedWriter(
+                new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE));
+        writeElement(writer, root, rootAttributes);
+        writer.flush();
+    }
+
+    private static void writeElement(JsonWriter writer, UiElement<?, ?> element,
+                                     Map<String, String> extraAttributes) throws IOException {
+        writer.beginObject();
+        for (Attribute attr : element.attributeKeys()) {
+            if (!attr.isExposableToXml()) {
+                continue;
+            }
+            if (attr == Attribute.BOUNDS && element instanceof UiElementSnapshot) {
+                Rect bounds = ((UiElementSnapshot) element).getBoundsRect();
+                if (bounds != null) {
+                    writer.name(attr.getName());
+                    writeBounds(writer, bounds.left, bounds.top, bounds.right, bounds.bottom);
+                }
+                continue;
+            }
+            Object value = element.get(attr);
+            if (value == null) {
+                continue;
+            }
+            int[] bounds = attr == Attribute.BOUNDS ? element.getBoundsCoordinates() : null;
+            writer.name(attr.getName());
+            if (bounds != null) {
+                writeBounds(writer, bounds[0], bounds[1], bounds[2], bounds[3]);
+            } else if (value instanceof Boolean) {
+                writer.value((Boolean) value);
+            } else if (value instanceof Number) {
+                writer.value((Number) value);
+            } else {
+                writer.value(String.valueOf(value));
+            }
+        }
+        for (Map.Entry<String, String> entry : extraAttributes.entrySet()) {
+            writer.name(entry.getKey());
+            writeNumberOrString(writer, entry.getValue());
+        }
+
+        List<? extends UiElement<?, ?>> children = element.getChildren();
+        if (!children.isEmpty()) {
+            writer.name(CHILDREN);
+            writer.beginArray();
+            for (UiElement<?, ?> child : children) {
+                writeElement(writer, child, Collections.<String, String>emptyMap());
+            }
+            writer.endArray();
+        }
+        writer.endObject();
+    }
+
+    private static void writeBounds(JsonWriter writer, int left, int top, int right, int bottom)
+            throws IOException {
+        writer.beginArray();
+        writer.value(left);
+        writer.value(top);
+        writer.value(right);
+        writer.value(bottom);
+        writer.endArray();
+    }
+
+    private static void writeNumberOrString(JsonWriter writer, String value) throws IOException {
+        try {
+            writer.value(Long.parseLong(value));
+        } catch (NumberFormatException e) {
+            writer.value(value);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.core;
+
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import io.appium.uiautomator2.model.UiElement;
+import io.appium.uiautomator2.model.settings.NormalizeTagNames;
+import io.appium.uiautomator2.model.settings.Settings;
+import io.appium.uiautomator2.utils.Attribute;
+
+import static io.appium.uiautomator2.utils.XMLHelpers.NON_XML_CHAR_REPLACEMENT;
+import static io.appium.uiautomator2.utils.XMLHelpers.toSafeString;
+import static io.appium.uiautomator2.utils.XMLHelpers.toXmlNodeName;
+
+/**
+ * Exposes an already taken hierarchy snapshot to {@link FastXPath}.
+ */
+class UiElementTree implements HierarchyTree<UiElement<?, ?>> {
+    private final UiElement<?, ?> documentElement;
+    private final Map<String, String> rootAttributes;
+    private final boolean shouldNormalizeTagNames = Settings.get(NormalizeTagNames.class).getValue();
+
+    /**
+     * @param documentElement the root of the hierarchy snapshot
+     * @param rootAttributes additional attributes of the root element,
+     *                       which are not part of the snapshot
+     */
+    UiElementTree(UiElement<?, ?> documentElement, Map<String, String> rootAttributes) {
+        this.documentElement = documentElement;
+        this.rootAttributes = rootAttributes;
+    }
+
+    @Override
+    public UiElement<?, ?> getDocumentElement() {
+        return documentElement;
+    }
+
+    @Nullable
+    @Override
+    public AccessibilityNodeInfo toAccessibilityNode(UiElement<?, ?> element) {
+        return element.getNode();
+    }
+
+    @Override
+    public String getTagName(UiElement<?, ?> element) {
+        String className = element.getClassName();
+        return toXmlNodeName(className, shouldNormalizeTagNames);
+    }
+
+    @Nullable
+    @Override
+    public String getAttribute(UiElement<?, ?> element, String name) {
+        for (Attribute attr : element.attributeKeys()) {
+            if (attr.isExposableToXml() && attr.getName().equals(name)) {
+                Object value = element.get(attr);
+                return value == null ? null : toSafeString(value, NON_XML_CHAR_REPLACEMENT);
+            }
+        }
+        return element == documentElement ? rootAttributes.get(name) : null;
+    }
+
+    @Override
+    public List<UiElement<?, ?>> getChildren(UiElement<?, ?> element) {
+        return Collections.<UiElement<?, ?>>unmodifiableList(element.getChildren());
+    }
+}
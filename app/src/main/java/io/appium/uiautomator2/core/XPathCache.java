@@ -0,0 +1,109 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.core;
+
+import android.util.LruCache;
+
+import java.util.Objects;
+
+import io.appium.uiautomator2.server.metrics.CacheMetrics;
+import io.appium.uiautomator2.server.metrics.ServerMetrics;
+
+/**
+ * Keeps recently used compiled XPath expressions, since clients tend to
+ * repeat the same locators, for example while polling for an element.
+ */
+public class XPathCache {
+    private static final int MAX_SIZE = 256;
+    private static XPathCache instance;
+
+    private final CacheMetrics metrics;
+    private final LruCache<Key, CompiledXPath> cache;
+
+    XPathCache(int maxSize, CacheMetrics metrics) {
+        this.metrics = metrics;
+        this.cache = new LruCache<Key, CompiledXPath>(maxSize) {
+            @Override
+            protected void entryRemoved(boolean evicted, Key key, CompiledXPath oldValue,
+                                        CompiledXPath newValue) {
+                if (evicted) {
+                    XPathCache.this.metrics.recordEviction();
+                }
+            }
+        };
+    }
+
+    public static synchronized XPathCache getInstance() {
+        if (instance == null) {
+            instance = new XPathCache(MAX_SIZE, ServerMetrics.getInstance().getXPathCacheMetrics());
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the compiled expression from the cache or compiles it if it is not there yet.
+     *
+     * @param expression the XPath expression
+     * @param isXpath1 whether the XPath 1 engine should be used instead of the XPath 2 one
+     * @return the compiled expression
+     * @throws io.appium.uiautomator2.common.exceptions.InvalidSelectorException
+     * if the expression cannot be compiled
+     */
+    public CompiledXPath get(String expression, boolean isXpath1) {
+        Key key = new Key(expression, isXpath1);
+        CompiledXPath compiled = cache.get(key);
+        if (compiled != null) {
+            metrics.recordHit();
+            return compiled;
+        }
+        metrics.recordMiss();
+        compiled = CompiledXPath.compile(expression, isXpath1);
+        cache.put(key, compiled);
+        return compiled;
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    private static class Key {
+        private final String expression;
+        private final boolean isXpath1;
+
+        Key(String expression, boolean isXpath1) {
+            this.expression = expression;
+            this.isXpath1 = isXpath1;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return isXpath1 == key.isXpath1 && expression.equals(key.expression);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(expression, isXpath1);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Map;
+
+import io.appium.uiautomator2.model.UiElement;
+import io.appium.uiautomator2.model.settings.NormalizeTagNames;
+import io.appium.uiautomator2.model.settings.Settings;
+import io.appium.uiautomator2.utils.Attribute;
+import io.appium.uiautomator2.utils.XMLHelpers;
+
+import static io.appium.uiautomator2.utils.XMLHelpers.isValidXmlCodePoint;
+import static io.appium.uiautomator2.utils.XMLHelpers.toXmlNodeName;
+
+/**
+ * Streams a hierarchy snapshot as the XML page source. The output is the same
+ * the platform XML serializer produces, but the text is encoded to UTF-8 by hand
+ * into a buffer, which is reused by all serializations made on the same thread.
+ * Attribute values are sanitized and escaped in the same pass, so no intermediate
+ * strings are created for them.
+ */
+class XmlHierarchyWriter {
+    private static final String XML_DECLARATION =
+            "<?xml version='1.0' encoding='UTF-8' standalone='yes' ?>";
+    private static final String LINE_SEPARATOR = "\r\n";
+    private static final String INDENT = "  ";
+    private static final byte NON_XML_CHAR_REPLACEMENT = (byte) XMLHelpers.NON_XML_CHAR_REPLACEMENT.charAt(0);
+    private static final int BUFFER_SIZE = 8192;
+    // The longest sequence written at once is an entity reference
+    private static final int MAX_SEQUENCE_SIZE = 8;
+    // Integer.MIN_VALUE takes 11 characters
+    private static final int MAX_NUMBER_SIZE = 11;
+
+    private static final ThreadLocal<XmlHierarchyWriter> instances = new ThreadLocal<XmlHierarchyWriter>() {
+        @Override
+        protected XmlHierarchyWriter initialValue() {
+            return new XmlHierarchyWriter();
+        }
+    };
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private OutputStream outputStream;
+    private boolean shouldIndent;
+    private boolean shouldNormalizeTagNames;
+
+    private XmlHierarchyWriter() {
+    }
+
+    /**
+     * @param root the root of the hierarchy snapshot
+     * @param rootAttributes additional attributes of the root element,
+     *                       which are not part of the snapshot
+     * @param outputStream the stream to write to. It is flushed, but not closed.
+     * @param shouldIndent whether to put each element on a separate indented line
+     */
+    static void write(UiElement<?, ?> root, Map<String, String> rootAttributes,
+                      OutputStream outputStream, boolean shouldIndent) throws IOException {
+        XmlHierarchyWriter writer = instances.get();
+        writer.outputStream = outputStream;
+        writer.shouldIndent = shouldIndent;
+        writer.shouldNormalizeTagNames = Settings.get(NormalizeTagNames.class).getValue();
+        writer.position = 0;
+        try {
+            writer.writeAscii(XML_DECLARATION);
+            writer.writeElement(root, rootAttributes, 0);
+            writer.flush();
+            outputStream.flush();
+        } finally {
+            writer.outputStream = null;
+        }
+    }
+
+    private void writeElement(UiElement<?, ?> element, Map<String, String> extraAttributes,
+                              int depth) throws IOException {
+        String nodeName = toXmlNodeName(element.getClassName(), shouldNormalizeTagNames);
+        writeLineBreak(depth);
+        writeByte('<');
+        writeName(nodeName);
+
+        for (Attribute attr : element.attributeKeys()) {
+            if (!attr.isExposableToXml()) {
+                continue;
+            }
+            Object value = element.get(attr);
+            if (value == null) {
+                continue;
+            }
+            if (value instanceof Boolean) {
+                writeAttributeName(attr.getName(), '"');
+                writeAscii((Boolean) value ? "true" : "false");
+                writeByte('"');
+            } else if (value instanceof Integer) {
+                writeAttributeName(attr.getName(), '"');
+                writeNumber((Integer) value);
+                writeByte('"');
+            } else {
+                writeAttribute(attr.getName(), value instanceof String ? (String) value : String.valueOf(value));
+            }
+        }
+        for (Map.Entry<String, String> entry : extraAttributes.entrySet()) {
+            writeAttribute(entry.getKey(), entry.getValue());
+        }
+
+        if (element.getChildren().isEmpty()) {
+            writeAscii(" />");
+            return;
+        }
+        writeByte('>');
+        for (UiElement<?, ?> child : element.getChildren()) {
+            writeElement(child, Collections.<String, String>emptyMap(), depth + 1);
+        }
+        writeLineBreak(depth);
+        writeAscii("</");
+        writeName(nodeName);
+        writeByte('>');
+    }
+
+    private void writeLineBreak(int depth) throws IOException {
+        if (!shouldIndent) {
+            return;
+        }
+        writeAscii(LINE_SEPARATOR);
+        for (int i = 0; i < depth; i++) {
+            writeAscii(INDENT);
+        }
+    }
+
+    private void writeAttributeName(String name, char quote) throws IOException {
+        writeByte(' ');
+        writeName(name);
+        writeByte('=');
+        writeByte(quote);
+    }
+
+    /**
+     * Values containing double quotes are put into single quotes like the platform serializer does
+     */
+    private void writeAttribute(String name, String value) throws IOException {
+        char quote = value.indexOf('"') < 0 ? '"' : '\'';
+        writeAttributeName(name, quote);
+        writeText(value, true, quote);
+        writeByte(quote);
+    }
+
+    private void writeName(String name) throws IOException {
+        writeText(name, false, '"');
+    }
+
+    private void writeNumber(int value) throws IOException {
+        ensureCapacity(MAX_NUMBER_SIZE);
+        long remainder = value;
+        if (remainder < 0) {
+            buffer[position++] = '-';
+            remainder = -remainder;
+        }
+        int start = position;
+        do {
+            buffer[position++] = (byte) ('0' + remainder % 10);
+            remainder /= 10;
+        } while (remainder > 0);
+        // Digits have been written in the reverse order
+        for (int i = start, j = position - 1; i < j; i++, j--) {
+            byte digit = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = digit;
+        }
+    }
+
+    /**
+     * Encodes the text to UTF-8 in a single pass. Characters not allowed in XML are replaced.
+     *
+     * @param text the text to write
+     * @param isAttributeValue whether to escape the text as an attribute value
+     * @param quote the quote character the attribute value is enclosed in
+     */
+    private void writeText(String text, boolean isAttributeValue, char quote) throws IOException {
+        final int length = text.length();
+        for (int i = 0; i < length; ) {
+            ensureCapacity(MAX_SEQUENCE_SIZE);
+            char c = text.charAt(i);
+            // Fast path for the most common case
+            if (c >= 0x20 && c < 0x80 && (!isAttributeValue
+                    || (c != '&' && c != '<' && c != '>' && c != quote))) {
+                buffer[position++] = (byte) c;
+                i++;
+                continue;
+            }
+
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (!isValidXmlCodePoint(codePoint)) {
+                buffer[position++] = NON_XML_CHAR_REPLACEMENT;
+            } else if (isAttributeValue && codePoint < 0x80) {
+                writeEscapedAscii((char) codePoint, quote);
+            } else if (isAttributeValue && codePoint >= 0x10000) {
+                // The platform serializer writes supplementary characters as references
+                putAscii("&#");
+                writeNumber(codePoint);
+                writeByte(';');
+            } else {
+                writeCodePoint(codePoint);
+            }
+        }
+    }
+
+    private void writeEscapedAscii(char c, char quote) {
+        if (c == quote) {
+            putAscii(c == '"' ? "&quot;" : "&apos;");
+            return;
+        }
+        switch (c) {
+            case '&':
+                putAscii("&amp;");
+                break;
+            case '<':
+                putAscii("&lt;");
+                break;
+            case '>':
+                putAscii("&gt;");
+                break;
+            case '\t':
+                putAscii("&#9;");
+                break;
+            case '\n':
+                putAscii("&#10;");
+                break;
+            case '\r':
+                putAscii("&#13;");
+                break;
+            default:
+                buffer[position++] = (byte) c;
+                break;
+        }
+    }
+
+    private void writeCodePoint(int codePoint) {
+        if (codePoint < 0x80) {
+            buffer[position++] = (byte) codePoint;
+        } else if (codePoint < 0x800) {
+            buffer[position++] = (byte) (0xC0 | (codePoint >> 6));
+            buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            buffer[position++] = (byte) (0xE0 | (codePoint >> 12));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else {
+            buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+        }
+    }
+
+    private void writeAscii(String str) throws IOException {
+        for (int i = 0; i < str.length(); i++) {
+            writeByte(str.charAt(i));
+        }
+    }
+
+    private void putAscii(String str) {
+        for (int i = 0; i < str.length(); i++) {
+            buffer[position++] = (byte) str.charAt(i);
+        }
+    }
+
+    private void writeByte(int b) throws IOException {
+        ensureCapacity(1);
+        buffer[position++] = (byte) b;
+    }
+
+    private void ensureCapacity(int size) throws IOException {
+        if (position + size > buffer.length) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        if (position > 0) {
+            outputStream.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
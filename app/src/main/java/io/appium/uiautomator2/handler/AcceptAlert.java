@@ -17,6 +17,7 @@
 package io.appium.uiautomator2.handler;
 
 import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.handler.request.UiInteractionCommandHandler;
 import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
 import io.appium.uiautomator2.model.api.AlertModel;
@@ -24,7 +25,7 @@ import io.appium.uiautomator2.utils.AlertHelpers;
 
 import static io.appium.uiautomator2.utils.ModelUtils.toModel;
 
-public class AcceptAlert extends SafeRequestHandler {
+public class AcceptAlert extends SafeRequestHandler implements UiInteractionCommandHandler {
     public AcceptAlert(String mappedUri) {
         super(mappedUri);
     }
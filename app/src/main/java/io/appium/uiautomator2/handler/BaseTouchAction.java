@@ -24,6 +24,7 @@ import androidx.test.uiautomator.UiObjectNotFoundException;
 import io.appium.uiautomator2.core.InteractionController;
 import io.appium.uiautomator2.core.UiAutomatorBridge;
 import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.handler.request.UiInteractionCommandHandler;
 import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
 import io.appium.uiautomator2.model.AndroidElement;
@@ -35,7 +36,7 @@ import io.appium.uiautomator2.utils.Logger;
 
 import static io.appium.uiautomator2.utils.ModelUtils.toModel;
 
-public abstract class BaseTouchAction extends SafeRequestHandler {
+public abstract class BaseTouchAction extends SafeRequestHandler implements UiInteractionCommandHandler {
     protected int clickX;
     protected int clickY;
     protected AndroidElement element;
@@ -0,0 +1,222 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.handler;
+
+import androidx.annotation.Nullable;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import io.appium.uiautomator2.common.exceptions.InvalidArgumentException;
+import io.appium.uiautomator2.common.exceptions.UiAutomator2Exception;
+import io.appium.uiautomator2.common.exceptions.UnknownCommandException;
+import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.http.AppiumResponse;
+import io.appium.uiautomator2.http.IHttpRequest;
+import io.appium.uiautomator2.http.impl.LocalHttpRequest;
+import io.appium.uiautomator2.model.api.BatchCommandModel;
+import io.appium.uiautomator2.model.api.BatchCommandResultModel;
+import io.appium.uiautomator2.model.api.BatchModel;
+import io.appium.uiautomator2.model.api.ElementModel;
+import io.appium.uiautomator2.server.AppiumServlet;
+import io.appium.uiautomator2.utils.Logger;
+import io.netty.handler.codec.http.HttpResponseStatus;
+
+import static io.appium.uiautomator2.utils.ModelUtils.toJsonString;
+import static io.appium.uiautomator2.utils.ModelUtils.toModel;
+
+/**
+ * Executes a list of commands in a single round-trip.
+ *
+ * Command paths not starting with a slash are resolved relatively to the current session,
+ * e.g. "element/${0}/click". Paths and bodies may reference element identifiers returned
+ * by earlier commands of the same batch: ${N} is replaced with the identifier of the element
+ * returned by the N-th command (zero-based) and ${N.M} with the identifier of the M-th element
+ * from the list returned by the N-th command. References are resolved anywhere in the path,
+ * but only in body string values consisting of a single reference, so arbitrary text
+ * (e.g. the one to be typed) is always sent as is.
+ */
+public class Batch extends SafeRequestHandler {
+    private static final String BATCH_MARKER_KEY = "BATCH_MARKER_KEY";
+    private static final Pattern REFERENCE_PATTERN = Pattern.compile("\\$\\{(\\d+)(?:\\.(\\d+))?\\}");
+
+    private final AppiumServlet servlet;
+
+    public Batch(String mappedUri, AppiumServlet servlet) {
+        super(mappedUri);
+        this.servlet = servlet;
+    }
+
+    @Override
+    protected AppiumResponse safeHandle(IHttpRequest request) {
+        if (request.data().containsKey(BATCH_MARKER_KEY)) {
+            throw new InvalidArgumentException("Batches cannot be nested");
+        }
+        BatchModel model = toModel(request, BatchModel.class);
+        boolean stopOnError = model.stopOnError == null || model.stopOnError;
+        String sessionId = getSessionId(request);
+
+        List<Object> values = new ArrayList<>();
+        List<BatchCommandResultModel> results = new ArrayList<>();
+        for (int i = 0; i < model.commands.size(); i++) {
+            BatchCommandModel command = model.commands.get(i);
+            String path = resolveReferences(command.path, values);
+            if (!path.startsWith("/")) {
+                path = String.format("/session/%s/%s", sessionId, path);
+            }
+            String body = command.body == null || command.body.isJsonNull()
+                    ? null
+                    : toJsonString(resolveReferences(command.body, values));
+            LocalHttpRequest subRequest = new LocalHttpRequest(
+                    command.method.toUpperCase(Locale.ROOT), path, body);
+            subRequest.data().put(BATCH_MARKER_KEY, true);
+            Logger.info(String.format("Batch command #%s: %s %s", i, subRequest.method(), path));
+
+            AppiumResponse response = servlet.execute(subRequest);
+            if (response == null) {
+                response = new AppiumResponse(sessionId, new UnknownCommandException(String.format(
+                        "The batch command #%s (%s %s) is not supported", i, subRequest.method(), path)));
+            }
+            values.add(response.getValue());
+            results.add(new BatchCommandResultModel(response.getHttpStatus().code(), getRenderedValue(response)));
+            if (stopOnError && !HttpResponseStatus.OK.equals(response.getHttpStatus())) {
+                Logger.info(String.format("Stopping the batch after the failed command #%s", i));
+                break;
+            }
+        }
+        return new AppiumResponse(sessionId, results);
+    }
+
+    @Nullable
+    private static Object getRenderedValue(AppiumResponse response) {
+        try {
+            return response.getRenderedValue();
+        } catch (IOException e) {
+            throw new UiAutomator2Exception("Cannot read the result of the batch command", e);
+        }
+    }
+
+    /**
+     * Replaces references to the results of earlier commands with element identifiers.
+     *
+     * @param path the command path to resolve references in
+     * @param values the raw values returned by earlier commands
+     * @return the path with all references resolved
+     * @throws InvalidArgumentException if a reference cannot be resolved
+     */
+    static String resolveReferences(String path, List<?> values) {
+        if (!path.contains("${")) {
+            return path;
+        }
+        Matcher matcher = REFERENCE_PATTERN.matcher(path);
+        StringBuffer result = new StringBuffer();
+        while (matcher.find()) {
+            matcher.appendReplacement(result, Matcher.quoteReplacement(resolveReference(matcher, values)));
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
+    /**
+     * Replaces string values, which consist of a single reference to the result
+     * of an earlier command, with element identifiers. Other values are kept as is.
+     *
+     * @param body the command body to resolve references in
+     * @param values the raw values returned by earlier commands
+     * @return the body with all references resolved
+     * @throws InvalidArgumentException if a reference cannot be resolved
+     */
+    static JsonElement resolveReferences(JsonElement body, List<?> values) {
+        if (body.isJsonPrimitive()) {
+            JsonPrimitive primitive = body.getAsJsonPrimitive();
+            if (primitive.isString()) {
+                Matcher matcher = REFERENCE_PATTERN.matcher(primitive.getAsString());
+                if (matcher.matches()) {
+                    return new JsonPrimitive(resolveReference(matcher, values));
+                }
+            }
+            return body;
+        }
+        if (body.isJsonArray()) {
+            JsonArray result = new JsonArray();
+            for (JsonElement item : body.getAsJsonArray()) {
+                result.add(resolveReferences(item, values));
+            }
+            return result;
+        }
+        if (body.isJsonObject()) {
+            JsonObject result = new JsonObject();
+            for (Map.Entry<String, JsonElement> entry : body.getAsJsonObject().entrySet()) {
+                result.add(entry.getKey(), resolveReferences(entry.getValue(), values));
+            }
+            return result;
+        }
+        return body;
+    }
+
+    private static String resolveReference(Matcher matcher, List<?> values) {
+        int commandIdx = parseIndex(matcher.group(), matcher.group(1));
+        if (commandIdx >= values.size()) {
+            throw new InvalidArgumentException(String.format(
+                    "The reference '%s' points to a command that has not been executed yet",
+                    matcher.group()));
+        }
+        Object target = values.get(commandIdx);
+        if (matcher.group(2) != null) {
+            int itemIdx = parseIndex(matcher.group(), matcher.group(2));
+            target = target instanceof List && itemIdx < ((List<?>) target).size()
+                    ? ((List<?>) target).get(itemIdx)
+                    : null;
+        }
+        String elementId = toElementId(target);
+        if (elementId == null) {
+            throw new InvalidArgumentException(String.format(
+                    "The reference '%s' does not point to an element", matcher.group()));
+        }
+        return elementId;
+    }
+
+    private static int parseIndex(String reference, String index) {
+        try {
+            return Integer.parseInt(index);
+        } catch (NumberFormatException e) {
+            throw new InvalidArgumentException(String.format(
+                    "The reference '%s' contains an index out of the supported range", reference));
+        }
+    }
+
+    @Nullable
+    private static String toElementId(@Nullable Object value) {
+        if (value instanceof ElementModel) {
+            return ((ElementModel) value).getUnifiedId();
+        }
+        if (value instanceof Map) {
+            return new ElementModel((Map<?, ?>) value).getUnifiedId();
+        }
+        return null;
+    }
+}
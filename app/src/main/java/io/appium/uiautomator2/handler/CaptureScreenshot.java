@@ -19,6 +19,7 @@ package io.appium.uiautomator2.handler;
 import io.appium.uiautomator2.handler.request.SafeRequestHandler;
 import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
+import io.appium.uiautomator2.http.StreamableContent;
 import io.appium.uiautomator2.utils.ScreenshotHelper;
 
 public class CaptureScreenshot extends SafeRequestHandler {
@@ -29,7 +30,7 @@ public class CaptureScreenshot extends SafeRequestHandler {
 
     @Override
     protected AppiumResponse safeHandle(IHttpRequest request) {
-        final String result = ScreenshotHelper.takeScreenshot();
+        final StreamableContent result = ScreenshotHelper.takeScreenshotContent(null);
         return new AppiumResponse(getSessionId(request), result);
     }
 }
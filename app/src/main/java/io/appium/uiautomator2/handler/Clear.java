@@ -19,6 +19,7 @@ package io.appium.uiautomator2.handler;
 import androidx.test.uiautomator.UiObjectNotFoundException;
 
 import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.handler.request.UiInteractionCommandHandler;
 import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
 import io.appium.uiautomator2.model.AndroidElement;
@@ -28,7 +29,7 @@ import io.appium.uiautomator2.model.Session;
 import static androidx.test.uiautomator.By.focused;
 import static io.appium.uiautomator2.utils.ElementHelpers.findElement;
 
-public class Clear extends SafeRequestHandler {
+public class Clear extends SafeRequestHandler implements UiInteractionCommandHandler {
     public Clear(String mappedUri) {
         super(mappedUri);
     }
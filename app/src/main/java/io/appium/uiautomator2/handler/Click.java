@@ -17,6 +17,7 @@
 package io.appium.uiautomator2.handler;
 
 import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.handler.request.UiInteractionCommandHandler;
 import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
 import io.appium.uiautomator2.model.AndroidElement;
@@ -24,7 +25,7 @@ import io.appium.uiautomator2.model.AppiumUIA2Driver;
 import io.appium.uiautomator2.model.Session;
 import io.appium.uiautomator2.utils.Device;
 
-public class Click extends SafeRequestHandler {
+public class Click extends SafeRequestHandler implements UiInteractionCommandHandler {
 
     public Click(String mappedUri) {
         super(mappedUri);
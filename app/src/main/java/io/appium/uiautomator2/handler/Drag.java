@@ -20,6 +20,7 @@ import androidx.test.uiautomator.UiObjectNotFoundException;
 
 import io.appium.uiautomator2.common.exceptions.InvalidElementStateException;
 import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.handler.request.UiInteractionCommandHandler;
 import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
 import io.appium.uiautomator2.model.AndroidElement;
@@ -33,7 +34,7 @@ import io.appium.uiautomator2.utils.PositionHelper;
 import static io.appium.uiautomator2.utils.Device.getUiDevice;
 import static io.appium.uiautomator2.utils.ModelUtils.toModel;
 
-public class Drag extends SafeRequestHandler {
+public class Drag extends SafeRequestHandler implements UiInteractionCommandHandler {
     public Drag(String mappedUri) {
         super(mappedUri);
     }
@@ -20,6 +20,7 @@ import androidx.test.uiautomator.UiObjectNotFoundException;
 
 import io.appium.uiautomator2.common.exceptions.InvalidElementStateException;
 import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.handler.request.UiInteractionCommandHandler;
 import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
 import io.appium.uiautomator2.model.AndroidElement;
@@ -35,7 +36,7 @@ import io.appium.uiautomator2.utils.PositionHelper;
 import static io.appium.uiautomator2.utils.Device.getUiDevice;
 import static io.appium.uiautomator2.utils.ModelUtils.toModel;
 
-public class Flick extends SafeRequestHandler {
+public class Flick extends SafeRequestHandler implements UiInteractionCommandHandler {
     private static final double SPEED_MAGIC = 1250.0;
 
     public Flick(String mappedUri) {
@@ -7,6 +7,7 @@ import androidx.test.uiautomator.UiObjectNotFoundException;
 import io.appium.uiautomator2.handler.request.SafeRequestHandler;
 import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
+import io.appium.uiautomator2.http.StreamableContent;
 import io.appium.uiautomator2.model.AndroidElement;
 import io.appium.uiautomator2.model.AppiumUIA2Driver;
 import io.appium.uiautomator2.model.Session;
@@ -24,7 +25,7 @@ public class GetElementScreenshot extends SafeRequestHandler {
         Session session = AppiumUIA2Driver.getInstance().getSessionOrThrow();
         AndroidElement element = session.getElementsCache().get(id);
         final Rect elementRect = element.getBounds();
-        final String result = ScreenshotHelper.takeScreenshot(elementRect);
+        final StreamableContent result = ScreenshotHelper.takeScreenshotContent(elementRect);
         return new AppiumResponse(getSessionId(request), result);
     }
 }
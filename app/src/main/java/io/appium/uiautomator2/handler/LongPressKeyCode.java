@@ -24,13 +24,14 @@ import io.appium.uiautomator2.common.exceptions.InvalidElementStateException;
 import io.appium.uiautomator2.core.InteractionController;
 import io.appium.uiautomator2.core.UiAutomatorBridge;
 import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.handler.request.UiInteractionCommandHandler;
 import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
 import io.appium.uiautomator2.model.api.KeyCodeModel;
 
 import static io.appium.uiautomator2.utils.ModelUtils.toModel;
 
-public class LongPressKeyCode extends SafeRequestHandler {
+public class LongPressKeyCode extends SafeRequestHandler implements UiInteractionCommandHandler {
 
     public LongPressKeyCode(String mappedUri) {
         super(mappedUri);
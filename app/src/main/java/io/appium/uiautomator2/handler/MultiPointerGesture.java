@@ -23,6 +23,7 @@ import java.util.List;
 import io.appium.uiautomator2.common.exceptions.InvalidElementStateException;
 import io.appium.uiautomator2.core.UiAutomatorBridge;
 import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.handler.request.UiInteractionCommandHandler;
 import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
 import io.appium.uiautomator2.model.api.touch.appium.TouchActionsModel;
@@ -31,7 +32,7 @@ import io.appium.uiautomator2.model.api.touch.appium.TouchLocationModel;
 
 import static io.appium.uiautomator2.utils.ModelUtils.toModel;
 
-public class MultiPointerGesture extends SafeRequestHandler {
+public class MultiPointerGesture extends SafeRequestHandler implements UiInteractionCommandHandler {
     private static final double INTERSTEP_DELAY_SEC = 0.005;
 
     public MultiPointerGesture(String mappedUri) {
@@ -3,12 +3,13 @@ package io.appium.uiautomator2.handler;
 
 import io.appium.uiautomator2.common.exceptions.InvalidElementStateException;
 import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.handler.request.UiInteractionCommandHandler;
 import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
 import io.appium.uiautomator2.utils.Device;
 import io.appium.uiautomator2.utils.Logger;
 
-public class OpenNotification extends SafeRequestHandler {
+public class OpenNotification extends SafeRequestHandler implements UiInteractionCommandHandler {
 
     public OpenNotification(String mappedUri) {
         super(mappedUri);
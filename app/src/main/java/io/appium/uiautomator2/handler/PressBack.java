@@ -1,12 +1,13 @@
 package io.appium.uiautomator2.handler;
 
 import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.handler.request.UiInteractionCommandHandler;
 import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
 
 import static io.appium.uiautomator2.utils.Device.back;
 
-public class PressBack extends SafeRequestHandler {
+public class PressBack extends SafeRequestHandler implements UiInteractionCommandHandler {
 
     public PressBack(String mappedUri) {
         super(mappedUri);
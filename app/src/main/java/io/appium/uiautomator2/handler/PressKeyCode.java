@@ -24,6 +24,7 @@ import io.appium.uiautomator2.common.exceptions.InvalidElementStateException;
 import io.appium.uiautomator2.core.InteractionController;
 import io.appium.uiautomator2.core.UiAutomatorBridge;
 import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.handler.request.UiInteractionCommandHandler;
 import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
 import io.appium.uiautomator2.model.api.KeyCodeModel;
@@ -32,7 +33,7 @@ import io.appium.uiautomator2.utils.Logger;
 import static io.appium.uiautomator2.utils.Device.getUiDevice;
 import static io.appium.uiautomator2.utils.ModelUtils.toModel;
 
-public class PressKeyCode extends SafeRequestHandler {
+public class PressKeyCode extends SafeRequestHandler implements UiInteractionCommandHandler {
     public PressKeyCode(String mappedUri) {
         super(mappedUri);
     }
@@ -26,6 +26,7 @@ import java.util.List;
 
 import io.appium.uiautomator2.common.exceptions.InvalidArgumentException;
 import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.handler.request.UiInteractionCommandHandler;
 import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
 import io.appium.uiautomator2.model.AndroidElement;
@@ -43,7 +44,7 @@ import static io.appium.uiautomator2.utils.Device.scrollToElement;
 import static io.appium.uiautomator2.utils.ElementLocationHelpers.toSelector;
 import static io.appium.uiautomator2.utils.ModelUtils.toModel;
 
-public class ScrollTo extends SafeRequestHandler {
+public class ScrollTo extends SafeRequestHandler implements UiInteractionCommandHandler {
     private static final List<String> SUPPORTED_STRATEGIES =
             Arrays.asList(BY_ACCESSIBILITY_ID.toString(), BY_CLASS.toString(), BY_UIAUTOMATOR.toString());
 
@@ -22,6 +22,7 @@ import androidx.test.uiautomator.UiSelector;
 
 import io.appium.uiautomator2.common.exceptions.InvalidArgumentException;
 import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.handler.request.UiInteractionCommandHandler;
 import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
 import io.appium.uiautomator2.model.AndroidElement;
@@ -30,7 +31,7 @@ import io.appium.uiautomator2.model.ElementsCache;
 
 import static java.util.Objects.requireNonNull;
 
-public class ScrollToElement extends SafeRequestHandler {
+public class ScrollToElement extends SafeRequestHandler implements UiInteractionCommandHandler {
 
     public ScrollToElement(String mappedUri) {
         super(mappedUri);
@@ -20,6 +20,7 @@ import androidx.test.uiautomator.UiObjectNotFoundException;
 
 import io.appium.uiautomator2.common.exceptions.InvalidElementStateException;
 import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.handler.request.UiInteractionCommandHandler;
 import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
 import io.appium.uiautomator2.model.AndroidElement;
@@ -37,7 +38,7 @@ import static io.appium.uiautomator2.utils.ModelUtils.toModel;
 /**
  * Send keys to a given element.
  */
-public class SendKeysToElement extends SafeRequestHandler {
+public class SendKeysToElement extends SafeRequestHandler implements UiInteractionCommandHandler {
 
     public SendKeysToElement(String mappedUri) {
         super(mappedUri);
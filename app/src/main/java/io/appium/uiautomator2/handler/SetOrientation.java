@@ -17,6 +17,7 @@
 package io.appium.uiautomator2.handler;
 
 import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.handler.request.UiInteractionCommandHandler;
 import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
 import io.appium.uiautomator2.model.ScreenOrientation;
@@ -28,7 +29,7 @@ import io.appium.uiautomator2.model.settings.UseResourcesForOrientationDetection
 
 import static io.appium.uiautomator2.utils.ModelUtils.toModel;
 
-public class SetOrientation extends SafeRequestHandler {
+public class SetOrientation extends SafeRequestHandler implements UiInteractionCommandHandler {
     public SetOrientation(String mappedUri) {
         super(mappedUri);
     }
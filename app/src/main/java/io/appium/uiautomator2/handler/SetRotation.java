@@ -17,6 +17,7 @@
 package io.appium.uiautomator2.handler;
 
 import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.handler.request.UiInteractionCommandHandler;
 import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
 import io.appium.uiautomator2.model.ScreenRotation;
@@ -25,7 +26,7 @@ import io.appium.uiautomator2.model.internal.CustomUiDevice;
 
 import static io.appium.uiautomator2.utils.ModelUtils.toModel;
 
-public class SetRotation extends SafeRequestHandler {
+public class SetRotation extends SafeRequestHandler implements UiInteractionCommandHandler {
     public SetRotation(String mappedUri) {
         super(mappedUri);
     }
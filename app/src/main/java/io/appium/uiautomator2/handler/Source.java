@@ -16,42 +16,140 @@
 
 package io.appium.uiautomator2.handler;
 
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import io.appium.uiautomator2.common.exceptions.InvalidArgumentException;
 import io.appium.uiautomator2.core.AccessibilityNodeInfoDumper;
 import io.appium.uiautomator2.handler.request.SafeRequestHandler;
 import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
+import io.appium.uiautomator2.http.StreamableContent;
+import io.appium.uiautomator2.model.AndroidElement;
+import io.appium.uiautomator2.model.AppiumUIA2Driver;
+import io.appium.uiautomator2.model.UiElementSnapshot;
 import io.appium.uiautomator2.utils.Attribute;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.QueryStringDecoder;
 
+import static io.appium.uiautomator2.core.AxNodeInfoExtractor.toAxNodeInfo;
 import static io.appium.uiautomator2.utils.AXWindowHelpers.refreshAccessibilityCache;
 
 /**
- * Get page source. Return as string of XML doc
+ * Get page source. Return as string of XML doc by default.
+ * The format query parameter allows to choose a more compact representation:
+ * compact-xml returns the same XML without indentation and json returns
+ * the hierarchy as a tree of JSON objects. Clients accepting the
+ * {@link AccessibilityNodeInfoDumper#BINARY_CONTENT_TYPE} media type get
+ * the binary encoded hierarchy instead of a JSON response.
+ * The returned hierarchy might be limited with the following query parameters:
+ * root - the identifier of a cached element to start the hierarchy from,
+ * maxDepth - the maximum depth of elements relative to the root, which cannot exceed
+ * {@link UiElementSnapshot#DEFAULT_MAX_DEPTH},
+ * attributes - comma-separated names of attributes to include. The class name is always included.
  */
 public class Source extends SafeRequestHandler {
-    private static final Set<Attribute> includedAttributes = new HashSet<>();
-
-    private static synchronized Set<Attribute> getXmlSourceAttributes() {
-        if (includedAttributes.isEmpty()) {
-            for (Attribute attribute : Attribute.values()) {
-                if (attribute.isExposableToXml()) {
-                    includedAttributes.add(attribute);
-                }
+    private static final String FORMAT_PARAM = "format";
+    private static final String ROOT_PARAM = "root";
+    private static final String MAX_DEPTH_PARAM = "maxDepth";
+    private static final String ATTRIBUTES_PARAM = "attributes";
+    private static final String FORMAT_XML = "xml";
+    private static final String FORMAT_COMPACT_XML = "compact-xml";
+    private static final String FORMAT_JSON = "json";
+
+    public Source(String mappedUri) {
+        super(mappedUri);
+    }
+
+    @Nullable
+    private static String getParam(Map<String, List<String>> params, String name) {
+        List<String> values = params.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    private static boolean acceptsBinary(IHttpRequest request) {
+        String accept = request.header(HttpHeaders.Names.ACCEPT);
+        return accept != null && accept.contains(AccessibilityNodeInfoDumper.BINARY_CONTENT_TYPE);
+    }
+
+    static int parseMaxDepth(@Nullable String value) {
+        if (value == null) {
+            return UiElementSnapshot.DEFAULT_MAX_DEPTH;
+        }
+        try {
+            int result = Integer.parseInt(value);
+            if (result >= 0 && result <= UiElementSnapshot.DEFAULT_MAX_DEPTH) {
+                return result;
             }
+        } catch (NumberFormatException e) {
+            // Reported below
         }
-        return includedAttributes;
+        throw new InvalidArgumentException(String.format(
+                "The '%s' value must be an integer in range [0, %s]. '%s' is given instead",
+                MAX_DEPTH_PARAM, UiElementSnapshot.DEFAULT_MAX_DEPTH, value));
     }
 
-    public Source(String mappedUri) {
-        super(mappedUri);
+    static Set<Attribute> parseAttributes(@Nullable String value) {
+        Set<Attribute> sourceAttributes = AccessibilityNodeInfoDumper.getSourceAttributes();
+        if (value == null) {
+            return sourceAttributes;
+        }
+        Set<Attribute> result = new HashSet<>();
+        for (String name : value.split(",")) {
+            Attribute attribute = Attribute.fromString(name.trim());
+            if (attribute == null || !sourceAttributes.contains(attribute)) {
+                throw new InvalidArgumentException(String.format(
+                        "The page source attribute '%s' is not known. Only %s are supported",
+                        name.trim(), sourceAttributes));
+            }
+            result.add(attribute);
+        }
+        return result;
+    }
+
+    @Nullable
+    private static AccessibilityNodeInfo getRoot(@Nullable String elementId) {
+        if (elementId == null) {
+            return null;
+        }
+        AndroidElement element = AppiumUIA2Driver.getInstance().getSessionOrThrow()
+                .getElementsCache().get(elementId);
+        return toAxNodeInfo(element.getUiObject());
     }
 
     @Override
     protected AppiumResponse safeHandle(IHttpRequest request) {
+        Map<String, List<String>> params = new QueryStringDecoder(request.uri()).parameters();
+        boolean isBinary = acceptsBinary(request);
+        String format = getParam(params, FORMAT_PARAM);
+        if (format == null) {
+            format = FORMAT_XML;
+        }
+        if (!isBinary && !FORMAT_XML.equals(format) && !FORMAT_COMPACT_XML.equals(format)
+                && !FORMAT_JSON.equals(format)) {
+            throw new InvalidArgumentException(String.format(
+                    "The page source format '%s' is not supported. Only %s are supported",
+                    format, Arrays.asList(FORMAT_XML, FORMAT_COMPACT_XML, FORMAT_JSON)));
+        }
+        int maxDepth = parseMaxDepth(getParam(params, MAX_DEPTH_PARAM));
+        Set<Attribute> includedAttributes = parseAttributes(getParam(params, ATTRIBUTES_PARAM));
+
         refreshAccessibilityCache();
-        String xmlSource = new AccessibilityNodeInfoDumper(null, getXmlSourceAttributes()).dumpToXml();
-        return new AppiumResponse(getSessionId(request), xmlSource);
+        AccessibilityNodeInfoDumper dumper = new AccessibilityNodeInfoDumper(
+                getRoot(getParam(params, ROOT_PARAM)), includedAttributes, maxDepth);
+        if (isBinary) {
+            return new AppiumResponse(getSessionId(request), dumper.dumpToBinaryContent());
+        }
+        StreamableContent source = FORMAT_JSON.equals(format)
+                ? dumper.dumpToJsonContent()
+                : dumper.dumpToXmlContent(FORMAT_XML.equals(format));
+        return new AppiumResponse(getSessionId(request), source);
     }
 }
@@ -23,6 +23,7 @@ import java.util.List;
 import io.appium.uiautomator2.common.exceptions.InvalidArgumentException;
 import io.appium.uiautomator2.common.exceptions.InvalidElementStateException;
 import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.handler.request.UiInteractionCommandHandler;
 import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
 import io.appium.uiautomator2.model.api.touch.w3c.W3CActionsModel;
@@ -36,7 +37,7 @@ import io.appium.uiautomator2.utils.w3c.ActionsTokenizer;
 
 import static io.appium.uiautomator2.utils.ModelUtils.toModel;
 
-public class W3CActions extends SafeRequestHandler {
+public class W3CActions extends SafeRequestHandler implements UiInteractionCommandHandler {
     private static final ActionsPreprocessor actionsPreprocessor = new ActionsPreprocessor();
     private static final ActionsTokenizer actionsTokenizer = new ActionsTokenizer();
 
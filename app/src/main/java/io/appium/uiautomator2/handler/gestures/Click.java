@@ -22,6 +22,7 @@ import android.graphics.Point;
 import android.graphics.Rect;
 
 import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.handler.request.UiInteractionCommandHandler;
 import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
 import io.appium.uiautomator2.model.AndroidElement;
@@ -30,7 +31,7 @@ import io.appium.uiautomator2.model.Session;
 import io.appium.uiautomator2.model.api.gestures.ClickModel;
 import io.appium.uiautomator2.model.internal.CustomUiDevice;
 
-public class Click extends SafeRequestHandler {
+public class Click extends SafeRequestHandler implements UiInteractionCommandHandler {
 
     public Click(String mappedUri) {
         super(mappedUri);
@@ -20,6 +20,7 @@ import android.graphics.Point;
 import android.graphics.Rect;
 
 import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.handler.request.UiInteractionCommandHandler;
 import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
 import io.appium.uiautomator2.model.AndroidElement;
@@ -30,7 +31,7 @@ import io.appium.uiautomator2.model.internal.CustomUiDevice;
 
 import static io.appium.uiautomator2.utils.ModelUtils.toModel;
 
-public class DoubleClick extends SafeRequestHandler {
+public class DoubleClick extends SafeRequestHandler implements UiInteractionCommandHandler {
 
     public DoubleClick(String mappedUri) {
         super(mappedUri);
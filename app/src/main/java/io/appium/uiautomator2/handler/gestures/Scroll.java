@@ -17,6 +17,7 @@
 package io.appium.uiautomator2.handler.gestures;
 
 import io.appium.uiautomator2.handler.request.SafeRequestHandler;
+import io.appium.uiautomator2.handler.request.UiInteractionCommandHandler;
 import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
 import io.appium.uiautomator2.model.AndroidElement;
@@ -27,7 +28,7 @@ import io.appium.uiautomator2.model.internal.CustomUiDevice;
 
 import static io.appium.uiautomator2.utils.ModelUtils.toModel;
 
-public class Scroll extends SafeRequestHandler {
+public class Scroll extends SafeRequestHandler implements UiInteractionCommandHandler {
 
     public Scroll(String mappedUri) {
         super(mappedUri);
@@ -32,9 +32,12 @@ import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
 import io.appium.uiautomator2.model.AppiumUIA2Driver;
 import io.appium.uiautomator2.model.Session;
+import io.appium.uiautomator2.model.SnapshotCache;
+import io.appium.uiautomator2.server.metrics.ServerMetrics;
 import io.appium.uiautomator2.utils.Logger;
 
 public abstract class SafeRequestHandler extends BaseRequestHandler {
+    private static final String HANDLERS_PACKAGE_PREFIX = "io.appium.uiautomator2.handler.";
 
     public SafeRequestHandler(String mappedUri) {
         super(mappedUri);
@@ -44,7 +47,24 @@ public abstract class SafeRequestHandler extends BaseRequestHandler {
     @NonNull
     public final AppiumResponse handle(IHttpRequest request) {
         Logger.info(String.format("%s command", getClass().getSimpleName()));
+        long startNs = System.nanoTime();
+        try {
+            return handleWithSessionCheck(request);
+        } finally {
+            ServerMetrics.getInstance().recordHandlerLatency(getMetricName(), System.nanoTime() - startNs);
+        }
+    }
 
+    /**
+     * @return the handler class name relative to the handlers package, so handlers
+     * with the same simple name from different subpackages are tracked separately
+     */
+    private String getMetricName() {
+        String name = getClass().getName();
+        return name.startsWith(HANDLERS_PACKAGE_PREFIX) ? name.substring(HANDLERS_PACKAGE_PREFIX.length()) : name;
+    }
+
+    private AppiumResponse handleWithSessionCheck(IHttpRequest request) {
         String sessionId = getSessionId(request);
         if (!(this instanceof NoSessionCommandHandler)) {
             Session activeSession = AppiumUIA2Driver.getInstance().getSession();
@@ -68,6 +88,11 @@ public abstract class SafeRequestHandler extends BaseRequestHandler {
             // Netty will catch it anyway.
             // The advantage of catching it here is that we can propagate the Error to clients.
             return new AppiumResponse(sessionId, e);
+        } finally {
+            if (this instanceof UiInteractionCommandHandler) {
+                // Accessibility events about the changes caused by the command might arrive too late
+                SnapshotCache.getInstance().invalidate();
+            }
         }
     }
 }
@@ -0,0 +1,7 @@
+package io.appium.uiautomator2.handler.request;
+
+/**
+ * Marks handlers of commands, which interact with the UI (clicks, gestures, key input, etc.),
+ * so the cached hierarchy snapshot is dropped once they have been executed.
+ */
+public interface UiInteractionCommandHandler {}
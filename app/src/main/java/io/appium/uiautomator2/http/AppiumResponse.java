@@ -16,24 +16,42 @@
 
 package io.appium.uiautomator2.http;
 
+import android.util.Base64;
 import android.util.Log;
 
 import androidx.annotation.Nullable;
 
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParser;
 import com.google.gson.JsonSyntaxException;
 
+import java.io.ByteArrayOutputStream;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.util.Locale;
 
 import io.appium.uiautomator2.common.exceptions.UiAutomator2Exception;
+import io.appium.uiautomator2.http.impl.JsonStringOutputStream;
 import io.appium.uiautomator2.model.api.server.ErrorModel;
 import io.appium.uiautomator2.model.api.server.ResponseModel;
+import io.appium.uiautomator2.model.api.server.TimedResponseModel;
+import io.appium.uiautomator2.model.settings.IncludeServerTiming;
+import io.appium.uiautomator2.model.settings.Settings;
+import io.appium.uiautomator2.server.metrics.RequestTiming;
 import io.appium.uiautomator2.utils.Logger;
 import io.netty.handler.codec.http.HttpResponseStatus;
 
 import static io.appium.uiautomator2.utils.ModelUtils.toJsonString;
-import static io.appium.uiautomator2.utils.StringHelpers.abbreviate;
+import static io.appium.uiautomator2.utils.ModelUtils.writeJson;
 
 public class AppiumResponse {
+    public static final String JSON_CONTENT_TYPE = "application/json";
+    private static final int LOG_PREVIEW_LENGTH = 300;
+
     private final Object value;
     private final String sessionId;
     private final HttpResponseStatus httpStatus;
@@ -66,24 +84,124 @@ public class AppiumResponse {
     }
 
     public void renderTo(IHttpResponse response) {
-        response.setContentType("application/json");
         response.setEncoding(StandardCharsets.UTF_8);
         response.setStatus(getHttpStatus().code());
+        if (value instanceof RawContent) {
+            writeRaw(response, (RawContent) value);
+            return;
+        }
+        response.setContentType(JSON_CONTENT_TYPE);
+        if (value instanceof StreamableContent) {
+            streamTo(response, (StreamableContent) value);
+            return;
+        }
         boolean isError = value instanceof Throwable;
         try {
             Object val = isError ? formatException((Throwable) value) : value;
-            ResponseModel responseModel = new ResponseModel(val, sessionId);
-            final String responseString = toJsonString(responseModel);
-            Logger.info(String.format("AppiumResponse: %s",
-                    isError ? responseString : abbreviate(responseString, 300)));
-            response.setContent(responseString);
-        } catch (JsonSyntaxException e) {
+            ResponseModel responseModel = createResponseModel(val);
+            LogPreviewWriter writer = new LogPreviewWriter(
+                    new OutputStreamWriter(response.getContentStream(), StandardCharsets.UTF_8),
+                    isError ? Integer.MAX_VALUE : LOG_PREVIEW_LENGTH);
+            writeJson(responseModel, writer);
+            writer.close();
+            Logger.info(String.format("AppiumResponse: %s", writer.getPreview()));
+        } catch (JsonSyntaxException | JsonIOException | IOException e) {
             Logger.error("Unable to create JSON Object", e);
             response.setContent("{}");
             response.setStatus(UiAutomator2Exception.DEFAULT_ERROR_STATUS.code());
         }
     }
 
+    private ResponseModel createResponseModel(@Nullable Object val) {
+        RequestTiming timing = RequestTiming.current();
+        if (timing != null && Settings.get(IncludeServerTiming.class).getValue()) {
+            return new TimedResponseModel(val, sessionId, timing.toMap());
+        }
+        return new ResponseModel(val, sessionId);
+    }
+
+    private void writeRaw(IHttpResponse response, RawContent content) {
+        response.setContentType(content.getContentType());
+        try (OutputStream stream = response.getContentStream()) {
+            content.writeTo(stream);
+        } catch (IOException e) {
+            Logger.error("Unable to write the response content", e);
+            response.setContent("");
+            response.setStatus(UiAutomator2Exception.DEFAULT_ERROR_STATUS.code());
+        }
+    }
+
+    private void streamTo(IHttpResponse response, StreamableContent content) {
+        OutputStream stream = response.startStreaming();
+        // JSON values are embedded as is, everything else becomes a JSON string
+        boolean isJson = content instanceof StreamableJsonContent;
+        try {
+            String head = String.format("{\"sessionId\":%s,\"value\":%s",
+                    toJsonString(sessionId), isJson ? "" : "\"");
+            stream.write(head.getBytes(StandardCharsets.UTF_8));
+            content.writeTo(isJson ? stream : new JsonStringOutputStream(stream));
+            stream.write((isJson ? "}" : "\"}").getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            Logger.error("Unable to stream the response content", e);
+            // The status line has been already sent, so the only way
+            // to tell the client about the failure is to drop the response
+            response.abortStreaming();
+            return;
+        }
+        try {
+            stream.close();
+        } catch (Exception e) {
+            Logger.error("Unable to finish the response stream", e);
+        }
+        Logger.info("AppiumResponse: the content has been streamed");
+    }
+
+    /**
+     * Remembers the beginning of the written content, so it could be logged
+     * without keeping the whole response as a string.
+     */
+    private static class LogPreviewWriter extends FilterWriter {
+        private final StringBuilder preview = new StringBuilder();
+        private final int maxLength;
+        private long length;
+
+        LogPreviewWriter(Writer out, int maxLength) {
+            super(out);
+            this.maxLength = maxLength;
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            out.write(c);
+            if (preview.length() < maxLength) {
+                preview.append((char) c);
+            }
+            length++;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            out.write(cbuf, off, len);
+            if (preview.length() < maxLength) {
+                preview.append(cbuf, off, Math.min(len, maxLength - preview.length()));
+            }
+            length += len;
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            out.write(str, off, len);
+            if (preview.length() < maxLength) {
+                preview.append(str, off, off + Math.min(len, maxLength - preview.length()));
+            }
+            length += len;
+        }
+
+        String getPreview() {
+            return length > preview.length() ? preview + "\u2026" : preview.toString();
+        }
+    }
+
     public HttpResponseStatus getHttpStatus() {
         return httpStatus;
     }
@@ -92,5 +210,53 @@ public class AppiumResponse {
     public Object getValue() {
         return value;
     }
+
+    /**
+     * @return the value in the form it gets rendered to the client. Errors are formatted
+     * and streamable content is read into a string or a JSON tree. Raw content
+     * is read into a string, binary content is encoded to base64.
+     * @throws IOException if the streamable content cannot be read
+     */
+    @Nullable
+    public Object getRenderedValue() throws IOException {
+        if (value instanceof Throwable) {
+            return formatException((Throwable) value);
+        }
+        if (value instanceof StreamableContent || value instanceof RawContent) {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            if (value instanceof RawContent) {
+                ((RawContent) value).writeTo(content);
+                return toTextValue(content.toByteArray(), ((RawContent) value).getContentType());
+            }
+            ((StreamableContent) value).writeTo(content);
+            String result = new String(content.toByteArray(), StandardCharsets.UTF_8);
+            return value instanceof StreamableJsonContent ? JsonParser.parseString(result) : result;
+        }
+        return value;
+    }
+
+    /**
+     * @param contentType the MIME type of the content
+     * @return whether the content is text, which can be represented by a JSON string as is
+     */
+    public static boolean isTextContentType(@Nullable String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String mimeType = contentType.toLowerCase(Locale.ROOT);
+        return mimeType.startsWith("text/") || mimeType.startsWith(JSON_CONTENT_TYPE)
+                || mimeType.contains("+json") || mimeType.contains("xml");
+    }
+
+    /**
+     * @param content the content to represent as a JSON string value
+     * @param contentType the MIME type of the content
+     * @return the content decoded as UTF-8 if it is text, otherwise encoded to base64
+     */
+    public static String toTextValue(byte[] content, @Nullable String contentType) {
+        return isTextContentType(contentType)
+                ? new String(content, StandardCharsets.UTF_8)
+                : Base64.encodeToString(content, Base64.NO_WRAP);
+    }
 }
 
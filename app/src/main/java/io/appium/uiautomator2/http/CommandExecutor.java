@@ -0,0 +1,219 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.http;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.appium.uiautomator2.utils.Logger;
+
+/**
+ * Runs server commands outside of the Netty event loop.
+ *
+ * Commands sharing the same queue key (usually the session identifier) are executed
+ * strictly one after another in the order they have been submitted, so UiAutomation calls
+ * made on behalf of a single session never interleave. Commands without a key
+ * (e.g. /status) are executed as soon as a worker thread is available.
+ */
+public class CommandExecutor {
+    private static final long KEEP_ALIVE_SEC = 60;
+    private static final long SLOW_QUEUE_WAIT_MS = 500;
+
+    private final ThreadPoolExecutor executor;
+    private final int maxPendingCommands;
+    // The presence of a key in this map means there is a command of that queue running
+    private final Map<String, Queue<QueuedCommand>> serialQueues = new HashMap<>();
+    private final AtomicInteger pendingCommands = new AtomicInteger();
+    private final AtomicLong executedCommands = new AtomicLong();
+    private final AtomicLong totalWaitTimeNs = new AtomicLong();
+    private final AtomicLong maxWaitTimeNs = new AtomicLong();
+
+    public CommandExecutor(int threadsCount, int maxPendingCommands) {
+        if (threadsCount < 1) {
+            throw new IllegalArgumentException(String.format(
+                    "The amount of command executor threads must be positive. %s was given", threadsCount));
+        }
+        if (maxPendingCommands < 1) {
+            throw new IllegalArgumentException(String.format(
+                    "The command queue capacity must be positive. %s was given", maxPendingCommands));
+        }
+        this.maxPendingCommands = maxPendingCommands;
+        this.executor = new ThreadPoolExecutor(threadsCount, threadsCount,
+                KEEP_ALIVE_SEC, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new CommandThreadFactory());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Schedules the given command for execution.
+     *
+     * @param queueKey the name of the serial queue to put the command to or null
+     *                 if the command may run concurrently with any other command
+     * @param command the command to execute
+     * @throws RejectedExecutionException if there are too many pending commands
+     * or the executor has been already shut down
+     */
+    public void execute(@Nullable String queueKey, Runnable command) {
+        if (pendingCommands.incrementAndGet() > maxPendingCommands) {
+            pendingCommands.decrementAndGet();
+            throw new RejectedExecutionException(String.format(
+                    "The server is busy. There are already %s commands waiting for execution",
+                    maxPendingCommands));
+        }
+
+        QueuedCommand queuedCommand = new QueuedCommand(queueKey, command);
+        if (queueKey != null) {
+            synchronized (serialQueues) {
+                Queue<QueuedCommand> queue = serialQueues.get(queueKey);
+                if (queue != null) {
+                    queue.add(queuedCommand);
+                    return;
+                }
+                serialQueues.put(queueKey, new ArrayDeque<QueuedCommand>());
+            }
+        }
+        submit(queuedCommand);
+    }
+
+    private void submit(QueuedCommand command) {
+        try {
+            executor.execute(command);
+        } catch (RejectedExecutionException e) {
+            pendingCommands.decrementAndGet();
+            if (command.queueKey != null) {
+                synchronized (serialQueues) {
+                    serialQueues.remove(command.queueKey);
+                }
+            }
+            throw e;
+        }
+    }
+
+    private void scheduleNext(String queueKey) {
+        QueuedCommand next;
+        synchronized (serialQueues) {
+            Queue<QueuedCommand> queue = serialQueues.get(queueKey);
+            next = queue == null ? null : queue.poll();
+            if (next == null) {
+                serialQueues.remove(queueKey);
+                return;
+            }
+        }
+        try {
+            submit(next);
+        } catch (RejectedExecutionException e) {
+            Logger.error(String.format("Cannot schedule the next command of the '%s' queue", queueKey), e);
+        }
+    }
+
+    private void recordWaitTime(long waitTimeNs) {
+        executedCommands.incrementAndGet();
+        totalWaitTimeNs.addAndGet(waitTimeNs);
+        long currentMax;
+        do {
+            currentMax = maxWaitTimeNs.get();
+        } while (waitTimeNs > currentMax && !maxWaitTimeNs.compareAndSet(currentMax, waitTimeNs));
+    }
+
+    /**
+     * @return the count of commands that have been accepted, but not finished yet
+     */
+    public int getPendingCommandsCount() {
+        return pendingCommands.get();
+    }
+
+    public long getExecutedCommandsCount() {
+        return executedCommands.get();
+    }
+
+    /**
+     * @return the average time in milliseconds commands spend in the queue before being executed
+     */
+    public double getAverageWaitTimeMs() {
+        long count = executedCommands.get();
+        return count == 0 ? 0 : totalWaitTimeNs.get() / 1e6 / count;
+    }
+
+    /**
+     * @return the longest time in milliseconds a command has spent in the queue
+     */
+    public double getMaxWaitTimeMs() {
+        return maxWaitTimeNs.get() / 1e6;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        synchronized (serialQueues) {
+            serialQueues.clear();
+        }
+    }
+
+    private class QueuedCommand implements Runnable {
+        @Nullable
+        private final String queueKey;
+        private final Runnable command;
+        private final long enqueuedAtNs = System.nanoTime();
+
+        QueuedCommand(@Nullable String queueKey, Runnable command) {
+            this.queueKey = queueKey;
+            this.command = command;
+        }
+
+        @Override
+        public void run() {
+            long waitTimeNs = System.nanoTime() - enqueuedAtNs;
+            recordWaitTime(waitTimeNs);
+            long waitTimeMs = TimeUnit.NANOSECONDS.toMillis(waitTimeNs);
+            if (waitTimeMs >= SLOW_QUEUE_WAIT_MS) {
+                Logger.info(String.format("The command has been waiting %sms in the queue (%s pending)",
+                        waitTimeMs, pendingCommands.get()));
+            }
+            try {
+                command.run();
+            } catch (Throwable e) {
+                Logger.error("Unhandled command execution error", e);
+            } finally {
+                pendingCommands.decrementAndGet();
+                if (queueKey != null) {
+                    scheduleNext(queueKey);
+                }
+            }
+        }
+    }
+
+    private static class CommandThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "appium-command-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
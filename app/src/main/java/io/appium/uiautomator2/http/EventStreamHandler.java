@@ -0,0 +1,172 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.http;
+
+import androidx.annotation.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.appium.uiautomator2.common.exceptions.NoSuchDriverException;
+import io.appium.uiautomator2.http.impl.NettyHttpResponse;
+import io.appium.uiautomator2.model.AppiumUIA2Driver;
+import io.appium.uiautomator2.model.Session;
+import io.appium.uiautomator2.model.UiEventBroadcaster;
+import io.appium.uiautomator2.utils.Logger;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponse;
+
+import static io.netty.handler.codec.http.HttpHeaders.Names.CACHE_CONTROL;
+import static io.netty.handler.codec.http.HttpHeaders.Names.CONNECTION;
+import static io.netty.handler.codec.http.HttpHeaders.Names.CONTENT_TYPE;
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+
+/**
+ * Serves GET /session/:sessionId/appium/events as a Server-Sent Events stream
+ * of UI change notifications, so clients could re-query the UI only when it has actually changed.
+ * The stream stays open until the client disconnects.
+ */
+public class EventStreamHandler extends ChannelInboundHandlerAdapter {
+    private static final String EVENTS_PATH_SUFFIX = "/appium/events";
+    private static final String EVENT_STREAM_MIME_TYPE = "text/event-stream; charset=UTF-8";
+    private static final long HEARTBEAT_INTERVAL_SEC = 15;
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (!(msg instanceof FullHttpRequest) || !isEventStreamRequest((FullHttpRequest) msg)) {
+            super.channelRead(ctx, msg);
+            return;
+        }
+
+        FullHttpRequest request = (FullHttpRequest) msg;
+        Logger.info(String.format("channel read: %s %s", request.getMethod().toString(), request.getUri()));
+        try {
+            startStream(ctx, ServerHandler.getSerialQueueKey(request.getUri()));
+        } finally {
+            request.release();
+        }
+    }
+
+    private static boolean isEventStreamRequest(FullHttpRequest request) {
+        if (!HttpMethod.GET.equals(request.getMethod())) {
+            return false;
+        }
+        String uri = request.getUri();
+        int qPos = uri.indexOf('?');
+        String path = qPos == -1 ? uri : uri.substring(0, qPos);
+        String sessionId = ServerHandler.getSerialQueueKey(path);
+        return sessionId != null && path.equals(String.format("/session/%s%s", sessionId, EVENTS_PATH_SUFFIX));
+    }
+
+    private void startStream(ChannelHandlerContext ctx, @Nullable String sessionId) {
+        Session session = AppiumUIA2Driver.getInstance().getSession();
+        if (session == null || !Objects.equals(sessionId, session.getSessionId())) {
+            FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, OK);
+            NettyHttpResponse httpResponse = new NettyHttpResponse(response);
+            new AppiumResponse(sessionId, new NoSuchDriverException(
+                    String.format("The session identified by %s is not known", sessionId)))
+                    .renderTo(httpResponse);
+            ctx.writeAndFlush(response);
+            return;
+        }
+
+        HttpResponse head = new DefaultHttpResponse(HTTP_1_1, OK);
+        head.headers().set(CONTENT_TYPE, EVENT_STREAM_MIME_TYPE);
+        head.headers().set(CACHE_CONTROL, "no-store");
+        head.headers().set(CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
+        HttpHeaders.setTransferEncodingChunked(head);
+        // The client does not send anything once the stream is open,
+        // so the connection must not be dropped as idle
+        if (ctx.pipeline().get(ServerInitializer.IDLE_STATE_HANDLER) != null) {
+            ctx.pipeline().remove(ServerInitializer.IDLE_STATE_HANDLER);
+        }
+        ctx.writeAndFlush(head);
+
+        final EventStream stream = new EventStream(ctx.channel());
+        UiEventBroadcaster.getInstance().subscribe(stream);
+        final ScheduledFuture<?> heartbeat = ctx.executor().scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                stream.write(": heartbeat\n\n");
+            }
+        }, HEARTBEAT_INTERVAL_SEC, HEARTBEAT_INTERVAL_SEC, TimeUnit.SECONDS);
+        ctx.channel().closeFuture().addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) {
+                UiEventBroadcaster.getInstance().unsubscribe(stream);
+                heartbeat.cancel(false);
+                Logger.info("The UI events stream has been closed");
+            }
+        });
+        Logger.info("The UI events stream has been opened");
+    }
+
+    private static class EventStream implements UiEventBroadcaster.Subscriber {
+        private final Channel channel;
+        private final AtomicLong lastEventId = new AtomicLong();
+        private final AtomicInteger droppedEvents = new AtomicInteger();
+
+        EventStream(Channel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void onUiEvent(String type, String json) {
+            if (!channel.isWritable()) {
+                // Slow clients must not make the server buffer events indefinitely
+                droppedEvents.incrementAndGet();
+                return;
+            }
+            int dropped = droppedEvents.getAndSet(0);
+            if (dropped > 0) {
+                write(format("overflow", String.format("{\"dropped\":%s}", dropped)));
+            }
+            write(format(type, json));
+        }
+
+        private String format(String type, String data) {
+            return String.format("id: %s\nevent: %s\ndata: %s\n\n", lastEventId.incrementAndGet(), type, data);
+        }
+
+        void write(String message) {
+            if (!channel.isActive()) {
+                return;
+            }
+            byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+            ByteBuf content = channel.alloc().buffer(bytes.length);
+            content.writeBytes(bytes);
+            channel.writeAndFlush(new DefaultHttpContent(content));
+        }
+    }
+}
@@ -16,23 +16,51 @@
 
 package io.appium.uiautomator2.http;
 
+import android.os.Debug;
+
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import io.appium.uiautomator2.server.ServerConfig;
+import io.appium.uiautomator2.server.metrics.ServerMetrics;
+import io.appium.uiautomator2.utils.Logger;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.internal.PlatformDependent;
 
 public class HttpServer {
+    private static final int POOL_PAGE_SIZE = 8192;
+    // Chunk size is POOL_PAGE_SIZE << POOL_MAX_ORDER
+    private static final int POOL_MAX_ORDER = 9;
+
     private final int port;
+    @Nullable
+    private final String localSocketName;
     private final List<IHttpServlet> handlers = new ArrayList<>();
     private Thread serverThread;
 
     public HttpServer(int port) {
+        this(port, null);
+    }
+
+    /**
+     * @param port the TCP port to listen on
+     * @param localSocketName the name of the local abstract socket to additionally
+     *                        listen on or null if only TCP connections should be accepted
+     */
+    public HttpServer(int port, @Nullable String localSocketName) {
         this.port = port;
+        this.localSocketName = localSocketName;
     }
 
     public void addHandler(IHttpServlet handler) {
@@ -44,10 +72,21 @@ public class HttpServer {
             throw new IllegalStateException("Server is already running");
         }
         serverThread = new Thread() {
+            @SuppressWarnings("deprecation")
             @Override
             public void run() {
                 EventLoopGroup bossGroup = new NioEventLoopGroup(1);
-                EventLoopGroup workerGroup = new NioEventLoopGroup();
+                EventLoopGroup workerGroup = new NioEventLoopGroup(ServerConfig.getWorkerThreads());
+                ByteBufAllocator allocator = createAllocator();
+                CommandExecutor commandExecutor = new CommandExecutor(
+                        ServerConfig.getCommandExecutorThreads(),
+                        ServerConfig.getCommandQueueCapacity());
+                ServerMetrics.getInstance().setCommandExecutor(commandExecutor);
+                if (ServerConfig.isAllocationTrackingEnabled()) {
+                    Debug.startAllocCounting();
+                }
+                ServerInitializer serverInitializer = new ServerInitializer(handlers, commandExecutor);
+                LocalSocketTransport localSocketTransport = null;
                 try {
                     ServerBootstrap bootstrap = new ServerBootstrap();
                     bootstrap.group(bossGroup, workerGroup)
@@ -56,20 +95,51 @@ public class HttpServer {
                             .option(ChannelOption.SO_REUSEADDR, true)
                             .option(ChannelOption.SO_KEEPALIVE, true)
                             .option(ChannelOption.TCP_NODELAY, true)
-                            .childHandler(new ServerInitializer(handlers));
+                            .option(ChannelOption.ALLOCATOR, allocator)
+                            .childOption(ChannelOption.ALLOCATOR, allocator)
+                            .childHandler(serverInitializer);
 
                     Channel ch = bootstrap.bind(port).sync().channel();
+                    if (localSocketName != null) {
+                        localSocketTransport = new LocalSocketTransport(localSocketName, serverInitializer, allocator);
+                        try {
+                            localSocketTransport.start();
+                        } catch (IOException e) {
+                            Logger.error(String.format("Cannot listen on the local abstract socket '%s'",
+                                    localSocketName), e);
+                        }
+                    }
                     ch.closeFuture().sync();
                 } catch (InterruptedException ignored) {
                 } finally {
+                    if (localSocketTransport != null) {
+                        localSocketTransport.stop();
+                    }
                     bossGroup.shutdownGracefully();
                     workerGroup.shutdownGracefully();
+                    commandExecutor.shutdown();
+                    ServerMetrics.getInstance().setCommandExecutor(null);
+                    if (ServerConfig.isAllocationTrackingEnabled()) {
+                        Debug.stopAllocCounting();
+                    }
                 }
             }
         };
         serverThread.start();
     }
 
+    private static ByteBufAllocator createAllocator() {
+        if (!ServerConfig.isPooledAllocatorEnabled()) {
+            return UnpooledByteBufAllocator.DEFAULT;
+        }
+        // The default allocator reserves 16 MiB chunks for twice as many arenas as there are cores,
+        // which is too much for small devices. One arena per event loop with 4 MiB chunks
+        // is enough for the traffic of a single client.
+        int arenas = ServerConfig.getWorkerThreads();
+        return new PooledByteBufAllocator(PlatformDependent.directBufferPreferred(),
+                arenas, arenas, POOL_PAGE_SIZE, POOL_MAX_ORDER);
+    }
+
     public void stop() {
         if (serverThread == null) {
             return;
@@ -82,4 +152,9 @@ public class HttpServer {
     public int getPort() {
         return port;
     }
+
+    @Nullable
+    public String getLocalSocketName() {
+        return localSocketName;
+    }
 }
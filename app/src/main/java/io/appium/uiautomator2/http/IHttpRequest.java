@@ -16,6 +16,7 @@
 
 package io.appium.uiautomator2.http;
 
+import java.io.InputStream;
 import java.util.Map;
 
 public interface IHttpRequest {
@@ -34,6 +35,12 @@ public interface IHttpRequest {
      */
     String body();
 
+    /**
+     * Returns the full request body as a stream of bytes without copying it.
+     * Each call returns a new independent stream.
+     */
+    InputStream bodyStream();
+
     /**
      * Gets the value of a given header.
      */
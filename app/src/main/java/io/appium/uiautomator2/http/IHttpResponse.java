@@ -16,6 +16,7 @@
 
 package io.appium.uiautomator2.http;
 
+import java.io.OutputStream;
 import java.nio.charset.Charset;
 
 public interface IHttpResponse {
@@ -30,10 +31,40 @@ public interface IHttpResponse {
 
     IHttpResponse setEncoding(Charset charset);
 
+    /**
+     * Sets the response header value replacing the previous one if it exists.
+     * Headers must be set before the response switches to the streaming mode.
+     */
+    IHttpResponse setHeader(String name, String value);
+
+    /**
+     * Returns the stream to write the response content to directly,
+     * without preparing it as a separate string or byte array first.
+     * The content length is set automatically.
+     */
+    OutputStream getContentStream();
+
     IHttpResponse sendRedirect(String to);
 
     IHttpResponse sendTemporaryRedirect(String to);
 
+    /**
+     * Switches the response to the chunked transfer mode. The status line and headers
+     * are sent immediately and everything written to the returned stream is
+     * delivered to the client in chunks. The stream must be closed once the content is complete.
+     *
+     * @return the stream to write the response body to
+     * @throws IllegalStateException if the response does not support streaming
+     */
+    OutputStream startStreaming();
+
+    boolean isStreaming();
+
+    /**
+     * Drops the streamed response if its content could not be completed.
+     */
+    void abortStreaming();
+
     void end();
 
     boolean isClosed();
@@ -0,0 +1,334 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.http;
+
+import android.net.LocalServerSocket;
+import android.net.LocalSocket;
+import android.net.LocalSocketAddress;
+
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketAddress;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.appium.uiautomator2.utils.Logger;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalEventLoopGroup;
+import io.netty.channel.local.LocalServerChannel;
+
+/**
+ * Accepts connections on a local abstract socket, which can be forwarded by
+ * adb forward tcp:PORT localabstract:NAME, so the traffic bypasses the device TCP stack.
+ *
+ * Netty has no transport for Android local sockets, so every accepted socket is paired
+ * with an in-process Netty local channel, which is served by the same pipeline as TCP connections.
+ * Bytes received from the socket are pumped into the channel by a dedicated thread
+ * and everything the pipeline writes is copied back to the socket by another one,
+ * so a slow client never blocks the event loop.
+ */
+public class LocalSocketTransport {
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+    // The served channel is reported as not writable while more bytes are waiting for the socket
+    private static final int WRITE_QUEUE_HIGH_WATER_MARK = 64 * 1024;
+    private static final int WRITE_QUEUE_LOW_WATER_MARK = 32 * 1024;
+    // Netty reserves the index 0 for the outbound buffer size
+    private static final int SOCKET_WRITABILITY_INDEX = 1;
+    // Marks the end of the stream in the write queue
+    private static final ByteBuf END_OF_STREAM = Unpooled.buffer(0);
+
+    private final String socketName;
+    private final ChannelHandler channelInitializer;
+    private final ByteBufAllocator allocator;
+    private final LocalAddress localAddress;
+    // Server side channels by the addresses of their bridge channels
+    private final Map<SocketAddress, Channel> servedChannels = new ConcurrentHashMap<>();
+    private EventLoopGroup group;
+    private LocalServerSocket serverSocket;
+    private Thread acceptThread;
+    private volatile boolean isStopped;
+
+    public LocalSocketTransport(String socketName, ChannelHandler channelInitializer, ByteBufAllocator allocator) {
+        this.socketName = socketName;
+        this.channelInitializer = channelInitializer;
+        this.allocator = allocator;
+        this.localAddress = new LocalAddress("appium-" + socketName);
+    }
+
+    public void start() throws IOException, InterruptedException {
+        group = new LocalEventLoopGroup();
+        new ServerBootstrap()
+                .group(group)
+                .channel(LocalServerChannel.class)
+                .childOption(ChannelOption.ALLOCATOR, allocator)
+                .childHandler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(final Channel ch) {
+                        final SocketAddress bridgeAddress = ch.remoteAddress();
+                        servedChannels.put(bridgeAddress, ch);
+                        ch.closeFuture().addListener(new ChannelFutureListener() {
+                            @Override
+                            public void operationComplete(ChannelFuture future) {
+                                servedChannels.remove(bridgeAddress);
+                            }
+                        });
+                        ch.pipeline().addLast(channelInitializer);
+                    }
+                })
+                .bind(localAddress)
+                .sync();
+        serverSocket = new LocalServerSocket(socketName);
+        acceptThread = new Thread("appium-local-socket-accept") {
+            @Override
+            public void run() {
+                acceptConnections();
+            }
+        };
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+        Logger.info(String.format("Listening on the local abstract socket '%s'", socketName));
+    }
+
+    private void acceptConnections() {
+        while (!isStopped) {
+            final LocalSocket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (!isStopped) {
+                    Logger.error("Cannot accept a local socket connection", e);
+                }
+                return;
+            }
+            if (isStopped) {
+                closeQuietly(socket);
+                return;
+            }
+            try {
+                connect(socket);
+            } catch (Exception e) {
+                Logger.error("Cannot serve the local socket connection", e);
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    private void connect(final LocalSocket socket) throws IOException, InterruptedException {
+        final SocketWriter socketWriter = new SocketWriter(socket.getOutputStream());
+        final Channel channel = new Bootstrap()
+                .group(group)
+                .channel(LocalChannel.class)
+                .option(ChannelOption.ALLOCATOR, allocator)
+                .handler(socketWriter)
+                .connect(localAddress)
+                .sync()
+                .channel();
+        socketWriter.bridgeChannel = channel;
+        channel.closeFuture().addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) {
+                closeQuietly(socket);
+            }
+        });
+
+        Thread writerThread = new Thread(socketWriter, "appium-local-socket-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        Thread pumpThread = new Thread("appium-local-socket-reader") {
+            @Override
+            public void run() {
+                pump(socket, channel);
+            }
+        };
+        pumpThread.setDaemon(true);
+        pumpThread.start();
+    }
+
+    private void pump(LocalSocket socket, Channel channel) {
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        try (InputStream inputStream = socket.getInputStream()) {
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                ByteBuf buf = channel.alloc().buffer(count);
+                buf.writeBytes(buffer, 0, count);
+                channel.writeAndFlush(buf);
+            }
+        } catch (IOException e) {
+            if (channel.isActive()) {
+                Logger.debug("The local socket connection has been interrupted", e);
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    public void stop() {
+        isStopped = true;
+        if (serverSocket != null) {
+            // Closing the server socket does not interrupt the blocking accept call,
+            // so it has to be woken up by a connection
+            try (LocalSocket wakeUpSocket = new LocalSocket()) {
+                wakeUpSocket.connect(new LocalSocketAddress(socketName));
+            } catch (IOException ignored) {
+                // the accept thread has already exited
+            }
+            try {
+                serverSocket.close();
+            } catch (IOException e) {
+                Logger.warn("Cannot close the local server socket", e);
+            }
+            serverSocket = null;
+        }
+        if (group != null) {
+            group.shutdownGracefully();
+            group = null;
+        }
+    }
+
+    /**
+     * Queues everything the pipeline writes and copies it to the socket on a dedicated thread.
+     * While too many bytes are queued the served channel is reported as not writable,
+     * so streaming responses wait for the client like they do for TCP connections.
+     */
+    private class SocketWriter extends ChannelInboundHandlerAdapter implements Runnable {
+        private final OutputStream outputStream;
+        private final BlockingQueue<ByteBuf> queue = new LinkedBlockingQueue<>();
+        private final AtomicLong queuedBytes = new AtomicLong();
+        private final AtomicBoolean isServedChannelSuspended = new AtomicBoolean();
+        private volatile Channel bridgeChannel;
+        private volatile boolean isFinished;
+
+        SocketWriter(OutputStream outputStream) {
+            this.outputStream = outputStream;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ByteBuf buf = (ByteBuf) msg;
+            if (queuedBytes.addAndGet(buf.readableBytes()) > WRITE_QUEUE_HIGH_WATER_MARK
+                    && isServedChannelSuspended.compareAndSet(false, true)) {
+                setServedChannelWritable(ctx.channel(), false);
+            }
+            queue.add(buf);
+            if (isFinished) {
+                releaseQueued();
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            queue.add(END_OF_STREAM);
+            ctx.fireChannelInactive();
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            Logger.error("The local socket bridge has failed", cause);
+            ctx.close();
+        }
+
+        @Override
+        public void run() {
+            try {
+                ByteBuf buf;
+                while ((buf = queue.take()) != END_OF_STREAM) {
+                    int size = buf.readableBytes();
+                    try {
+                        buf.readBytes(outputStream, size);
+                    } finally {
+                        buf.release();
+                    }
+                    if (queue.isEmpty()) {
+                        outputStream.flush();
+                    }
+                    if (queuedBytes.addAndGet(-size) < WRITE_QUEUE_LOW_WATER_MARK
+                            && isServedChannelSuspended.compareAndSet(true, false)) {
+                        setServedChannelWritable(bridgeChannel, true);
+                    }
+                }
+            } catch (IOException e) {
+                Logger.debug("Cannot write to the local socket", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                isFinished = true;
+                Channel channel = bridgeChannel;
+                if (channel != null) {
+                    channel.close();
+                }
+                releaseQueued();
+            }
+        }
+
+        private void releaseQueued() {
+            ByteBuf buf;
+            while ((buf = queue.poll()) != null) {
+                buf.release();
+            }
+        }
+
+        private void setServedChannelWritable(@Nullable Channel bridgeChannel, final boolean isWritable) {
+            if (bridgeChannel == null) {
+                return;
+            }
+            final Channel servedChannel = servedChannels.get(bridgeChannel.localAddress());
+            if (servedChannel == null) {
+                return;
+            }
+            servedChannel.eventLoop().execute(new Runnable() {
+                @Override
+                public void run() {
+                    ChannelOutboundBuffer outboundBuffer = servedChannel.unsafe().outboundBuffer();
+                    if (outboundBuffer != null) {
+                        outboundBuffer.setUserDefinedWritability(SOCKET_WRITABILITY_INDEX, isWritable);
+                    }
+                }
+            });
+        }
+    }
+
+    private static void closeQuietly(LocalSocket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // ignore
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.appium.uiautomator2.http;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * Keeps responses to pipelined HTTP/1.1 requests in the order the requests have been
+ * received over the connection. Requests of the same connection might be executed in
+ * different queues (e.g. a session command followed by /status), so a response which
+ * is ready earlier than its predecessors is held back until all of them have been sent.
+ */
+class ResponseSequencer {
+    private final Map<Long, FullHttpResponse> pendingResponses = new TreeMap<>();
+    private long nextSequence;
+    private long currentSequence;
+
+    /**
+     * Must be called in the order the requests are received.
+     *
+     * @return the sequence number of the response to the received request
+     */
+    synchronized long next() {
+        return nextSequence++;
+    }
+
+    /**
+     * @param sequence the response sequence number
+     * @return true if all preceding responses have been already sent,
+     * so the response might be written to the channel directly, e.g. streamed in chunks
+     */
+    synchronized boolean isCurrent(long sequence) {
+        return sequence == currentSequence;
+    }
+
+    /**
+     * Sends the response as soon as all preceding responses have been sent.
+     *
+     * @param ctx the channel context
+     * @param sequence the response sequence number
+     * @param response the response to send
+     */
+    synchronized void write(ChannelHandlerContext ctx, long sequence, FullHttpResponse response) {
+        if (sequence != currentSequence) {
+            if (ctx.channel().isActive()) {
+                pendingResponses.put(sequence, response);
+            } else {
+                ReferenceCountUtil.release(response);
+            }
+            return;
+        }
+        send(ctx, response);
+        complete(ctx, sequence);
+    }
+
+    /**
+     * Marks the response as sent if it has been written to the channel directly
+     * or dropped, so the following responses are not blocked by it.
+     *
+     * @param ctx the channel context
+     * @param sequence the response sequence number
+     */
+    synchronized void complete(ChannelHandlerContext ctx, long sequence) {
+        if (sequence != currentSequence) {
+            // The response has been dropped before its predecessors were sent.
+            // An empty slot is enough to skip it later
+            pendingResponses.put(sequence, null);
+            return;
+        }
+        currentSequence++;
+        while (pendingResponses.containsKey(currentSequence)) {
+            FullHttpResponse response = pendingResponses.remove(currentSequence);
+            if (response != null) {
+                send(ctx, response);
+            }
+            currentSequence++;
+        }
+    }
+
+    /**
+     * Releases the responses, which are not going to be sent, because the channel has been closed.
+     */
+    synchronized void release() {
+        for (FullHttpResponse response : pendingResponses.values()) {
+            ReferenceCountUtil.release(response);
+        }
+        pendingResponses.clear();
+    }
+
+    private static void send(ChannelHandlerContext ctx, FullHttpResponse response) {
+        boolean keepAlive = HttpHeaders.isKeepAlive(response);
+        ChannelFuture future = ctx.writeAndFlush(response);
+        if (!keepAlive) {
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+}
@@ -16,21 +16,29 @@
 
 package io.appium.uiautomator2.http;
 
+import android.os.Debug;
+
+import androidx.annotation.Nullable;
+
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 import io.appium.uiautomator2.common.exceptions.UnknownCommandException;
 import io.appium.uiautomator2.http.impl.NettyHttpRequest;
 import io.appium.uiautomator2.http.impl.NettyHttpResponse;
+import io.appium.uiautomator2.http.impl.ResponseCompressor;
 import io.appium.uiautomator2.server.AppiumServlet;
+import io.appium.uiautomator2.server.ServerConfig;
+import io.appium.uiautomator2.server.metrics.ServerMetrics;
 import io.appium.uiautomator2.utils.Logger;
-import io.netty.channel.ChannelFuture;
-import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.util.ReferenceCountUtil;
 
 import static io.netty.handler.codec.http.HttpHeaders.Names.CACHE_CONTROL;
 import static io.netty.handler.codec.http.HttpHeaders.Names.CONNECTION;
@@ -39,49 +47,174 @@ import static io.netty.handler.codec.http.HttpResponseStatus.OK;
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
 public class ServerHandler extends ChannelInboundHandlerAdapter {
+    private static final String SESSION_PATH_SECTION = "session";
+    private static final String CHANNEL_QUEUE_KEY_PREFIX = "channel:";
+
     private final List<IHttpServlet> httpHandlers;
+    private final CommandExecutor commandExecutor;
+    // Handler instances are created per channel
+    private final ResponseSequencer responseSequencer = new ResponseSequencer();
 
-    public ServerHandler(List<IHttpServlet> handlers) {
+    public ServerHandler(List<IHttpServlet> handlers, CommandExecutor commandExecutor) {
         this.httpHandlers = handlers;
+        this.commandExecutor = commandExecutor;
     }
 
     @Override
-    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+    public void channelRead(final ChannelHandlerContext ctx, Object msg) throws Exception {
         if (!(msg instanceof FullHttpRequest)) {
+            super.channelRead(ctx, msg);
             return;
         }
 
-        FullHttpRequest request = (FullHttpRequest) msg;
-        FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, OK);
-        boolean keepAlive = HttpHeaders.isKeepAlive(request);
-        response.headers().set(CONNECTION, keepAlive
-                ? HttpHeaders.Values.KEEP_ALIVE
-                : HttpHeaders.Values.CLOSE);
-        response.headers().set(PRAGMA, "no-cache");
-        response.headers().set(CACHE_CONTROL, "no-store");
-
+        final FullHttpRequest request = (FullHttpRequest) msg;
         Logger.info(String.format("channel read: %s %s", request.getMethod().toString(), request.getUri()));
+        final long sequence = responseSequencer.next();
 
+        // Handlers may block for a long time, so they must never occupy the event loop
+        try {
+            commandExecutor.execute(getSerialQueueKey(ctx.channel(), request.getUri()), new Runnable() {
+                @Override
+                public void run() {
+                    AllocationCounter allocationCounter = ServerConfig.isAllocationTrackingEnabled()
+                            ? new AllocationCounter()
+                            : null;
+                    try {
+                        dispatch(ctx, request, sequence);
+                    } catch (Throwable e) {
+                        Logger.error("exception caught", e);
+                        ctx.close();
+                        responseSequencer.complete(ctx, sequence);
+                    } finally {
+                        ReferenceCountUtil.release(request);
+                        if (allocationCounter != null) {
+                            allocationCounter.record();
+                        }
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            try {
+                renderError(ctx, request, sequence, e);
+            } finally {
+                ReferenceCountUtil.release(request);
+            }
+        }
+    }
+
+    private void dispatch(ChannelHandlerContext ctx, FullHttpRequest request, long sequence) throws Exception {
+        FullHttpResponse response = createResponse(ctx, request);
         IHttpRequest httpRequest = new NettyHttpRequest(request);
-        IHttpResponse httpResponse = new NettyHttpResponse(response);
-        for (IHttpServlet handler : httpHandlers) {
-            handler.handleHttpRequest(httpRequest, httpResponse);
-            if (httpResponse.isClosed()) {
+        // Only the response all preceding responses of the channel have been sent for
+        // might be streamed. Others are buffered until it is their turn
+        NettyHttpResponse httpResponse = new NettyHttpResponse(response,
+                responseSequencer.isCurrent(sequence) ? ctx : null, ResponseCompressor.negotiate(
+                request.headers().get(HttpHeaders.Names.ACCEPT_ENCODING), ServerConfig.getCompressionThreshold()));
+        try {
+            handle(httpHandlers, httpRequest, httpResponse);
+        } catch (Exception e) {
+            response.release();
+            throw e;
+        }
+        if (httpResponse.isStreaming()) {
+            // The content has been already sent in chunks
+            response.release();
+            responseSequencer.complete(ctx, sequence);
+            return;
+        }
+        httpResponse.compress();
+        responseSequencer.write(ctx, sequence, response);
+    }
+
+    /**
+     * Passes the request to the servlets until one of them completes the response.
+     */
+    static void handle(List<IHttpServlet> servlets, IHttpRequest request, IHttpResponse response)
+            throws Exception {
+        for (IHttpServlet servlet : servlets) {
+            servlet.handleHttpRequest(request, response);
+            if (response.isClosed()) {
                 break;
             }
         }
-        if (!httpResponse.isClosed()) {
-            Object sessionId = httpRequest.data().get(AppiumServlet.SESSION_ID_KEY);
+        if (!response.isClosed()) {
+            Object sessionId = request.data().get(AppiumServlet.SESSION_ID_KEY);
             new AppiumResponse(sessionId == null ? null : (String) sessionId, new UnknownCommandException())
-                    .renderTo(httpResponse);
-            httpResponse.end();
+                    .renderTo(response);
+            response.end();
         }
+    }
 
-        ChannelFuture future = ctx.write(response);
-        if (!keepAlive) {
-            future.addListener(ChannelFutureListener.CLOSE);
+    private void renderError(ChannelHandlerContext ctx, FullHttpRequest request, long sequence,
+                             Throwable error) {
+        FullHttpResponse response = createResponse(ctx, request);
+        IHttpResponse httpResponse = new NettyHttpResponse(response);
+        new AppiumResponse(getSerialQueueKey(request.getUri()), error).renderTo(httpResponse);
+        httpResponse.end();
+        responseSequencer.write(ctx, sequence, response);
+    }
+
+    private static FullHttpResponse createResponse(ChannelHandlerContext ctx, FullHttpRequest request) {
+        // The content buffer is released by Netty once the response has been written
+        FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, OK, ctx.alloc().buffer());
+        response.headers().set(CONNECTION, HttpHeaders.isKeepAlive(request)
+                ? HttpHeaders.Values.KEEP_ALIVE
+                : HttpHeaders.Values.CLOSE);
+        response.headers().set(PRAGMA, "no-cache");
+        response.headers().set(CACHE_CONTROL, "no-store");
+        return response;
+    }
+
+    /**
+     * Commands, which are not bound to any session, are still executed one after another
+     * if they have been received over the same connection, so they do not compete for worker
+     * threads with each other. The order of responses is kept by {@link ResponseSequencer}.
+     * Channels with colliding hash codes only share the queue, which does not break the order.
+     *
+     * @param channel the channel the request has been received from
+     * @param uri the request URI
+     * @return the session identifier extracted from the URI or the channel key
+     */
+    static String getSerialQueueKey(Channel channel, @Nullable String uri) {
+        String sessionId = getSerialQueueKey(uri);
+        return sessionId == null
+                ? CHANNEL_QUEUE_KEY_PREFIX + Integer.toHexString(System.identityHashCode(channel))
+                : sessionId;
+    }
+
+    /**
+     * Commands addressed to the same session are executed in the order they have been received.
+     *
+     * @param uri the request URI
+     * @return the session identifier extracted from the URI or null if the command
+     * is not bound to any session
+     */
+    @Nullable
+    static String getSerialQueueKey(@Nullable String uri) {
+        if (uri == null) {
+            return null;
+        }
+        int qPos = uri.indexOf('?');
+        String path = qPos == -1 ? uri : uri.substring(0, qPos);
+        String[] sections = path.split("/");
+        return sections.length > 2 && SESSION_PATH_SECTION.equals(sections[1]) && !sections[2].isEmpty()
+                ? sections[2]
+                : null;
+    }
+
+    /**
+     * Measures heap allocations made by the current thread, which are reported
+     * by the runtime if allocation counting has been started.
+     */
+    @SuppressWarnings("deprecation")
+    private static class AllocationCounter {
+        private final long startBytes = Debug.getThreadAllocSize();
+        private final long startObjects = Debug.getThreadAllocCount();
+
+        void record() {
+            ServerMetrics.getInstance().getAllocationMetrics().recordRequest(
+                    Debug.getThreadAllocSize() - startBytes, Debug.getThreadAllocCount() - startObjects);
         }
-        super.channelRead(ctx, msg);
     }
 
     @Override
@@ -90,6 +223,12 @@ public class ServerHandler extends ChannelInboundHandlerAdapter {
         ctx.fireChannelReadComplete();
     }
 
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        responseSequencer.release();
+        super.channelInactive(ctx);
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
         Logger.error("exception caught", cause);
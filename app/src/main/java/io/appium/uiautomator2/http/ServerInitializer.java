@@ -18,25 +18,40 @@ package io.appium.uiautomator2.http;
 
 import java.util.List;
 
+import io.appium.uiautomator2.server.ServerConfig;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
-import io.netty.channel.socket.SocketChannel;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.websocketx.WebSocketFrameAggregator;
+import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
+
+public class ServerInitializer extends ChannelInitializer<Channel> {
+    // Requests to this path are upgraded to the WebSocket command channel
+    public static final String WEBSOCKET_PATH = "/ws";
+    static final String IDLE_STATE_HANDLER = "idleStateHandler";
 
-public class ServerInitializer extends ChannelInitializer<SocketChannel> {
     private final List<io.appium.uiautomator2.http.IHttpServlet> handlers;
+    private final CommandExecutor commandExecutor;
 
-    public ServerInitializer(List<io.appium.uiautomator2.http.IHttpServlet> handlers) {
+    public ServerInitializer(List<io.appium.uiautomator2.http.IHttpServlet> handlers,
+                             CommandExecutor commandExecutor) {
         this.handlers = handlers;
+        this.commandExecutor = commandExecutor;
     }
 
     @Override
-    public void initChannel(SocketChannel ch) {
+    public void initChannel(Channel ch) {
         ChannelPipeline pipeline = ch.pipeline();
-        pipeline.addLast("idleStateHandler", new KeepAliveStateHandler());
+        pipeline.addLast(IDLE_STATE_HANDLER, new KeepAliveStateHandler());
         pipeline.addLast("codec", new HttpServerCodec());
-        pipeline.addLast("aggregator", new HttpObjectAggregator(65536));
-        pipeline.addLast("io/appium/uiautomator2/handler", new io.appium.uiautomator2.http.ServerHandler(handlers));
+        pipeline.addLast("aggregator", new HttpObjectAggregator(ServerConfig.getMaxRequestBodySize()));
+        pipeline.addLast("eventStreamHandler", new EventStreamHandler());
+        pipeline.addLast("webSocketProtocol", new WebSocketServerProtocolHandler(
+                WEBSOCKET_PATH, null, true, ServerConfig.getMaxRequestBodySize()));
+        pipeline.addLast("webSocketAggregator", new WebSocketFrameAggregator(ServerConfig.getMaxRequestBodySize()));
+        pipeline.addLast("webSocketHandler", new WebSocketCommandHandler(handlers, commandExecutor));
+        pipeline.addLast("io/appium/uiautomator2/handler", new io.appium.uiautomator2.http.ServerHandler(handlers, commandExecutor));
     }
 }
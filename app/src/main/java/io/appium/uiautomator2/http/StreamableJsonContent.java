@@ -0,0 +1,33 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A large JSON response value, which is produced incrementally while
+ * being sent to the client instead of being built in memory first.
+ */
+public interface StreamableJsonContent extends StreamableContent {
+    /**
+     * Writes a single UTF-8 encoded JSON value to the given stream. The value
+     * is embedded into the response as is. The stream must not be closed.
+     */
+    @Override
+    void writeTo(OutputStream outputStream) throws IOException;
+}
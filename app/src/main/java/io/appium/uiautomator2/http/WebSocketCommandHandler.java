@@ -0,0 +1,167 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.http;
+
+import androidx.annotation.Nullable;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
+
+import io.appium.uiautomator2.common.exceptions.InvalidArgumentException;
+import io.appium.uiautomator2.http.impl.LocalHttpRequest;
+import io.appium.uiautomator2.http.impl.LocalHttpResponse;
+import io.appium.uiautomator2.model.api.WebSocketCommandModel;
+import io.appium.uiautomator2.utils.Logger;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
+
+import static io.appium.uiautomator2.utils.ModelUtils.toJsonString;
+import static io.appium.uiautomator2.utils.ModelUtils.toModel;
+
+/**
+ * Executes commands received as WebSocket text frames.
+ *
+ * Each frame is a JSON object like
+ * {"id": 1, "method": "POST", "path": "/session/<id>/element", "body": {...}}.
+ * Commands are dispatched to the same servlets as HTTP requests and every one
+ * of them gets answered with a separate frame as soon as it is finished:
+ * {"id": 1, "status": 200, "response": {"sessionId": "<id>", "value": ...}}.
+ * Responses, which are not JSON, like metrics or the binary page source, are put into
+ * a string: {"id": 1, "status": 200, "contentType": "...", "response": "..."}.
+ * Binary content is encoded to base64, which is marked by the "encoding": "base64" field.
+ * Replies may arrive in a different order than commands, so clients must match them
+ * by the correlation id. Commands addressed to the same session are still
+ * executed in the order they have been received.
+ */
+public class WebSocketCommandHandler extends ChannelInboundHandlerAdapter {
+    private final List<IHttpServlet> httpHandlers;
+    private final CommandExecutor commandExecutor;
+
+    public WebSocketCommandHandler(List<IHttpServlet> handlers, CommandExecutor commandExecutor) {
+        this.httpHandlers = handlers;
+        this.commandExecutor = commandExecutor;
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt == WebSocketServerProtocolHandler.ServerHandshakeStateEvent.HANDSHAKE_COMPLETE) {
+            // Clients may keep the command channel open without sending anything,
+            // so the upgraded connection must not be dropped as idle
+            if (ctx.pipeline().get(ServerInitializer.IDLE_STATE_HANDLER) != null) {
+                ctx.pipeline().remove(ServerInitializer.IDLE_STATE_HANDLER);
+            }
+        }
+        super.userEventTriggered(ctx, evt);
+    }
+
+    @Override
+    public void channelRead(final ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (!(msg instanceof TextWebSocketFrame)) {
+            super.channelRead(ctx, msg);
+            return;
+        }
+
+        final WebSocketCommandModel command;
+        try {
+            command = toModel(((TextWebSocketFrame) msg).text(), WebSocketCommandModel.class);
+        } catch (Exception e) {
+            Logger.error("Cannot parse the WebSocket command frame", e);
+            reply(ctx, null, new InvalidArgumentException(e));
+            return;
+        } finally {
+            ((TextWebSocketFrame) msg).release();
+        }
+
+        final String method = command.method.toUpperCase(Locale.ROOT);
+        Logger.info(String.format("websocket frame read: %s %s", method, command.path));
+        try {
+            commandExecutor.execute(ServerHandler.getSerialQueueKey(command.path), new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        dispatch(ctx, command, method);
+                    } catch (Throwable e) {
+                        Logger.error("exception caught", e);
+                        reply(ctx, command.id, e);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            reply(ctx, command.id, e);
+        }
+    }
+
+    private void dispatch(ChannelHandlerContext ctx, WebSocketCommandModel command, String method)
+            throws Exception {
+        String body = command.body == null || command.body.isJsonNull() ? null : toJsonString(command.body);
+        LocalHttpRequest request = new LocalHttpRequest(method, command.path, body);
+        LocalHttpResponse response = new LocalHttpResponse();
+        ServerHandler.handle(httpHandlers, request, response);
+        reply(ctx, command.id, response);
+    }
+
+    private static void reply(ChannelHandlerContext ctx, @Nullable JsonElement id, Throwable error) {
+        LocalHttpResponse response = new LocalHttpResponse();
+        new AppiumResponse(null, error).renderTo(response);
+        reply(ctx, id, response);
+    }
+
+    private static void reply(ChannelHandlerContext ctx, @Nullable JsonElement id, LocalHttpResponse response) {
+        String contentType = response.getContentType();
+        if (contentType != null && !contentType.startsWith(AppiumResponse.JSON_CONTENT_TYPE)) {
+            replyWithRawContent(ctx, id, response, contentType);
+            return;
+        }
+
+        byte[] head = String.format("{\"id\":%s,\"status\":%s,\"response\":",
+                id == null ? "null" : toJsonString(id), response.getStatus())
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] content = response.getContent();
+        // The rendered response is already a JSON document, so it gets embedded as is
+        ByteBuf frame = ctx.alloc().buffer(head.length + content.length + 1);
+        frame.writeBytes(head).writeBytes(content).writeByte('}');
+        ctx.writeAndFlush(new TextWebSocketFrame(frame));
+    }
+
+    private static void replyWithRawContent(ChannelHandlerContext ctx, @Nullable JsonElement id,
+                                            LocalHttpResponse response, String contentType) {
+        JsonObject frame = new JsonObject();
+        frame.add("id", id == null ? JsonNull.INSTANCE : id);
+        frame.addProperty("status", response.getStatus());
+        frame.addProperty("contentType", contentType);
+        if (!AppiumResponse.isTextContentType(contentType)) {
+            frame.addProperty("encoding", "base64");
+        }
+        frame.addProperty("response", AppiumResponse.toTextValue(response.getRawContent(), contentType));
+        ctx.writeAndFlush(new TextWebSocketFrame(toJsonString(frame)));
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+        Logger.error("exception caught", cause);
+        ctx.close();
+    }
+}
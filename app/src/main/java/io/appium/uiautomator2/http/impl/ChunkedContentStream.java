@@ -0,0 +1,144 @@
+package io.appium.uiautomator2.http.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.LastHttpContent;
+
+/**
+ * Sends everything written to it as HTTP chunks. Chunks are backed by buffers of the channel
+ * allocator, which are released by Netty as soon as they have been flushed to the socket.
+ */
+public class ChunkedContentStream extends OutputStream {
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final long WRITABILITY_CHECK_INTERVAL_MS = 10;
+
+    private final ChannelHandlerContext ctx;
+    private final boolean closeConnection;
+    private ByteBuf chunk;
+    private ChannelFuture lastWrite;
+    private long bytesWritten;
+    private boolean closed;
+
+    public ChunkedContentStream(ChannelHandlerContext ctx, boolean closeConnection) {
+        this.ctx = ctx;
+        this.closeConnection = closeConnection;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("The stream is already closed");
+        }
+        if (!ctx.channel().isActive()) {
+            throw new IOException("The client connection has been closed");
+        }
+    }
+
+    private ByteBuf getChunk() {
+        if (chunk == null) {
+            chunk = ctx.alloc().buffer(CHUNK_SIZE);
+        }
+        return chunk;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        getChunk().writeByte(b);
+        if (chunk.writerIndex() >= CHUNK_SIZE) {
+            sendChunk();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int count = Math.min(len, CHUNK_SIZE - getChunk().writerIndex());
+            chunk.writeBytes(b, off, count);
+            off += count;
+            len -= count;
+            if (chunk.writerIndex() >= CHUNK_SIZE) {
+                sendChunk();
+            }
+        }
+    }
+
+    private void sendChunk() {
+        if (chunk == null || !chunk.isReadable()) {
+            return;
+        }
+        bytesWritten += chunk.readableBytes();
+        lastWrite = ctx.writeAndFlush(new DefaultHttpContent(chunk));
+        chunk = null;
+        // Do not let the outbound buffer grow unbounded if the client reads slower than we write
+        if (!ctx.channel().isWritable()) {
+            lastWrite.awaitUninterruptibly();
+            awaitWritability();
+        }
+    }
+
+    /**
+     * The channel might stay not writable after the last write has completed
+     * if the transport buffers the content on its own, like the local socket bridge does.
+     */
+    private void awaitWritability() {
+        Channel channel = ctx.channel();
+        while (!channel.isWritable() && channel.isActive()) {
+            try {
+                Thread.sleep(WRITABILITY_CHECK_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        sendChunk();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (ctx.channel().isActive()) {
+            sendChunk();
+            lastWrite = ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+            if (closeConnection) {
+                lastWrite.addListener(ChannelFutureListener.CLOSE);
+            }
+        }
+        if (chunk != null) {
+            chunk.release();
+            chunk = null;
+        }
+    }
+
+    /**
+     * Aborts the response. The connection is closed, so the client
+     * does not mistake the truncated content for a complete one.
+     */
+    public void abort() {
+        closed = true;
+        if (chunk != null) {
+            chunk.release();
+            chunk = null;
+        }
+        ctx.close();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten + (chunk == null ? 0 : chunk.readableBytes());
+    }
+}
@@ -0,0 +1,78 @@
+package io.appium.uiautomator2.http.impl;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Escapes UTF-8 encoded text written to it, so it could be embedded into
+ * a JSON string literal. Multi-byte sequences are passed through as is.
+ */
+public class JsonStringOutputStream extends FilterOutputStream {
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes();
+
+    public JsonStringOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        b &= 0xFF;
+        switch (b) {
+            case '"':
+            case '\\':
+                out.write('\\');
+                out.write(b);
+                break;
+            case '\n':
+                out.write('\\');
+                out.write('n');
+                break;
+            case '\r':
+                out.write('\\');
+                out.write('r');
+                break;
+            case '\t':
+                out.write('\\');
+                out.write('t');
+                break;
+            default:
+                if (b < 0x20) {
+                    out.write('\\');
+                    out.write('u');
+                    out.write('0');
+                    out.write('0');
+                    out.write(HEX_DIGITS[b >> 4]);
+                    out.write(HEX_DIGITS[b & 0xF]);
+                } else {
+                    out.write(b);
+                }
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        int start = off;
+        final int end = off + len;
+        for (int i = off; i < end; i++) {
+            int c = b[i] & 0xFF;
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            if (i > start) {
+                out.write(b, start, i - start);
+            }
+            write(c);
+            start = i + 1;
+        }
+        if (end > start) {
+            out.write(b, start, end - start);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        // The underlying stream is owned by the caller
+        flush();
+    }
+}
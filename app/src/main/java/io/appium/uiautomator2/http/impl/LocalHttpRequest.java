@@ -0,0 +1,64 @@
+package io.appium.uiautomator2.http.impl;
+
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.appium.uiautomator2.http.IHttpRequest;
+
+/**
+ * A request, which is created and dispatched inside the server process
+ * rather than received from the network.
+ */
+public class LocalHttpRequest implements IHttpRequest {
+    private final String method;
+    private final String uri;
+    private final byte[] body;
+    private final Map<String, String> headers = new HashMap<>();
+    private final Map<String, Object> data = new HashMap<>();
+
+    public LocalHttpRequest(String method, String uri, @Nullable String body) {
+        this.method = method;
+        this.uri = uri;
+        this.body = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String method() {
+        return method;
+    }
+
+    @Override
+    public String uri() {
+        return uri;
+    }
+
+    @Override
+    public String body() {
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public InputStream bodyStream() {
+        return new ByteArrayInputStream(body);
+    }
+
+    @Override
+    public String header(String name) {
+        return headers.get(name);
+    }
+
+    public LocalHttpRequest setHeader(String name, String value) {
+        headers.put(name, value);
+        return this;
+    }
+
+    @Override
+    public Map<String, Object> data() {
+        return data;
+    }
+}
@@ -0,0 +1,136 @@
+package io.appium.uiautomator2.http.impl;
+
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import io.appium.uiautomator2.http.IHttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+
+/**
+ * Collects the response of a request dispatched inside the server process.
+ * Streamed content is buffered as well, since it is delivered as a whole.
+ */
+public class LocalHttpResponse implements IHttpResponse {
+    private static final byte[] EMPTY_OBJECT = "{}".getBytes(StandardCharsets.UTF_8);
+
+    private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+    private int status = HttpResponseStatus.OK.code();
+    @Nullable
+    private String contentType;
+    private Charset charset = StandardCharsets.UTF_8;
+    private boolean streaming;
+    private boolean closed;
+
+    @Override
+    public IHttpResponse setStatus(int status) {
+        this.status = status;
+        return this;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    @Override
+    public IHttpResponse setContentType(String mimeType) {
+        this.contentType = mimeType;
+        return this;
+    }
+
+    /**
+     * @return the content type or null if it has not been set
+     */
+    @Nullable
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public IHttpResponse setHeader(String name, String value) {
+        return this;
+    }
+
+    @Override
+    public IHttpResponse setContent(byte[] data) {
+        content.reset();
+        content.write(data, 0, data.length);
+        return this;
+    }
+
+    @Override
+    public IHttpResponse setContent(String message) {
+        return setContent(message.getBytes(charset));
+    }
+
+    @Override
+    public IHttpResponse setEncoding(Charset charset) {
+        this.charset = charset;
+        return this;
+    }
+
+    @Override
+    public OutputStream getContentStream() {
+        content.reset();
+        return content;
+    }
+
+    /**
+     * @return the collected response body. It is a JSON document if the response
+     * has been rendered by {@link io.appium.uiautomator2.http.AppiumResponse}
+     * and its value is not {@link io.appium.uiautomator2.http.RawContent}.
+     */
+    public byte[] getContent() {
+        return content.size() == 0 ? EMPTY_OBJECT : content.toByteArray();
+    }
+
+    /**
+     * @return the collected response body as is
+     */
+    public byte[] getRawContent() {
+        return content.toByteArray();
+    }
+
+    @Override
+    public IHttpResponse sendRedirect(String to) {
+        return setStatus(HttpResponseStatus.MOVED_PERMANENTLY.code());
+    }
+
+    @Override
+    public IHttpResponse sendTemporaryRedirect(String to) {
+        return setStatus(HttpResponseStatus.FOUND.code());
+    }
+
+    @Override
+    public OutputStream startStreaming() {
+        if (!streaming) {
+            streaming = true;
+            content.reset();
+        }
+        return content;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    @Override
+    public void abortStreaming() {
+        content.reset();
+        status = HttpResponseStatus.INTERNAL_SERVER_ERROR.code();
+    }
+
+    @Override
+    public void end() {
+        closed = true;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+}
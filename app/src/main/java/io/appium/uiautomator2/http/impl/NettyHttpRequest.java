@@ -1,9 +1,11 @@
 package io.appium.uiautomator2.http.impl;
 
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
 
 import io.appium.uiautomator2.http.IHttpRequest;
+import io.netty.buffer.ByteBufInputStream;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.util.CharsetUtil;
 
@@ -31,6 +33,11 @@ public class NettyHttpRequest implements IHttpRequest {
         return request.content().toString(CharsetUtil.UTF_8);
     }
 
+    @Override
+    public InputStream bodyStream() {
+        return new ByteBufInputStream(request.content().duplicate());
+    }
+
     @Override
     public String header(String name) {
         return request.headers().get(name);
@@ -1,15 +1,30 @@
 package io.appium.uiautomator2.http.impl;
 
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
 
 import io.appium.uiautomator2.http.IHttpResponse;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultHttpResponse;
 import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.util.CharsetUtil;
 
 public class NettyHttpResponse implements IHttpResponse {
 
     private final FullHttpResponse response;
+    @Nullable
+    private final ChannelHandlerContext ctx;
+    @Nullable
+    private final ResponseCompressor compressor;
+    private ChunkedContentStream contentStream;
+    private OutputStream bodyStream;
     private static final String CONTENT_TYPE = "Content-Type";
     private static final String CONTENT_ENCODING = "Content-Encoding";
     private static final String CONTENT_LENGTH = "Content-Length";
@@ -19,7 +34,14 @@ public class NettyHttpResponse implements IHttpResponse {
 
 
     public NettyHttpResponse(FullHttpResponse response) {
+        this(response, null, null);
+    }
+
+    public NettyHttpResponse(FullHttpResponse response, @Nullable ChannelHandlerContext ctx,
+                             @Nullable ResponseCompressor compressor) {
         this.response = response;
+        this.ctx = ctx;
+        this.compressor = compressor;
         response.headers().add(CONTENT_ENCODING, "identity");
     }
 
@@ -33,12 +55,29 @@ public class NettyHttpResponse implements IHttpResponse {
         return this;
     }
 
+    @Override
+    public IHttpResponse setHeader(String name, String value) {
+        response.headers().set(name, value);
+        return this;
+    }
+
     public IHttpResponse setContent(byte[] data) {
-        response.headers().add(CONTENT_LENGTH, data.length);
-        response.content().writeBytes(data);
+        response.headers().set(CONTENT_LENGTH, data.length);
+        response.content().clear().writeBytes(data);
         return this;
     }
 
+    @Override
+    public OutputStream getContentStream() {
+        return new ByteBufOutputStream(response.content()) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                response.headers().set(CONTENT_LENGTH, response.content().readableBytes());
+            }
+        };
+    }
+
     public IHttpResponse setContent(String message) {
         setContent(message.getBytes(charset));
         return this;
@@ -56,6 +95,66 @@ public class NettyHttpResponse implements IHttpResponse {
         return this;
     }
 
+    /**
+     * Responses created without a channel context cannot be written to the channel
+     * right away, so their streamed content is buffered and sent as a whole.
+     */
+    @Override
+    public OutputStream startStreaming() {
+        if (ctx == null) {
+            return getContentStream();
+        }
+        if (bodyStream != null) {
+            return bodyStream;
+        }
+        HttpResponse head = new DefaultHttpResponse(response.getProtocolVersion(), response.getStatus());
+        head.headers().set(response.headers());
+        head.headers().remove(CONTENT_LENGTH);
+        if (compressor != null) {
+            head.headers().set(CONTENT_ENCODING, compressor.getEncoding());
+            head.headers().set(HttpHeaders.Names.VARY, HttpHeaders.Names.ACCEPT_ENCODING);
+        }
+        HttpHeaders.setTransferEncodingChunked(head);
+        ctx.write(head);
+        contentStream = new ChunkedContentStream(ctx, !HttpHeaders.isKeepAlive(response));
+        bodyStream = contentStream;
+        if (compressor != null) {
+            try {
+                bodyStream = compressor.wrap(contentStream);
+            } catch (IOException e) {
+                contentStream.abort();
+                throw new IllegalStateException(e);
+            }
+        }
+        return bodyStream;
+    }
+
+    @Override
+    public void abortStreaming() {
+        if (contentStream != null) {
+            contentStream.abort();
+        } else {
+            response.content().clear();
+            response.headers().set(CONTENT_LENGTH, 0);
+            setStatus(HttpResponseStatus.INTERNAL_SERVER_ERROR.code());
+        }
+    }
+
+    /**
+     * Compresses the response content if the client accepts it.
+     * Streamed responses are compressed on the fly.
+     */
+    public void compress() {
+        if (compressor != null && contentStream == null) {
+            compressor.compress(response);
+        }
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return bodyStream != null;
+    }
+
     @Override
     public void end() {
         closed = true;
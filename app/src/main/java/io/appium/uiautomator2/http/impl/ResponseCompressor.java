@@ -0,0 +1,204 @@
+package io.appium.uiautomator2.http.impl;
+
+import androidx.annotation.Nullable;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import io.appium.uiautomator2.server.metrics.CompressionMetrics;
+import io.appium.uiautomator2.server.metrics.ServerMetrics;
+import io.appium.uiautomator2.utils.Logger;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaders;
+
+/**
+ * Compresses response bodies with the encoding negotiated from the Accept-Encoding request header.
+ */
+public class ResponseCompressor {
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+    private static final String IDENTITY = "identity";
+    private static final String ANY = "*";
+    private static final int BUFFER_SIZE = 8192;
+
+    private final String encoding;
+    private final int threshold;
+    private final CompressionMetrics metrics = ServerMetrics.getInstance().getCompressionMetrics();
+
+    private ResponseCompressor(String encoding, int threshold) {
+        this.encoding = encoding;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Picks the best supported content encoding accepted by the client.
+     *
+     * @param acceptEncoding the value of the Accept-Encoding request header
+     * @param threshold the minimum size of a response body in bytes to be compressed.
+     *                  Negative values disable the compression.
+     * @return the compressor instance or null if the response should not be compressed
+     */
+    @Nullable
+    public static ResponseCompressor negotiate(@Nullable String acceptEncoding, int threshold) {
+        if (acceptEncoding == null || threshold < 0) {
+            return null;
+        }
+        float gzipQ = -1;
+        float deflateQ = -1;
+        float anyQ = -1;
+        for (String item : acceptEncoding.split(",")) {
+            String[] parts = item.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            float q = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Float.parseFloat(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (GZIP.equals(name)) {
+                gzipQ = q;
+            } else if (DEFLATE.equals(name)) {
+                deflateQ = q;
+            } else if (ANY.equals(name)) {
+                anyQ = q;
+            }
+        }
+        if (gzipQ < 0) {
+            gzipQ = anyQ;
+        }
+        if (deflateQ < 0) {
+            deflateQ = anyQ;
+        }
+        if (gzipQ <= 0 && deflateQ <= 0) {
+            return null;
+        }
+        return new ResponseCompressor(gzipQ >= deflateQ ? GZIP : DEFLATE, threshold);
+    }
+
+    public String getEncoding() {
+        return encoding;
+    }
+
+    private DeflaterOutputStream createStream(OutputStream outputStream) throws IOException {
+        return GZIP.equals(encoding)
+                ? new GZIPOutputStream(outputStream, BUFFER_SIZE)
+                : new DeflaterOutputStream(outputStream);
+    }
+
+    /**
+     * Compresses the content of the given response in place if it is large enough.
+     *
+     * @param response the response to compress
+     */
+    public void compress(FullHttpResponse response) {
+        ByteBuf content = response.content();
+        int originalSize = content.readableBytes();
+        if (originalSize < threshold) {
+            metrics.recordSkipped();
+            return;
+        }
+
+        final long startNs = System.nanoTime();
+        ByteBuf compressed = content.alloc().buffer(originalSize / 4 + 64);
+        try {
+            try (DeflaterOutputStream stream = createStream(new ByteBufOutputStream(compressed))) {
+                content.getBytes(content.readerIndex(), stream, originalSize);
+            }
+            int compressedSize = compressed.readableBytes();
+            if (compressedSize >= originalSize) {
+                metrics.recordSkipped();
+                return;
+            }
+            content.clear().writeBytes(compressed);
+            response.headers().set(HttpHeaders.Names.CONTENT_ENCODING, encoding);
+            response.headers().set(HttpHeaders.Names.CONTENT_LENGTH, compressedSize);
+            response.headers().set(HttpHeaders.Names.VARY, HttpHeaders.Names.ACCEPT_ENCODING);
+            metrics.recordCompressed(originalSize, compressedSize, System.nanoTime() - startNs);
+        } catch (IOException e) {
+            Logger.error("Cannot compress the response. Sending it as is", e);
+            response.headers().set(HttpHeaders.Names.CONTENT_ENCODING, IDENTITY);
+        } finally {
+            compressed.release();
+        }
+    }
+
+    /**
+     * Wraps the stream of a chunked response, so everything written to it gets compressed.
+     * Streamed responses are always large, so the size threshold is not applied there.
+     *
+     * @param outputStream the stream the compressed data should be written to
+     * @return the compressing stream. Closing it also closes the underlying stream.
+     * @throws IOException if the compressing stream cannot be created
+     */
+    public OutputStream wrap(OutputStream outputStream) throws IOException {
+        CountingOutputStream compressedCounter = new CountingOutputStream(outputStream);
+        return new MeteredCompressingStream(createStream(compressedCounter), compressedCounter);
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    private class MeteredCompressingStream extends FilterOutputStream {
+        private final CountingOutputStream compressedCounter;
+        private long originalSize;
+        private long compressionTimeNs;
+
+        MeteredCompressingStream(DeflaterOutputStream out, CountingOutputStream compressedCounter) {
+            super(out);
+            this.compressedCounter = compressedCounter;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            long startNs = System.nanoTime();
+            out.write(b);
+            compressionTimeNs += System.nanoTime() - startNs;
+            originalSize++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            long startNs = System.nanoTime();
+            out.write(b, off, len);
+            compressionTimeNs += System.nanoTime() - startNs;
+            originalSize += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            long startNs = System.nanoTime();
+            ((DeflaterOutputStream) out).finish();
+            compressionTimeNs += System.nanoTime() - startNs;
+            metrics.recordCompressed(originalSize, compressedCounter.count, compressionTimeNs);
+            out.close();
+        }
+    }
+}
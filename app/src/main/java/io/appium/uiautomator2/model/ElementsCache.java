@@ -29,6 +29,8 @@ import io.appium.uiautomator2.common.exceptions.ElementNotFoundException;
 import io.appium.uiautomator2.common.exceptions.StaleElementReferenceException;
 import io.appium.uiautomator2.core.AxNodeInfoHelper;
 import io.appium.uiautomator2.model.internal.CustomUiDevice;
+import io.appium.uiautomator2.server.metrics.ServerMetrics;
+import io.appium.uiautomator2.server.metrics.Stage;
 import io.appium.uiautomator2.utils.ByUiAutomatorFinder;
 import io.appium.uiautomator2.utils.Logger;
 import io.appium.uiautomator2.utils.NodeInfoList;
@@ -173,10 +175,12 @@ public class ElementsCache {
 
     public AndroidElement add(AccessibleUiObject element, boolean isSingleMatch, @Nullable By by,
                               @Nullable String contextId) {
+        final long startNs = System.nanoTime();
         AndroidElement androidElement = toAndroidElement(element, isSingleMatch, by, contextId);
         synchronized (cache) {
             cache.put(androidElement.getId(), androidElement);
         }
+        ServerMetrics.getInstance().recordStage(Stage.ELEMENT_CACHING, System.nanoTime() - startNs);
         return androidElement;
     }
 }
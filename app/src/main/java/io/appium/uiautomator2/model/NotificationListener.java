@@ -60,9 +60,12 @@ public class NotificationListener implements OnAccessibilityEventListener {
         }
         Logger.debug("Starting toast notification listener.");
         originalListener = uiAutomation.getOnAccessibilityEventListener();
-        isListening = true;
         Logger.debug("Original listener: " + originalListener);
         uiAutomation.setOnAccessibilityEventListener(this);
+        isListening = true;
+        // Changes made while the listener was stopped could not have been noticed.
+        // Events are already being received at this point, so nothing is missed
+        SnapshotCache.getInstance().invalidate();
     }
 
     public void stop() {
@@ -85,6 +88,9 @@ public class NotificationListener implements OnAccessibilityEventListener {
             }
         }
 
+        SnapshotCache.getInstance().onAccessibilityEvent(event);
+        UiEventBroadcaster.getInstance().onAccessibilityEvent(event);
+
         if (originalListener != null) {
             originalListener.onAccessibilityEvent(event);
         }
@@ -0,0 +1,215 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.model;
+
+import android.view.accessibility.AccessibilityEvent;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.appium.uiautomator2.model.settings.AllowInvisibleElements;
+import io.appium.uiautomator2.model.settings.EnableMultiWindows;
+import io.appium.uiautomator2.model.settings.ForceFreshSnapshot;
+import io.appium.uiautomator2.model.settings.Settings;
+import io.appium.uiautomator2.model.settings.SimpleBoundsCalculation;
+import io.appium.uiautomator2.server.metrics.CacheMetrics;
+import io.appium.uiautomator2.server.metrics.ServerMetrics;
+import io.appium.uiautomator2.utils.Attribute;
+import io.appium.uiautomator2.utils.Logger;
+
+import static io.appium.uiautomator2.utils.AXWindowHelpers.getCachedWindowRoots;
+
+/**
+ * Keeps the most recent snapshot of the whole hierarchy, so consecutive lookups on
+ * an unchanged screen do not need to fetch it again. The snapshot is invalidated as soon as
+ * {@link NotificationListener} receives an accessibility event reporting a UI change
+ * or the server interacts with the UI itself.
+ * Cached snapshots contain all supported attributes, so they suit any query.
+ * Nothing is cached while the listener is stopped, since changes could not be noticed then.
+ */
+public class SnapshotCache {
+    private static final int INVALIDATING_EVENT_TYPES = AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED
+            | AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED
+            | AccessibilityEvent.TYPE_WINDOWS_CHANGED
+            | AccessibilityEvent.TYPE_VIEW_SCROLLED
+            | AccessibilityEvent.TYPE_VIEW_FOCUSED
+            | AccessibilityEvent.TYPE_VIEW_SELECTED
+            | AccessibilityEvent.TYPE_VIEW_TEXT_CHANGED
+            | AccessibilityEvent.TYPE_VIEW_TEXT_SELECTION_CHANGED
+            | AccessibilityEvent.TYPE_NOTIFICATION_STATE_CHANGED;
+    private static final Set<Attribute> ALL_ATTRIBUTES =
+            new HashSet<>(Arrays.asList(UiElementSnapshot.SUPPORTED_ATTRIBUTES));
+
+    private static SnapshotCache INSTANCE;
+
+    private final AtomicLong version = new AtomicLong();
+    private final CacheMetrics metrics;
+    @Nullable
+    private Entry entry;
+
+    private SnapshotCache(CacheMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public static synchronized SnapshotCache getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new SnapshotCache(ServerMetrics.getInstance().getSnapshotCacheMetrics());
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Must be called for every accessibility event received by the server.
+     */
+    void onAccessibilityEvent(AccessibilityEvent event) {
+        if ((event.getEventType() & INVALIDATING_EVENT_TYPES) != 0) {
+            version.incrementAndGet();
+        }
+    }
+
+    public void invalidate() {
+        version.incrementAndGet();
+    }
+
+    private static boolean isEnabled() {
+        return NotificationListener.getInstance().isListening()
+                && !Settings.get(ForceFreshSnapshot.class).getValue();
+    }
+
+    private static List<String> getToastMessages() {
+        List<String> result = new ArrayList<>();
+        for (CharSequence message : NotificationListener.getInstance().getToastMessage()) {
+            result.add(String.valueOf(message));
+        }
+        return result;
+    }
+
+    private Key createKey() {
+        return new Key(version.get(), Settings.get(AllowInvisibleElements.class).getValue(),
+                Settings.get(EnableMultiWindows.class).getValue(),
+                Settings.get(SimpleBoundsCalculation.class).getValue(), getToastMessages());
+    }
+
+    /**
+     * @return the cached snapshot of the whole hierarchy if it is still up to date or null
+     */
+    @Nullable
+    public synchronized UiElementSnapshot peek() {
+        if (!isEnabled()) {
+            return null;
+        }
+        if (entry == null || !entry.key.equals(createKey())) {
+            metrics.recordMiss();
+            return null;
+        }
+        metrics.recordHit();
+        return entry.snapshot;
+    }
+
+    /**
+     * Returns the snapshot of all window roots and toast messages.
+     *
+     * @param includedAttributes attributes to include if a new snapshot has to be taken
+     *                           without caching it
+     * @return the cached snapshot if nothing has changed since it has been taken or a new one
+     */
+    public synchronized UiElementSnapshot take(Set<Attribute> includedAttributes) {
+        if (!isEnabled()) {
+            entry = null;
+            return UiElementSnapshot.take(getCachedWindowRoots(),
+                    NotificationListener.getInstance().getToastMessage(), includedAttributes);
+        }
+
+        Key key = createKey();
+        if (entry != null) {
+            if (entry.key.equals(key)) {
+                metrics.recordHit();
+                return entry.snapshot;
+            }
+            metrics.recordEviction();
+            entry = null;
+        }
+        metrics.recordMiss();
+        UiElementSnapshot snapshot = UiElementSnapshot.take(getCachedWindowRoots(),
+                NotificationListener.getInstance().getToastMessage(), ALL_ATTRIBUTES);
+        // The snapshot must not be reused if anything has changed while it was being taken
+        if (key.version == version.get()) {
+            entry = new Entry(key, snapshot);
+        } else {
+            Logger.debug("The UI has changed while the snapshot was being taken. Not caching it");
+        }
+        return snapshot;
+    }
+
+    private static class Key {
+        private final long version;
+        private final boolean areInvisibleElementsAllowed;
+        private final boolean isMultiWindowsEnabled;
+        private final boolean isSimpleBoundsCalculation;
+        private final List<String> toastMessages;
+
+        Key(long version, boolean areInvisibleElementsAllowed, boolean isMultiWindowsEnabled,
+            boolean isSimpleBoundsCalculation, List<String> toastMessages) {
+            this.version = version;
+            this.areInvisibleElementsAllowed = areInvisibleElementsAllowed;
+            this.isMultiWindowsEnabled = isMultiWindowsEnabled;
+            this.isSimpleBoundsCalculation = isSimpleBoundsCalculation;
+            this.toastMessages = toastMessages;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return version == other.version
+                    && areInvisibleElementsAllowed == other.areInvisibleElementsAllowed
+                    && isMultiWindowsEnabled == other.isMultiWindowsEnabled
+                    && isSimpleBoundsCalculation == other.isSimpleBoundsCalculation
+                    && toastMessages.equals(other.toastMessages);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = (int) (version ^ (version >>> 32));
+            result = 31 * result + (areInvisibleElementsAllowed ? 1 : 0);
+            result = 31 * result + (isMultiWindowsEnabled ? 1 : 0);
+            result = 31 * result + (isSimpleBoundsCalculation ? 1 : 0);
+            return 31 * result + toastMessages.hashCode();
+        }
+    }
+
+    private static class Entry {
+        private final Key key;
+        private final UiElementSnapshot snapshot;
+
+        Entry(Key key, UiElementSnapshot snapshot) {
+            this.key = key;
+            this.snapshot = snapshot;
+        }
+    }
+}
@@ -59,12 +59,9 @@ public abstract class UiElement<R, E extends UiElement<R, E>> {
         return (T) getAttributes().get(attribute);
     }
 
-    @SuppressWarnings("unchecked")
     private <T> T get(Attribute attribute, T defaultValue) {
-        if (!getAttributes().containsKey(attribute)) {
-            return defaultValue;
-        }
-        return (T) getAttributes().get(attribute);
+        T value = get(attribute);
+        return value == null ? defaultValue : value;
     }
 
     @NonNull
@@ -148,5 +145,44 @@ public abstract class UiElement<R, E extends UiElement<R, E>> {
         return get(Attribute.BOUNDS);
     }
 
+    /**
+     * Parses the bounds string. Snapshots provide numeric bounds
+     * via {@link UiElementSnapshot#getBoundsRect()}, so this is only a fallback for other elements.
+     *
+     * @return the bounds as [left, top, right, bottom] array or null if the element
+     * has no bounds or they are not in the [left,top][right,bottom] form
+     */
+    @Nullable
+    public int[] getBoundsCoordinates() {
+        Object bounds = get(Attribute.BOUNDS);
+        if (bounds == null) {
+            return null;
+        }
+        String value = String.valueOf(bounds);
+        int[] result = new int[4];
+        int count = 0;
+        int number = 0;
+        boolean isNegative = false;
+        boolean hasDigits = false;
+        for (int i = 0; i <= value.length(); i++) {
+            char c = i < value.length() ? value.charAt(i) : ']';
+            if (c >= '0' && c <= '9') {
+                number = number * 10 + (c - '0');
+                hasDigits = true;
+            } else if (c == '-' && !hasDigits) {
+                isNegative = true;
+            } else if (hasDigits) {
+                if (count == result.length) {
+                    return null;
+                }
+                result[count++] = isNegative ? -number : number;
+                number = 0;
+                isNegative = false;
+                hasDigits = false;
+            }
+        }
+        return count == result.length ? result : null;
+    }
+
     protected abstract Map<Attribute, Object> getAttributes();
 }
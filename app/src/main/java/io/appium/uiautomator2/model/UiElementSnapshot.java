@@ -17,6 +17,7 @@
 package io.appium.uiautomator2.model;
 
 import android.annotation.TargetApi;
+import android.graphics.Rect;
 import android.os.Build;
 import android.util.Pair;
 import android.view.accessibility.AccessibilityNodeInfo;
@@ -26,17 +27,25 @@ import androidx.annotation.Nullable;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
+import io.appium.uiautomator2.core.AxNodeFetcher;
 import io.appium.uiautomator2.core.AxNodeInfoHelper;
 import io.appium.uiautomator2.model.settings.AllowInvisibleElements;
+import io.appium.uiautomator2.model.settings.ParallelSnapshotCapture;
 import io.appium.uiautomator2.model.settings.Settings;
+import io.appium.uiautomator2.model.settings.SimpleBoundsCalculation;
+import io.appium.uiautomator2.server.metrics.ServerMetrics;
 import io.appium.uiautomator2.utils.Attribute;
 import io.appium.uiautomator2.utils.Logger;
 
@@ -51,9 +60,9 @@ import static io.appium.uiautomator2.utils.StringHelpers.charSequenceToNullableS
  */
 @TargetApi(18)
 public class UiElementSnapshot extends UiElement<AccessibilityNodeInfo, UiElementSnapshot> {
-    private final static String ROOT_NODE_NAME = "hierarchy";
+    public final static String ROOT_NODE_NAME = "hierarchy";
     // https://github.com/appium/appium/issues/12545
-    private final static int DEFAULT_MAX_DEPTH = 70;
+    public final static int DEFAULT_MAX_DEPTH = 70;
     // The same order will be used for node attributes in xml page source
     public final static Attribute[] SUPPORTED_ATTRIBUTES = new Attribute[]{
             Attribute.INDEX, Attribute.PACKAGE, Attribute.CLASS, Attribute.TEXT,
@@ -70,58 +79,151 @@ public class UiElementSnapshot extends UiElement<AccessibilityNodeInfo, UiElemen
             Attribute.INDEX
     };
 
-    private final Set<Attribute> includedAttributes = new HashSet<>();
-    private final Map<Attribute, Object> attributes;
+    // Binder calls mostly wait for the target process, so a few threads are enough to overlap them
+    private final static int CAPTURE_PARALLELISM = 4;
+    // Subtrees below this depth are captured sequentially, since they are mostly small
+    private final static int MAX_PARALLEL_CAPTURE_DEPTH = 3;
+    private static volatile ForkJoinPool capturePool;
+
+    private final static Set<Attribute> ROOT_NODE_ATTRIBUTES = Collections.unmodifiableSet(
+            new LinkedHashSet<>(Arrays.asList(Attribute.INDEX, Attribute.CLASS)));
+    private final static Set<Attribute> TOAST_NODE_ATTRIBUTE_KEYS =
+            toAttributeKeys(Arrays.asList(TOAST_NODE_ATTRIBUTES));
+    private final static int ATTRIBUTES_COUNT = Attribute.values().length;
+
+    // Ordered keys of included attributes. The same set is shared by all elements of the snapshot.
+    private final Set<Attribute> includedAttributes;
+    // Attribute values are only retrieved from the node on the first access
+    private final Object[] attributeValues = new Object[ATTRIBUTES_COUNT];
+    private final boolean[] isAttributeRetrieved = new boolean[ATTRIBUTES_COUNT];
     private final List<UiElementSnapshot> children;
     private final int depth;
     private final int maxDepth;
     private final int index;
+    // Shared by all elements captured from the same root node. Only null for the hierarchy root.
+    @Nullable
+    private final VisibleBoundsContext boundsContext;
+    // The nearest scrollable ancestor captured from the same root node
+    @Nullable
+    private final UiElementSnapshot scrollableAncestor;
+    // The distance to the root node the element has been captured from
+    private final int rootDistance;
+    @Nullable
+    private Rect visibleBounds;
 
     private UiElementSnapshot(AccessibilityNodeInfo node, int index, int depth, int maxDepth,
-                              Set<Attribute> includedAttributes) {
+                              Set<Attribute> includedAttributes, @Nullable UiElementSnapshot parent) {
         super(checkNotNull(node));
         this.depth = depth;
         this.maxDepth = maxDepth;
         this.index = index;
-        // Class name attribute should always be there
-        this.includedAttributes.add(Attribute.CLASS);
-        this.includedAttributes.addAll(includedAttributes);
-        this.attributes = collectAttributes();
+        this.includedAttributes = includedAttributes;
+        if (parent == null) {
+            this.boundsContext = new VisibleBoundsContext(node);
+            this.scrollableAncestor = null;
+            this.rootDistance = 0;
+        } else {
+            this.boundsContext = parent.boundsContext;
+            //noinspection ConstantConditions
+            this.scrollableAncestor = parent.getNode().isScrollable() ? parent : parent.scrollableAncestor;
+            this.rootDistance = parent.rootDistance + 1;
+        }
         this.children = buildChildren(node);
     }
 
-    private UiElementSnapshot(AccessibilityNodeInfo node, int index, int depth,
-                              Set<Attribute> includedAttributes) {
-        this(node, index, depth, DEFAULT_MAX_DEPTH, includedAttributes);
-    }
-
-    private UiElementSnapshot(AccessibilityNodeInfo[] childNodes,
+    private UiElementSnapshot(AccessibilityNodeInfo[] childNodes, int maxDepth,
                               Set<Attribute> includedAttributes) {
         super(null);
         this.depth = 0;
         this.index = 0;
-        this.maxDepth = DEFAULT_MAX_DEPTH;
-        Map<Attribute, Object> attribs = new LinkedHashMap<>();
-        putAttribute(attribs, Attribute.INDEX, this.index);
-        putAttribute(attribs, Attribute.CLASS, ROOT_NODE_NAME);
-        this.attributes = Collections.unmodifiableMap(attribs);
+        this.maxDepth = maxDepth;
+        this.includedAttributes = ROOT_NODE_ATTRIBUTES;
+        this.boundsContext = null;
+        this.scrollableAncestor = null;
+        this.rootDistance = 0;
+        setAttributeValue(Attribute.INDEX, this.index);
+        setAttributeValue(Attribute.CLASS, ROOT_NODE_NAME);
         List<UiElementSnapshot> children = new ArrayList<>(childNodes.length);
-        for (int childNodeIdx = 0; childNodeIdx < childNodes.length; ++childNodeIdx) {
-            UiElementSnapshot child = new UiElementSnapshot(childNodes[childNodeIdx], childNodeIdx,
-                    this.depth + 1, includedAttributes);
-            children.add(child);
+        if (hasReachedMaxDepth()) {
+            // Only the hierarchy node itself is requested
+            Logger.info(String.format("Skipping window roots because the maximum " +
+                    "recursion depth (%s) has been reached", maxDepth));
+        } else if (Settings.get(ParallelSnapshotCapture.class).getValue()) {
+            final List<CaptureTask> tasks = new ArrayList<>(childNodes.length);
+            for (int childNodeIdx = 0; childNodeIdx < childNodes.length; ++childNodeIdx) {
+                tasks.add(CaptureTask.forNode(childNodes[childNodeIdx], childNodeIdx, this.depth + 1,
+                        maxDepth, includedAttributes));
+            }
+            children.addAll(getCapturePool().invoke(new RecursiveTask<List<UiElementSnapshot>>() {
+                @Override
+                protected List<UiElementSnapshot> compute() {
+                    return captureAll(tasks);
+                }
+            }));
+        } else {
+            for (int childNodeIdx = 0; childNodeIdx < childNodes.length; ++childNodeIdx) {
+                UiElementSnapshot child = new UiElementSnapshot(childNodes[childNodeIdx], childNodeIdx,
+                        this.depth + 1, maxDepth, includedAttributes, null);
+                children.add(child);
+            }
         }
         this.children = children;
     }
 
-    private static void putAttribute(Map<Attribute, Object> attribs, Attribute key, Object value) {
-        if (value != null) {
-            attribs.put(key, value);
+    private static synchronized ForkJoinPool getCapturePool() {
+        if (capturePool == null) {
+            capturePool = new ForkJoinPool(CAPTURE_PARALLELISM);
         }
+        return capturePool;
     }
 
-    private @Nullable Object getNodeAttributeValue(Attribute attr) {
-        AccessibilityNodeInfo node = Objects.requireNonNull(getNode());
+    /**
+     * Runs the given tasks in parallel. Must be called from a capture pool thread.
+     *
+     * @return captured elements in the same order as their tasks, skipped elements are omitted
+     */
+    private static List<UiElementSnapshot> captureAll(List<CaptureTask> tasks) {
+        ForkJoinTask.invokeAll(tasks);
+        List<UiElementSnapshot> result = new ArrayList<>(tasks.size());
+        for (CaptureTask task : tasks) {
+            UiElementSnapshot element = task.join();
+            if (element != null) {
+                result.add(element);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param includedAttributes attributes to include into the snapshot
+     * @return the shared set of included attribute keys. The class name is always included.
+     * The same order is used for node attributes in xml page source.
+     */
+    private static Set<Attribute> toAttributeKeys(Collection<Attribute> includedAttributes) {
+        Set<Attribute> result = new LinkedHashSet<>();
+        for (Attribute attr : SUPPORTED_ATTRIBUTES) {
+            if (attr == Attribute.CLASS || includedAttributes.contains(attr)) {
+                result.add(attr);
+            }
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    private void setAttributeValue(Attribute attr, Object value) {
+        attributeValues[attr.ordinal()] = value;
+        isAttributeRetrieved[attr.ordinal()] = true;
+    }
+
+    /**
+     * Retrieves the attribute value the same way it is stored in the snapshot.
+     *
+     * @param node the node to retrieve the value from
+     * @param attr one of {@link #SUPPORTED_ATTRIBUTES}
+     * @param index the index of the node among its siblings
+     * @return the attribute value or null if the node does not have it
+     */
+    public static @Nullable Object getNodeAttributeValue(AccessibilityNodeInfo node, Attribute attr,
+                                                         int index) {
         switch (attr) {
             case CHECKABLE:
                 return node.isCheckable();
@@ -180,40 +282,120 @@ public class UiElementSnapshot extends UiElement<AccessibilityNodeInfo, UiElemen
         }
     }
 
-    private Map<Attribute, Object> collectAttributes() {
-        Map<Attribute, Object> result = new LinkedHashMap<>();
-        for (Attribute attr : SUPPORTED_ATTRIBUTES) {
-            if (includedAttributes.isEmpty() || includedAttributes.contains(attr)) {
-                putAttribute(result, attr, getNodeAttributeValue(attr));
-            }
+    /**
+     * The value is retrieved from the node on the first access and then memoized.
+     * Snapshots might be shared between threads, so the access is synchronized.
+     */
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized <T> T get(Attribute attribute) {
+        if (!includedAttributes.contains(attribute)) {
+            return null;
         }
-        return Collections.unmodifiableMap(result);
+        int idx = attribute.ordinal();
+        if (!isAttributeRetrieved[idx]) {
+            setAttributeValue(attribute, attribute == Attribute.BOUNDS
+                    ? getVisibleBounds().toShortString()
+                    : getNodeAttributeValue(Objects.requireNonNull(getNode()), attribute, index));
+        }
+        return (T) attributeValues[idx];
+    }
+
+    /**
+     * Lets hierarchy writers get the visible bounds without formatting them to a string
+     * and parsing it back.
+     *
+     * @return the visible bounds of the element or null if they are not included into
+     * the snapshot. The returned instance is shared and must not be modified.
+     */
+    @Nullable
+    public Rect getBoundsRect() {
+        return includedAttributes.contains(Attribute.BOUNDS) ? getVisibleBounds() : null;
+    }
+
+    /**
+     * Visible bounds are calculated top-down. Bounds of the nearest scrollable ancestor are
+     * memoized, so the calculation does not need to walk up through ancestors of each element.
+     * The result is the same {@link AxNodeInfoHelper#getBounds(AccessibilityNodeInfo)} returns.
+     */
+    private synchronized Rect getVisibleBounds() {
+        if (visibleBounds == null) {
+            visibleBounds = calculateVisibleBounds();
+        }
+        return visibleBounds;
+    }
+
+    private Rect calculateVisibleBounds() {
+        AccessibilityNodeInfo node = Objects.requireNonNull(getNode());
+        VisibleBoundsContext context = Objects.requireNonNull(boundsContext);
+        if (context.isSimpleBoundsCalculation) {
+            Rect result = new Rect();
+            node.getBoundsInScreen(result);
+            return result;
+        }
+        if (context.getRootAncestorsCount() + rootDistance >= AxNodeInfoHelper.MAX_DEPTH) {
+            // Too far ancestors are not considered by the bottom-up calculation
+            return AxNodeInfoHelper.getBounds(node);
+        }
+        Rect scrollableAncestorBounds = scrollableAncestor == null
+                ? context.getRootScrollableAncestorBounds()
+                : scrollableAncestor.getVisibleBounds();
+        return AxNodeInfoHelper.getVisibleBounds(node, context.getDisplayRect(),
+                context.getWindowBounds(), scrollableAncestorBounds);
+    }
+
+    /**
+     * @return keys of all included attributes. Some of them might have no value.
+     */
+    @Override
+    public Set<Attribute> attributeKeys() {
+        return includedAttributes;
     }
 
     public static UiElementSnapshot take(AccessibilityNodeInfo[] roots, List<CharSequence> toastMSGs,
                                          Set<Attribute> includedAttributes) {
-        UiElementSnapshot uiRoot = new UiElementSnapshot(roots, includedAttributes);
-        for (CharSequence toastMSG : toastMSGs) {
-            Logger.info(String.format("Adding toast message to root: %s", toastMSG));
-            uiRoot.addToastMsg(toastMSG);
+        return take(roots, toastMSGs, DEFAULT_MAX_DEPTH, includedAttributes);
+    }
+
+    /**
+     * @param roots window roots to put under the common hierarchy root
+     * @param toastMSGs toast messages to add as separate elements
+     * @param maxDepth the maximum depth of elements in the snapshot. The hierarchy root has zero depth.
+     * @param includedAttributes attributes to include into the snapshot
+     * @return the snapshot of all the given windows
+     */
+    public static UiElementSnapshot take(AccessibilityNodeInfo[] roots, List<CharSequence> toastMSGs,
+                                         int maxDepth, Set<Attribute> includedAttributes) {
+        ServerMetrics.getInstance().getTraversalMetrics().recordSnapshot();
+        UiElementSnapshot uiRoot = new UiElementSnapshot(roots, maxDepth, toAttributeKeys(includedAttributes));
+        if (!uiRoot.hasReachedMaxDepth()) {
+            for (CharSequence toastMSG : toastMSGs) {
+                Logger.info(String.format("Adding toast message to root: %s", toastMSG));
+                uiRoot.addToastMsg(toastMSG);
+            }
         }
         return uiRoot;
     }
 
     public static UiElementSnapshot take(AccessibilityNodeInfo rootElement, Set<Attribute> includedAttributes) {
-        return new UiElementSnapshot(rootElement, AxNodeInfoHelper.calculateIndex(rootElement), 0,
-                includedAttributes);
+        return take(rootElement, DEFAULT_MAX_DEPTH, includedAttributes);
     }
 
     public static UiElementSnapshot take(AccessibilityNodeInfo rootElement, int maxDepth,
                                          Set<Attribute> includedAttributes) {
-        return new UiElementSnapshot(rootElement, AxNodeInfoHelper.calculateIndex(rootElement), 0,
-                maxDepth, includedAttributes);
+        ServerMetrics.getInstance().getTraversalMetrics().recordSnapshot();
+        int index = AxNodeInfoHelper.calculateIndex(rootElement);
+        Set<Attribute> attributeKeys = toAttributeKeys(includedAttributes);
+        return Settings.get(ParallelSnapshotCapture.class).getValue()
+                ? getCapturePool().invoke(CaptureTask.forNode(rootElement, index, 0, maxDepth, attributeKeys))
+                : new UiElementSnapshot(rootElement, index, 0, maxDepth, attributeKeys, null);
     }
 
     private static UiElementSnapshot take(AccessibilityNodeInfo rootElement, int index, int depth,
-                                          Set<Attribute> includedAttributes) {
-        return new UiElementSnapshot(rootElement, index, depth, includedAttributes);
+                                          int maxDepth, Set<Attribute> includedAttributes,
+                                          @Nullable UiElementSnapshot parent) {
+        return new UiElementSnapshot(rootElement, index, depth, maxDepth, includedAttributes, parent);
     }
 
     private void addToastMsg(CharSequence tokenMSG) {
@@ -223,24 +405,37 @@ public class UiElementSnapshot extends UiElement<AccessibilityNodeInfo, UiElemen
         node.setPackageName("com.android.settings");
         node.setVisibleToUser(true);
         setField("mSealed", true, node);
-        this.children.add(new UiElementSnapshot(node, this.children.size(), 0,
-                new HashSet<>(Arrays.asList(TOAST_NODE_ATTRIBUTES))));
+        this.children.add(new UiElementSnapshot(node, this.children.size(), 0, DEFAULT_MAX_DEPTH,
+                TOAST_NODE_ATTRIBUTE_KEYS, null));
+    }
+
+    private boolean hasReachedMaxDepth() {
+        return maxDepth >= 0 && depth >= maxDepth;
     }
 
     private List<UiElementSnapshot> buildChildren(AccessibilityNodeInfo node) {
         final int childCount = node.getChildCount();
-        if (childCount == 0 || (maxDepth >= 0 && depth >= maxDepth)) {
-            if (depth >= maxDepth) {
+        if (childCount == 0 || hasReachedMaxDepth()) {
+            if (childCount > 0) {
                 Logger.info(String.format("Skipping building children of '%s' because the maximum " +
                         "recursion depth (%s) has been reached", node, maxDepth));
             }
             return Collections.emptyList();
         }
 
+        if (childCount > 1 && depth < MAX_PARALLEL_CAPTURE_DEPTH
+                && capturePool != null && ForkJoinTask.getPool() == capturePool) {
+            List<CaptureTask> tasks = new ArrayList<>(childCount);
+            for (int index = 0; index < childCount; ++index) {
+                tasks.add(CaptureTask.forChild(this, index, depth + 1, maxDepth, includedAttributes));
+            }
+            return captureAll(tasks);
+        }
+
         List<UiElementSnapshot> children = new ArrayList<>(childCount);
         boolean areInvisibleElementsAllowed = Settings.get(AllowInvisibleElements.class).getValue();
         for (int index = 0; index < childCount; ++index) {
-            AccessibilityNodeInfo child = node.getChild(index);
+            AccessibilityNodeInfo child = AxNodeFetcher.getChild(node, index);
             if (child == null) {
                 Logger.info(String.format("The child node #%s of %s is null", index, node));
                 continue;
@@ -248,7 +443,7 @@ public class UiElementSnapshot extends UiElement<AccessibilityNodeInfo, UiElemen
 
             // Ignore if the element is not visible on the screen
             if (areInvisibleElementsAllowed || child.isVisibleToUser()) {
-                children.add(take(child, index, depth + 1, includedAttributes));
+                children.add(take(child, index, depth + 1, maxDepth, includedAttributes, this));
             }
         }
         return children;
@@ -259,8 +454,134 @@ public class UiElementSnapshot extends UiElement<AccessibilityNodeInfo, UiElemen
         return Collections.unmodifiableList(children);
     }
 
+    /**
+     * Retrieves all included attributes. Prefer {@link #get(Attribute)} to only retrieve
+     * the necessary ones.
+     */
     @Override
     protected Map<Attribute, Object> getAttributes() {
-        return attributes;
+        Map<Attribute, Object> result = new LinkedHashMap<>();
+        for (Attribute attr : includedAttributes) {
+            Object value = get(attr);
+            if (value != null) {
+                result.put(attr, value);
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Captures a single subtree on the capture pool. Each accessibility call is a binder
+     * round-trip to the target process, so capturing siblings in parallel overlaps their latencies.
+     */
+    private static class CaptureTask extends RecursiveTask<UiElementSnapshot> {
+        // Either the root node itself or the parent element is known in advance.
+        // The child is then fetched on the worker thread.
+        @Nullable
+        private final AccessibilityNodeInfo node;
+        @Nullable
+        private final UiElementSnapshot parent;
+        private final int index;
+        private final int depth;
+        private final int maxDepth;
+        private final Set<Attribute> includedAttributes;
+
+        private CaptureTask(@Nullable AccessibilityNodeInfo node, @Nullable UiElementSnapshot parent,
+                            int index, int depth, int maxDepth, Set<Attribute> includedAttributes) {
+            this.node = node;
+            this.parent = parent;
+            this.index = index;
+            this.depth = depth;
+            this.maxDepth = maxDepth;
+            this.includedAttributes = includedAttributes;
+        }
+
+        static CaptureTask forNode(AccessibilityNodeInfo node, int index, int depth, int maxDepth,
+                                   Set<Attribute> includedAttributes) {
+            return new CaptureTask(node, null, index, depth, maxDepth, includedAttributes);
+        }
+
+        static CaptureTask forChild(UiElementSnapshot parent, int index, int depth, int maxDepth,
+                                    Set<Attribute> includedAttributes) {
+            return new CaptureTask(null, parent, index, depth, maxDepth, includedAttributes);
+        }
+
+        @Nullable
+        @Override
+        protected UiElementSnapshot compute() {
+            if (node != null) {
+                return take(node, index, depth, maxDepth, includedAttributes, null);
+            }
+
+            //noinspection ConstantConditions
+            AccessibilityNodeInfo parentNode = Objects.requireNonNull(parent.getNode());
+            AccessibilityNodeInfo child = AxNodeFetcher.getChild(parentNode, index);
+            if (child == null) {
+                Logger.info(String.format("The child node #%s of %s is null", index, parentNode));
+                return null;
+            }
+            // Ignore if the element is not visible on the screen
+            return Settings.get(AllowInvisibleElements.class).getValue() || child.isVisibleToUser()
+                    ? take(child, index, depth, maxDepth, includedAttributes, parent)
+                    : null;
+        }
+    }
+
+    /**
+     * Surroundings of the root node an element tree has been captured from.
+     * They are only retrieved once the visible bounds of any element in the tree are requested.
+     */
+    private static class VisibleBoundsContext {
+        private final AccessibilityNodeInfo root;
+        private final boolean isSimpleBoundsCalculation;
+        @Nullable
+        private Rect displayRect;
+        @Nullable
+        private Rect windowBounds;
+        private boolean isWindowBoundsRetrieved;
+        @Nullable
+        private Rect rootScrollableAncestorBounds;
+        private boolean isRootScrollableAncestorBoundsRetrieved;
+        private int rootAncestorsCount = -1;
+
+        VisibleBoundsContext(AccessibilityNodeInfo root) {
+            this.root = root;
+            this.isSimpleBoundsCalculation = Settings.get(SimpleBoundsCalculation.class).getValue();
+        }
+
+        synchronized Rect getDisplayRect() {
+            if (displayRect == null) {
+                displayRect = AxNodeInfoHelper.getDisplayRect();
+            }
+            return displayRect;
+        }
+
+        /**
+         * All nodes of the tree belong to the same window as its root
+         */
+        @Nullable
+        synchronized Rect getWindowBounds() {
+            if (!isWindowBoundsRetrieved) {
+                windowBounds = AxNodeInfoHelper.getWindowBounds(root);
+                isWindowBoundsRetrieved = true;
+            }
+            return windowBounds;
+        }
+
+        @Nullable
+        synchronized Rect getRootScrollableAncestorBounds() {
+            if (!isRootScrollableAncestorBoundsRetrieved) {
+                rootScrollableAncestorBounds = AxNodeInfoHelper.getScrollableAncestorBounds(root);
+                isRootScrollableAncestorBoundsRetrieved = true;
+            }
+            return rootScrollableAncestorBounds;
+        }
+
+        synchronized int getRootAncestorsCount() {
+            if (rootAncestorsCount < 0) {
+                rootAncestorsCount = AxNodeInfoHelper.countAncestors(root);
+            }
+            return rootAncestorsCount;
+        }
     }
 }
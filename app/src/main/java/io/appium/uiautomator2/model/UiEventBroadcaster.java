@@ -0,0 +1,176 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.model;
+
+import android.view.accessibility.AccessibilityEvent;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import io.appium.uiautomator2.core.AxNodeInfoHelper;
+import io.appium.uiautomator2.model.api.UiChangeEventModel;
+import io.appium.uiautomator2.utils.Logger;
+
+import static io.appium.uiautomator2.utils.ModelUtils.toJsonString;
+
+/**
+ * Converts accessibility events received by {@link NotificationListener} into compact
+ * UI change notifications and delivers them to subscribers.
+ */
+public class UiEventBroadcaster {
+    public static final String WINDOW_STATE_CHANGED = "windowStateChanged";
+    public static final String CONTENT_CHANGED = "contentChanged";
+    public static final String TOAST = "toast";
+    public static final String SCROLLED = "scrolled";
+    // Content change events are fired in bursts while views are being laid out,
+    // so repeated changes of the same node within this interval are reported once
+    private static final long CONTENT_CHANGE_COALESCE_MS = 100;
+
+    private static UiEventBroadcaster INSTANCE;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private String lastContentChangeId;
+    private long lastContentChangeTimestamp;
+    // Whether the notification listener has been started only to deliver events to subscribers
+    private boolean isListenerStartedBySubscribers;
+
+    public interface Subscriber {
+        /**
+         * Called on the accessibility event thread, so implementations must not block.
+         *
+         * @param type the notification type
+         * @param json the notification serialized to JSON
+         */
+        void onUiEvent(String type, String json);
+    }
+
+    public static synchronized UiEventBroadcaster getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new UiEventBroadcaster();
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Starts delivering notifications to the given subscriber. The notification listener
+     * is started if it has not been running yet, since it is the source of all events.
+     * Such listener is stopped again as soon as the last subscriber is gone.
+     */
+    public synchronized void subscribe(Subscriber subscriber) {
+        subscribers.add(subscriber);
+        NotificationListener listener = NotificationListener.getInstance();
+        if (!listener.isListening()) {
+            listener.start();
+            isListenerStartedBySubscribers = true;
+        }
+    }
+
+    public synchronized void unsubscribe(Subscriber subscriber) {
+        if (!subscribers.remove(subscriber) || !subscribers.isEmpty() || !isListenerStartedBySubscribers) {
+            return;
+        }
+        isListenerStartedBySubscribers = false;
+        NotificationListener listener = NotificationListener.getInstance();
+        if (listener.isListening()) {
+            Logger.info("Stopping the notification listener since there are no UI event subscribers left");
+            listener.stop();
+        }
+    }
+
+    public boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    /**
+     * Must be called synchronously, since accessibility events get recycled
+     * as soon as the listener returns.
+     */
+    void onAccessibilityEvent(AccessibilityEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        UiChangeEventModel model;
+        try {
+            model = toModel(event);
+        } catch (Exception e) {
+            Logger.debug("Cannot convert the accessibility event", e);
+            return;
+        }
+        if (model == null) {
+            return;
+        }
+        String json = toJsonString(model, false);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.onUiEvent(model.type, json);
+        }
+    }
+
+    @Nullable
+    private UiChangeEventModel toModel(AccessibilityEvent event) {
+        UiChangeEventModel model = new UiChangeEventModel();
+        switch (event.getEventType()) {
+            case AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED:
+                model.type = WINDOW_STATE_CHANGED;
+                break;
+            case AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED:
+                model.type = CONTENT_CHANGED;
+                model.elementId = AxNodeInfoHelper.toUuid(event);
+                model.contentChangeTypes = event.getContentChangeTypes();
+                if (isCoalesced(model.elementId, event.getEventTime())) {
+                    return null;
+                }
+                break;
+            case AccessibilityEvent.TYPE_NOTIFICATION_STATE_CHANGED:
+                List<CharSequence> text = event.getText();
+                if (text == null || text.isEmpty()) {
+                    return null;
+                }
+                model.type = TOAST;
+                model.text = new ArrayList<>();
+                for (CharSequence item : text) {
+                    model.text.add(item == null ? null : item.toString());
+                }
+                break;
+            case AccessibilityEvent.TYPE_VIEW_SCROLLED:
+                model.type = SCROLLED;
+                model.elementId = AxNodeInfoHelper.toUuid(event);
+                model.scroll = new AccessibilityScrollData(event).getAsMap();
+                break;
+            default:
+                return null;
+        }
+        model.timestamp = event.getEventTime();
+        model.windowId = event.getWindowId();
+        model.packageName = event.getPackageName() == null ? null : event.getPackageName().toString();
+        model.className = event.getClassName() == null ? null : event.getClassName().toString();
+        return model;
+    }
+
+    private boolean isCoalesced(@Nullable String elementId, long timestamp) {
+        boolean result = Objects.equals(elementId, lastContentChangeId)
+                && timestamp - lastContentChangeTimestamp < CONTENT_CHANGE_COALESCE_MS;
+        if (!result) {
+            lastContentChangeId = elementId;
+            lastContentChangeTimestamp = timestamp;
+        }
+        return result;
+    }
+}
@@ -42,7 +42,7 @@ public class ElementModel extends BaseModel {
         this.w3cElementId = source.getId();
     }
 
-    public ElementModel(Map<String, Object> source) {
+    public ElementModel(Map<?, ?> source) {
         this.jwpElementId = source.get(JWP_ELEMENT_ID_KEY_NAME) instanceof String
                 ? (String) source.get(JWP_ELEMENT_ID_KEY_NAME)
                 : null;
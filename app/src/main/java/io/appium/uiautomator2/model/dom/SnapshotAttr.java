@@ -0,0 +1,117 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.model.dom;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.TypeInfo;
+
+class SnapshotAttr extends SnapshotNode implements Attr {
+    private final SnapshotElement ownerElement;
+    private final String name;
+    private final String value;
+    private final int index;
+
+    SnapshotAttr(SnapshotElement ownerElement, String name, String value, int index) {
+        this.ownerElement = ownerElement;
+        this.name = name;
+        this.value = value;
+        this.index = index;
+    }
+
+    @Override
+    SnapshotDocument getDocument() {
+        return ownerElement.getDocument();
+    }
+
+    @Override
+    SnapshotNode getContainer() {
+        return ownerElement;
+    }
+
+    @Override
+    int getOrder() {
+        return ownerElement.getOrder();
+    }
+
+    @Override
+    int getSubOrder() {
+        return index + 1;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean getSpecified() {
+        return true;
+    }
+
+    @Override
+    public String getValue() {
+        return value;
+    }
+
+    @Override
+    public void setValue(String value) throws DOMException {
+        throw readOnly();
+    }
+
+    @Override
+    public Element getOwnerElement() {
+        return ownerElement;
+    }
+
+    @Override
+    public TypeInfo getSchemaTypeInfo() {
+        return NO_TYPE_INFO;
+    }
+
+    @Override
+    public boolean isId() {
+        return false;
+    }
+
+    @Override
+    public String getNodeName() {
+        return name;
+    }
+
+    @Override
+    public String getLocalName() {
+        return name;
+    }
+
+    @Override
+    public String getNodeValue() {
+        return value;
+    }
+
+    @Override
+    public short getNodeType() {
+        return ATTRIBUTE_NODE;
+    }
+
+    @Override
+    public Document getOwnerDocument() {
+        return getDocument();
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.model.dom;
+
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import androidx.annotation.Nullable;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.CDATASection;
+import org.w3c.dom.Comment;
+import org.w3c.dom.DOMConfiguration;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.DOMImplementation;
+import org.w3c.dom.Document;
+import org.w3c.dom.DocumentFragment;
+import org.w3c.dom.DocumentType;
+import org.w3c.dom.Element;
+import org.w3c.dom.EntityReference;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.ProcessingInstruction;
+import org.w3c.dom.Text;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.appium.uiautomator2.model.UiElement;
+import io.appium.uiautomator2.model.settings.NormalizeTagNames;
+import io.appium.uiautomator2.model.settings.Settings;
+import io.appium.uiautomator2.utils.Attribute;
+
+import static io.appium.uiautomator2.utils.XMLHelpers.toXmlNodeName;
+
+/**
+ * A read-only DOM document backed by a hierarchy snapshot. It allows XPath engines to query
+ * the snapshot directly instead of serializing it to XML and parsing the result back.
+ * Elements, their names and attributes look exactly the same as in the page source XML.
+ */
+public class SnapshotDocument extends SnapshotNode implements Document {
+    private static final String NODE_NAME = "#document";
+    private static final String XML_VERSION = "1.0";
+    private static final String XML_ENCODING = "UTF-8";
+
+    private final Map<String, String> rootAttributes;
+    @Nullable
+    private final Set<Attribute> includedAttributes;
+    private final boolean shouldNormalizeTagNames = Settings.get(NormalizeTagNames.class).getValue();
+    private final SnapshotElement documentElement;
+    private int nodesCount;
+    private String documentURI;
+
+    /**
+     * @param rootElement the root of the hierarchy snapshot
+     * @param rootAttributes additional attributes of the root element,
+     *                       which are not part of the snapshot
+     * @param includedAttributes snapshot attributes to expose or null to expose all of them.
+     *                           The snapshot might contain more attributes than the query needs,
+     *                           for example, if it has been cached, and XPath engines read all
+     *                           attributes of each element they visit.
+     */
+    public SnapshotDocument(UiElement<?, ?> rootElement, Map<String, String> rootAttributes,
+                            @Nullable Set<Attribute> includedAttributes) {
+        this.rootAttributes = rootAttributes;
+        this.includedAttributes = includedAttributes;
+        this.documentElement = new SnapshotElement(this, this, rootElement, 0);
+    }
+
+    public SnapshotDocument(UiElement<?, ?> rootElement, Map<String, String> rootAttributes) {
+        this(rootElement, rootAttributes, null);
+    }
+
+    public SnapshotDocument(UiElement<?, ?> rootElement) {
+        this(rootElement, Collections.<String, String>emptyMap());
+    }
+
+    int nextOrder() {
+        return ++nodesCount;
+    }
+
+    String toTagName(@Nullable String className) {
+        return toXmlNodeName(className, shouldNormalizeTagNames);
+    }
+
+    Map<String, String> getRootAttributes() {
+        return rootAttributes;
+    }
+
+    /**
+     * The class name is always exposed like it is always included into snapshots
+     */
+    boolean isAttributeIncluded(Attribute attribute) {
+        return includedAttributes == null || attribute == Attribute.CLASS
+                || includedAttributes.contains(attribute);
+    }
+
+    /**
+     * @param node the accessibility node to look for
+     * @return the element wrapping the given node or null if the snapshot does not contain it
+     */
+    @Nullable
+    public SnapshotElement findElement(AccessibilityNodeInfo node) {
+        return documentElement.find(node);
+    }
+
+    @Override
+    SnapshotDocument getDocument() {
+        return this;
+    }
+
+    @Override
+    SnapshotNode getContainer() {
+        return null;
+    }
+
+    @Override
+    int getOrder() {
+        return 0;
+    }
+
+    @Override
+    public String getNodeName() {
+        return NODE_NAME;
+    }
+
+    @Override
+    public short getNodeType() {
+        return DOCUMENT_NODE;
+    }
+
+    @Override
+    public NodeList getChildNodes() {
+        return new SnapshotNodeList(Collections.singletonList(documentElement));
+    }
+
+    @Override
+    public Node getFirstChild() {
+        return documentElement;
+    }
+
+    @Override
+    public Node getLastChild() {
+        return documentElement;
+    }
+
+    @Override
+    public Document getOwnerDocument() {
+        return null;
+    }
+
+    @Override
+    public String getTextContent() throws DOMException {
+        return null;
+    }
+
+    @Override
+    public DocumentType getDoctype() {
+        return null;
+    }
+
+    @Override
+    public DOMImplementation getImplementation() {
+        return null;
+    }
+
+    @Override
+    public SnapshotElement getDocumentElement() {
+        return documentElement;
+    }
+
+    @Override
+    public Element createElement(String tagName) throws DOMException {
+        throw notSupported();
+    }
+
+    @Override
+    public DocumentFragment createDocumentFragment() {
+        throw notSupported();
+    }
+
+    @Override
+    public Text createTextNode(String data) {
+        throw notSupported();
+    }
+
+    @Override
+    public Comment createComment(String data) {
+        throw notSupported();
+    }
+
+    @Override
+    public CDATASection createCDATASection(String data) throws DOMException {
+        throw notSupported();
+    }
+
+    @Override
+    public ProcessingInstruction createProcessingInstruction(String target, String data) throws DOMException {
+        throw notSupported();
+    }
+
+    @Override
+    public Attr createAttribute(String name) throws DOMException {
+        throw notSupported();
+    }
+
+    @Override
+    public EntityReference createEntityReference(String name) throws DOMException {
+        throw notSupported();
+    }
+
+    @Override
+    public NodeList getElementsByTagName(String tagname) {
+        List<Node> result = new ArrayList<>();
+        if ("*".equals(tagname) || documentElement.getTagName().equals(tagname)) {
+            result.add(documentElement);
+        }
+        documentElement.collectDescendants(tagname, result);
+        return new SnapshotNodeList(result);
+    }
+
+    @Override
+    public Node importNode(Node importedNode, boolean deep) throws DOMException {
+        throw notSupported();
+    }
+
+    @Override
+    public Element createElementNS(String namespaceURI, String qualifiedName) throws DOMException {
+        throw notSupported();
+    }
+
+    @Override
+    public Attr createAttributeNS(String namespaceURI, String qualifiedName) throws DOMException {
+        throw notSupported();
+    }
+
+    @Override
+    public NodeList getElementsByTagNameNS(String namespaceURI, String localName) {
+        return namespaceURI == null || namespaceURI.isEmpty() || "*".equals(namespaceURI)
+                ? getElementsByTagName(localName)
+                : SnapshotNodeList.EMPTY;
+    }
+
+    @Override
+    public Element getElementById(String elementId) {
+        return null;
+    }
+
+    @Override
+    public String getInputEncoding() {
+        return null;
+    }
+
+    @Override
+    public String getXmlEncoding() {
+        return XML_ENCODING;
+    }
+
+    @Override
+    public boolean getXmlStandalone() {
+        return true;
+    }
+
+    @Override
+    public void setXmlStandalone(boolean xmlStandalone) throws DOMException {
+        throw readOnly();
+    }
+
+    @Override
+    public String getXmlVersion() {
+        return XML_VERSION;
+    }
+
+    @Override
+    public void setXmlVersion(String xmlVersion) throws DOMException {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean getStrictErrorChecking() {
+        return true;
+    }
+
+    @Override
+    public void setStrictErrorChecking(boolean strictErrorChecking) {
+        // the document is read-only anyway
+    }
+
+    @Override
+    public String getDocumentURI() {
+        return documentURI;
+    }
+
+    @Override
+    public void setDocumentURI(String documentURI) {
+        // XPath engines may assign the URI to the context document
+        this.documentURI = documentURI;
+    }
+
+    @Override
+    public Node adoptNode(Node source) throws DOMException {
+        throw readOnly();
+    }
+
+    @Override
+    public DOMConfiguration getDomConfig() {
+        return null;
+    }
+
+    @Override
+    public void normalizeDocument() {
+        // the snapshot is always normalized
+    }
+
+    @Override
+    public Node renameNode(Node n, String namespaceURI, String qualifiedName) throws DOMException {
+        throw readOnly();
+    }
+}
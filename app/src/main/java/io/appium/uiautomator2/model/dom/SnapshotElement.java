@@ -0,0 +1,323 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.model.dom;
+
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import androidx.annotation.Nullable;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.TypeInfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import io.appium.uiautomator2.model.UiElement;
+import io.appium.uiautomator2.utils.Attribute;
+
+import static io.appium.uiautomator2.utils.XMLHelpers.NON_XML_CHAR_REPLACEMENT;
+import static io.appium.uiautomator2.utils.XMLHelpers.toSafeString;
+
+/**
+ * A read-only DOM element exposing the attributes of a hierarchy snapshot element
+ * the same way they appear in the page source XML.
+ */
+public class SnapshotElement extends SnapshotNode implements Element {
+    private static final String ANY_NAME = "*";
+
+    private final SnapshotDocument document;
+    private final SnapshotNode parent;
+    private final UiElement<?, ?> uiElement;
+    private final String tagName;
+    private final int order;
+    private final int index;
+    private final SnapshotElement[] children;
+    // Attribute values are only retrieved if the query needs them
+    private SnapshotAttr[] attributes;
+
+    SnapshotElement(SnapshotDocument document, SnapshotNode parent, UiElement<?, ?> uiElement,
+                    int index) {
+        this.document = document;
+        this.parent = parent;
+        this.uiElement = uiElement;
+        this.index = index;
+        this.order = document.nextOrder();
+        this.tagName = document.toTagName(uiElement.getClassName());
+        List<? extends UiElement<?, ?>> uiChildren = uiElement.getChildren();
+        this.children = new SnapshotElement[uiChildren.size()];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = new SnapshotElement(document, this, uiChildren.get(i), i);
+        }
+    }
+
+    public UiElement<?, ?> getUiElement() {
+        return uiElement;
+    }
+
+    private SnapshotAttr[] getAttributeNodes() {
+        if (attributes == null) {
+            List<SnapshotAttr> result = new ArrayList<>();
+            for (Attribute attr : uiElement.attributeKeys()) {
+                if (!attr.isExposableToXml() || !document.isAttributeIncluded(attr)) {
+                    continue;
+                }
+                Object value = uiElement.get(attr);
+                if (value == null) {
+                    continue;
+                }
+                result.add(new SnapshotAttr(this, attr.getName(),
+                        toSafeString(value, NON_XML_CHAR_REPLACEMENT), result.size()));
+            }
+            if (document.getDocumentElement() == this) {
+                for (Map.Entry<String, String> entry : document.getRootAttributes().entrySet()) {
+                    result.add(new SnapshotAttr(this, entry.getKey(), entry.getValue(), result.size()));
+                }
+            }
+            attributes = result.toArray(new SnapshotAttr[0]);
+        }
+        return attributes;
+    }
+
+    @Nullable
+    SnapshotElement find(AccessibilityNodeInfo node) {
+        if (Objects.equals(uiElement.getNode(), node)) {
+            return this;
+        }
+        for (SnapshotElement child : children) {
+            SnapshotElement result = child.find(node);
+            if (result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    void collectDescendants(String name, List<Node> result) {
+        for (SnapshotElement child : children) {
+            if (ANY_NAME.equals(name) || child.tagName.equals(name)) {
+                result.add(child);
+            }
+            child.collectDescendants(name, result);
+        }
+    }
+
+    @Override
+    SnapshotDocument getDocument() {
+        return document;
+    }
+
+    @Override
+    SnapshotNode getContainer() {
+        return parent;
+    }
+
+    @Override
+    int getOrder() {
+        return order;
+    }
+
+    @Override
+    public String getNodeName() {
+        return tagName;
+    }
+
+    @Override
+    public String getLocalName() {
+        return tagName;
+    }
+
+    @Override
+    public short getNodeType() {
+        return ELEMENT_NODE;
+    }
+
+    @Override
+    public Node getParentNode() {
+        return parent;
+    }
+
+    @Override
+    public NodeList getChildNodes() {
+        return children.length == 0 ? SnapshotNodeList.EMPTY : new SnapshotNodeList(Arrays.asList(children));
+    }
+
+    @Override
+    public Node getFirstChild() {
+        return children.length == 0 ? null : children[0];
+    }
+
+    @Override
+    public Node getLastChild() {
+        return children.length == 0 ? null : children[children.length - 1];
+    }
+
+    @Override
+    public Node getPreviousSibling() {
+        return parent instanceof SnapshotElement && index > 0
+                ? ((SnapshotElement) parent).children[index - 1]
+                : null;
+    }
+
+    @Override
+    public Node getNextSibling() {
+        if (!(parent instanceof SnapshotElement)) {
+            return null;
+        }
+        SnapshotElement[] siblings = ((SnapshotElement) parent).children;
+        return index + 1 < siblings.length ? siblings[index + 1] : null;
+    }
+
+    @Override
+    public NamedNodeMap getAttributes() {
+        return new SnapshotNamedNodeMap(getAttributeNodes());
+    }
+
+    @Override
+    public boolean hasAttributes() {
+        return getAttributeNodes().length > 0;
+    }
+
+    @Override
+    public Document getOwnerDocument() {
+        return document;
+    }
+
+    @Override
+    public String getTextContent() throws DOMException {
+        // Snapshot elements never have text children
+        return "";
+    }
+
+    @Override
+    public String getTagName() {
+        return tagName;
+    }
+
+    @Override
+    public String getAttribute(String name) {
+        Attr attribute = getAttributeNode(name);
+        return attribute == null ? "" : attribute.getValue();
+    }
+
+    @Override
+    public void setAttribute(String name, String value) throws DOMException {
+        throw readOnly();
+    }
+
+    @Override
+    public void removeAttribute(String name) throws DOMException {
+        throw readOnly();
+    }
+
+    @Override
+    public Attr getAttributeNode(String name) {
+        for (SnapshotAttr attribute : getAttributeNodes()) {
+            if (attribute.getName().equals(name)) {
+                return attribute;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Attr setAttributeNode(Attr newAttr) throws DOMException {
+        throw readOnly();
+    }
+
+    @Override
+    public Attr removeAttributeNode(Attr oldAttr) throws DOMException {
+        throw readOnly();
+    }
+
+    @Override
+    public NodeList getElementsByTagName(String name) {
+        List<Node> result = new ArrayList<>();
+        collectDescendants(name, result);
+        return new SnapshotNodeList(result);
+    }
+
+    @Override
+    public String getAttributeNS(String namespaceURI, String localName) throws DOMException {
+        return namespaceURI == null || namespaceURI.isEmpty() ? getAttribute(localName) : "";
+    }
+
+    @Override
+    public void setAttributeNS(String namespaceURI, String qualifiedName, String value) throws DOMException {
+        throw readOnly();
+    }
+
+    @Override
+    public void removeAttributeNS(String namespaceURI, String localName) throws DOMException {
+        throw readOnly();
+    }
+
+    @Override
+    public Attr getAttributeNodeNS(String namespaceURI, String localName) throws DOMException {
+        return namespaceURI == null || namespaceURI.isEmpty() ? getAttributeNode(localName) : null;
+    }
+
+    @Override
+    public Attr setAttributeNodeNS(Attr newAttr) throws DOMException {
+        throw readOnly();
+    }
+
+    @Override
+    public NodeList getElementsByTagNameNS(String namespaceURI, String localName) throws DOMException {
+        return namespaceURI == null || namespaceURI.isEmpty() || ANY_NAME.equals(namespaceURI)
+                ? getElementsByTagName(localName)
+                : SnapshotNodeList.EMPTY;
+    }
+
+    @Override
+    public boolean hasAttribute(String name) {
+        return getAttributeNode(name) != null;
+    }
+
+    @Override
+    public boolean hasAttributeNS(String namespaceURI, String localName) throws DOMException {
+        return getAttributeNodeNS(namespaceURI, localName) != null;
+    }
+
+    @Override
+    public TypeInfo getSchemaTypeInfo() {
+        return NO_TYPE_INFO;
+    }
+
+    @Override
+    public void setIdAttribute(String name, boolean isId) throws DOMException {
+        throw readOnly();
+    }
+
+    @Override
+    public void setIdAttributeNS(String namespaceURI, String localName, boolean isId) throws DOMException {
+        throw readOnly();
+    }
+
+    @Override
+    public void setIdAttributeNode(Attr idAttr, boolean isId) throws DOMException {
+        throw readOnly();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.model.dom;
+
+import org.w3c.dom.DOMException;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+class SnapshotNamedNodeMap implements NamedNodeMap {
+    private final SnapshotAttr[] attributes;
+
+    SnapshotNamedNodeMap(SnapshotAttr[] attributes) {
+        this.attributes = attributes;
+    }
+
+    @Override
+    public Node getNamedItem(String name) {
+        for (SnapshotAttr attribute : attributes) {
+            if (attribute.getName().equals(name)) {
+                return attribute;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Node setNamedItem(Node arg) throws DOMException {
+        throw SnapshotNode.readOnly();
+    }
+
+    @Override
+    public Node removeNamedItem(String name) throws DOMException {
+        throw SnapshotNode.readOnly();
+    }
+
+    @Override
+    public Node item(int index) {
+        return index >= 0 && index < attributes.length ? attributes[index] : null;
+    }
+
+    @Override
+    public int getLength() {
+        return attributes.length;
+    }
+
+    @Override
+    public Node getNamedItemNS(String namespaceURI, String localName) throws DOMException {
+        return namespaceURI == null || namespaceURI.isEmpty() ? getNamedItem(localName) : null;
+    }
+
+    @Override
+    public Node setNamedItemNS(Node arg) throws DOMException {
+        throw SnapshotNode.readOnly();
+    }
+
+    @Override
+    public Node removeNamedItemNS(String namespaceURI, String localName) throws DOMException {
+        throw SnapshotNode.readOnly();
+    }
+}
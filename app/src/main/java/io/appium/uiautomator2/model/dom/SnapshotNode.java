@@ -0,0 +1,322 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.model.dom;
+
+import androidx.annotation.Nullable;
+
+import org.w3c.dom.DOMException;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.TypeInfo;
+import org.w3c.dom.UserDataHandler;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The common part of read-only DOM nodes backed by a hierarchy snapshot.
+ * Any attempt to modify the tree throws {@link DOMException}.
+ */
+abstract class SnapshotNode implements Node {
+    static final TypeInfo NO_TYPE_INFO = new TypeInfo() {
+        @Override
+        public String getTypeName() {
+            return null;
+        }
+
+        @Override
+        public String getTypeNamespace() {
+            return null;
+        }
+
+        @Override
+        public boolean isDerivedFrom(String typeNamespaceArg, String typeNameArg, int derivationMethod) {
+            return false;
+        }
+    };
+
+    private Map<String, Object> userData;
+
+    static DOMException readOnly() {
+        return new DOMException(DOMException.NO_MODIFICATION_ALLOWED_ERR,
+                "The hierarchy snapshot cannot be modified");
+    }
+
+    static DOMException notSupported() {
+        return new DOMException(DOMException.NOT_SUPPORTED_ERR,
+                "The operation is not supported by the hierarchy snapshot");
+    }
+
+    abstract SnapshotDocument getDocument();
+
+    /**
+     * @return the node which contains this one in the tree. For attributes this is their owner element.
+     */
+    @Nullable
+    abstract SnapshotNode getContainer();
+
+    /**
+     * @return the position of the node or its owner element in document order
+     */
+    abstract int getOrder();
+
+    /**
+     * @return the position of the node relative to its owner element
+     * or zero if the node is not an attribute
+     */
+    int getSubOrder() {
+        return 0;
+    }
+
+    private boolean isAncestorOf(SnapshotNode node) {
+        for (SnapshotNode container = node.getContainer(); container != null;
+             container = container.getContainer()) {
+            if (container == this) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String getNodeValue() throws DOMException {
+        return null;
+    }
+
+    @Override
+    public void setNodeValue(String nodeValue) throws DOMException {
+        throw readOnly();
+    }
+
+    @Override
+    public Node getParentNode() {
+        return null;
+    }
+
+    @Override
+    public NodeList getChildNodes() {
+        return SnapshotNodeList.EMPTY;
+    }
+
+    @Override
+    public Node getFirstChild() {
+        return null;
+    }
+
+    @Override
+    public Node getLastChild() {
+        return null;
+    }
+
+    @Override
+    public Node getPreviousSibling() {
+        return null;
+    }
+
+    @Override
+    public Node getNextSibling() {
+        return null;
+    }
+
+    @Override
+    public NamedNodeMap getAttributes() {
+        return null;
+    }
+
+    @Override
+    public Node insertBefore(Node newChild, Node refChild) throws DOMException {
+        throw readOnly();
+    }
+
+    @Override
+    public Node replaceChild(Node newChild, Node oldChild) throws DOMException {
+        throw readOnly();
+    }
+
+    @Override
+    public Node removeChild(Node oldChild) throws DOMException {
+        throw readOnly();
+    }
+
+    @Override
+    public Node appendChild(Node newChild) throws DOMException {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean hasChildNodes() {
+        return getFirstChild() != null;
+    }
+
+    @Override
+    public Node cloneNode(boolean deep) {
+        throw notSupported();
+    }
+
+    @Override
+    public void normalize() {
+        // the snapshot never contains adjacent text nodes
+    }
+
+    @Override
+    public boolean isSupported(String feature, String version) {
+        return false;
+    }
+
+    @Override
+    public String getNamespaceURI() {
+        return null;
+    }
+
+    @Override
+    public String getPrefix() {
+        return null;
+    }
+
+    @Override
+    public void setPrefix(String prefix) throws DOMException {
+        throw readOnly();
+    }
+
+    @Override
+    public String getLocalName() {
+        return null;
+    }
+
+    @Override
+    public boolean hasAttributes() {
+        return false;
+    }
+
+    @Override
+    public String getBaseURI() {
+        return null;
+    }
+
+    @Override
+    public short compareDocumentPosition(Node other) throws DOMException {
+        if (other == this) {
+            return 0;
+        }
+        if (!(other instanceof SnapshotNode) || ((SnapshotNode) other).getDocument() != getDocument()) {
+            return (short) (DOCUMENT_POSITION_DISCONNECTED | DOCUMENT_POSITION_IMPLEMENTATION_SPECIFIC
+                    | (System.identityHashCode(this) < System.identityHashCode(other)
+                        ? DOCUMENT_POSITION_FOLLOWING
+                        : DOCUMENT_POSITION_PRECEDING));
+        }
+        SnapshotNode that = (SnapshotNode) other;
+        if (that.isAncestorOf(this)) {
+            return DOCUMENT_POSITION_CONTAINS | DOCUMENT_POSITION_PRECEDING;
+        }
+        if (isAncestorOf(that)) {
+            return DOCUMENT_POSITION_CONTAINED_BY | DOCUMENT_POSITION_FOLLOWING;
+        }
+        boolean isBefore = getOrder() == that.getOrder()
+                ? getSubOrder() < that.getSubOrder()
+                : getOrder() < that.getOrder();
+        return isBefore ? DOCUMENT_POSITION_FOLLOWING : DOCUMENT_POSITION_PRECEDING;
+    }
+
+    @Override
+    public String getTextContent() throws DOMException {
+        return getNodeValue();
+    }
+
+    @Override
+    public void setTextContent(String textContent) throws DOMException {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean isSameNode(Node other) {
+        return other == this;
+    }
+
+    @Override
+    public String lookupPrefix(String namespaceURI) {
+        return null;
+    }
+
+    @Override
+    public boolean isDefaultNamespace(String namespaceURI) {
+        return namespaceURI == null || namespaceURI.isEmpty();
+    }
+
+    @Override
+    public String lookupNamespaceURI(String prefix) {
+        return null;
+    }
+
+    @Override
+    public boolean isEqualNode(Node other) {
+        if (other == this) {
+            return true;
+        }
+        if (other == null || other.getNodeType() != getNodeType()
+                || !Objects.equals(getNodeName(), other.getNodeName())
+                || !Objects.equals(getNodeValue(), other.getNodeValue())) {
+            return false;
+        }
+        NamedNodeMap attributes = getAttributes();
+        NamedNodeMap otherAttributes = other.getAttributes();
+        if (attributes != null && otherAttributes != null) {
+            if (attributes.getLength() != otherAttributes.getLength()) {
+                return false;
+            }
+            for (int i = 0; i < attributes.getLength(); i++) {
+                Node attribute = attributes.item(i);
+                Node otherAttribute = otherAttributes.getNamedItem(attribute.getNodeName());
+                if (otherAttribute == null || !attribute.isEqualNode(otherAttribute)) {
+                    return false;
+                }
+            }
+        } else if (attributes != otherAttributes) {
+            return false;
+        }
+        NodeList children = getChildNodes();
+        NodeList otherChildren = other.getChildNodes();
+        if (children.getLength() != otherChildren.getLength()) {
+            return false;
+        }
+        for (int i = 0; i < children.getLength(); i++) {
+            if (!children.item(i).isEqualNode(otherChildren.item(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Object getFeature(String feature, String version) {
+        return null;
+    }
+
+    @Override
+    public synchronized Object setUserData(String key, Object data, UserDataHandler handler) {
+        if (userData == null) {
+            userData = new HashMap<>();
+        }
+        return data == null ? userData.remove(key) : userData.put(key, data);
+    }
+
+    @Override
+    public synchronized Object getUserData(String key) {
+        return userData == null ? null : userData.get(key);
+    }
+}
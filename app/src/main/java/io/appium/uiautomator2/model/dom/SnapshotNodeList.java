@@ -0,0 +1,43 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.model.dom;
+
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.util.Collections;
+import java.util.List;
+
+class SnapshotNodeList implements NodeList {
+    static final SnapshotNodeList EMPTY = new SnapshotNodeList(Collections.<Node>emptyList());
+
+    private final List<? extends Node> nodes;
+
+    SnapshotNodeList(List<? extends Node> nodes) {
+        this.nodes = nodes;
+    }
+
+    @Override
+    public Node item(int index) {
+        return index >= 0 && index < nodes.size() ? nodes.get(index) : null;
+    }
+
+    @Override
+    public int getLength() {
+        return nodes.size();
+    }
+}
@@ -41,6 +41,8 @@ import io.appium.uiautomator2.common.exceptions.InvalidSelectorException;
 import io.appium.uiautomator2.common.exceptions.UiAutomator2Exception;
 import io.appium.uiautomator2.model.AccessibleUiObject;
 import io.appium.uiautomator2.model.ScreenRotation;
+import io.appium.uiautomator2.server.metrics.ServerMetrics;
+import io.appium.uiautomator2.server.metrics.Stage;
 import io.appium.uiautomator2.utils.Device;
 import io.appium.uiautomator2.utils.Logger;
 import io.appium.uiautomator2.utils.NodeInfoList;
@@ -121,8 +123,13 @@ public class CustomUiDevice {
     public AccessibleUiObject findObject(Object selector) throws UiAutomator2Exception {
         final AccessibilityNodeInfo node;
         if (selector instanceof BySelector) {
-            node = (AccessibilityNodeInfo) invoke(METHOD_FIND_MATCH, ByMatcherClass,
-                    Device.getUiDevice(), selector, getCachedWindowRoots());
+            final long startNs = System.nanoTime();
+            try {
+                node = (AccessibilityNodeInfo) invoke(METHOD_FIND_MATCH, ByMatcherClass,
+                        Device.getUiDevice(), selector, getCachedWindowRoots());
+            } finally {
+                recordStage(Stage.SELECTOR_MATCHING, startNs);
+            }
         } else if (selector instanceof NodeInfoList) {
             node = ((NodeInfoList) selector).getFirst();
             selector = toSelector(node);
@@ -134,7 +141,15 @@ public class CustomUiDevice {
         } else {
             throw new InvalidSelectorException("Selector of type " + selector.getClass().getName() + " not supported");
         }
-        return node == null ? null : new AccessibleUiObject(toUiObject2(selector, node), node);
+        if (node == null) {
+            return null;
+        }
+        final long startNs = System.nanoTime();
+        try {
+            return new AccessibleUiObject(toUiObject2(selector, node), node);
+        } finally {
+            recordStage(Stage.ELEMENT_WRAPPING, startNs);
+        }
     }
 
     public synchronized GestureController getGestureController() {
@@ -154,22 +169,33 @@ public class CustomUiDevice {
 
         final List<AccessibilityNodeInfo> axNodesList;
         if (selector instanceof BySelector) {
-            //noinspection unchecked
-            axNodesList = (List<AccessibilityNodeInfo>) invoke(
-                    METHOD_FIND_MATCHES, ByMatcherClass, getUiDevice(), selector, getCachedWindowRoots());
+            final long startNs = System.nanoTime();
+            try {
+                //noinspection unchecked
+                axNodesList = (List<AccessibilityNodeInfo>) invoke(
+                        METHOD_FIND_MATCHES, ByMatcherClass, getUiDevice(), selector, getCachedWindowRoots());
+            } finally {
+                recordStage(Stage.SELECTOR_MATCHING, startNs);
+            }
         } else if (selector instanceof NodeInfoList) {
             axNodesList = ((NodeInfoList) selector).getAll();
         } else {
             throw new InvalidSelectorException("Selector of type " + selector.getClass().getName() + " not supported");
         }
+        final long startNs = System.nanoTime();
         for (AccessibilityNodeInfo node : axNodesList) {
             UiObject2 uiObject2 = toUiObject2(toSelector(node), node);
             ret.add(new AccessibleUiObject(uiObject2, node));
         }
+        recordStage(Stage.ELEMENT_WRAPPING, startNs);
 
         return ret;
     }
 
+    private static void recordStage(Stage stage, long startNs) {
+        ServerMetrics.getInstance().recordStage(stage, System.nanoTime() - startNs);
+    }
+
     @Nullable
     private static BySelector toSelector(@Nullable AccessibilityNodeInfo nodeInfo) {
         if (nodeInfo == null) {
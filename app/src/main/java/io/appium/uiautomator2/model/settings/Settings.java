@@ -42,7 +42,10 @@ public enum Settings {
     MJPEG_SCALING_FACTOR(new MjpegScalingFactor()),
     MJPEG_SERVER_SCREENSHOT_QUALITY(new MjpegServerScreenshotQuality()),
     MJPEG_BILINEAR_FILTERING(new MjpegBilinearFiltering()),
-    USE_RESOURCES_FOR_ORIENTATION_DETECTION(new UseResourcesForOrientationDetection());
+    USE_RESOURCES_FOR_ORIENTATION_DETECTION(new UseResourcesForOrientationDetection()),
+    INCLUDE_SERVER_TIMING(new IncludeServerTiming()),
+    FORCE_FRESH_SNAPSHOT(new ForceFreshSnapshot()),
+    PARALLEL_SNAPSHOT_CAPTURE(new ParallelSnapshotCapture());
 
     private final ISetting<?> setting;
 
@@ -16,6 +16,8 @@
 
 package io.appium.uiautomator2.server;
 
+import androidx.annotation.Nullable;
+
 import io.appium.uiautomator2.http.HttpServer;
 import io.appium.uiautomator2.utils.Logger;
 
@@ -23,9 +25,14 @@ public class AndroidServer {
     private final HttpServer webServer;
 
     public AndroidServer(int port) {
-        webServer = new HttpServer(port);
+        this(port, null);
+    }
+
+    public AndroidServer(int port, @Nullable String localSocketName) {
+        webServer = new HttpServer(port, localSocketName);
         init();
-        Logger.info("AndroidServer created on port " + port);
+        Logger.info("AndroidServer created on port " + port
+                + (localSocketName == null ? "" : " and local socket " + localSocketName));
     }
 
     private void init() {
@@ -18,14 +18,11 @@ package io.appium.uiautomator2.server;
 
 import androidx.annotation.Nullable;
 
-import java.io.UnsupportedEncodingException;
-import java.net.URLDecoder;
-import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 
 import io.appium.uiautomator2.handler.AcceptAlert;
+import io.appium.uiautomator2.handler.Batch;
 import io.appium.uiautomator2.handler.CaptureScreenshot;
 import io.appium.uiautomator2.handler.Clear;
 import io.appium.uiautomator2.handler.Click;
@@ -46,6 +43,7 @@ import io.appium.uiautomator2.handler.GetDeviceSize;
 import io.appium.uiautomator2.handler.GetDisplayDensity;
 import io.appium.uiautomator2.handler.GetElementAttribute;
 import io.appium.uiautomator2.handler.GetElementScreenshot;
+import io.appium.uiautomator2.handler.GetMetrics;
 import io.appium.uiautomator2.handler.GetName;
 import io.appium.uiautomator2.handler.GetOrientation;
 import io.appium.uiautomator2.handler.GetRect;
@@ -85,6 +83,7 @@ import io.appium.uiautomator2.http.AppiumResponse;
 import io.appium.uiautomator2.http.IHttpRequest;
 import io.appium.uiautomator2.http.IHttpResponse;
 import io.appium.uiautomator2.http.IHttpServlet;
+import io.appium.uiautomator2.server.metrics.RequestTiming;
 
 public class AppiumServlet implements IHttpServlet {
 
@@ -92,14 +91,24 @@ public class AppiumServlet implements IHttpServlet {
 
     public static final String ELEMENT_ID_KEY = "id";
     private static final String COMMAND_NAME_KEY = "COMMAND_KEY";
+    private static final String SERVER_TIMING_HEADER = "Server-Timing";
     public static final String NAME_ID_KEY = "NAME_ID_KEY";
     public static final int MAX_ELEMENTS = 3;
     public static final int SECOND_ELEMENT_IDX = 2;
-    private static final ConcurrentMap<String, BaseRequestHandler> getHandler = new ConcurrentHashMap<>();
-    private static final ConcurrentMap<String, BaseRequestHandler> postHandler = new ConcurrentHashMap<>();
-    private static final ConcurrentMap<String, BaseRequestHandler> deleteHandler = new ConcurrentHashMap<>();
-    private final ConcurrentMap<String, String[]> mapperUrlSectionsCache = new ConcurrentHashMap<>();
+    private static final Map<String, String> PARAM_KEYS = new HashMap<>();
+    static {
+        PARAM_KEYS.put("sessionId", SESSION_ID_KEY);
+        PARAM_KEYS.put("command", COMMAND_NAME_KEY);
+        PARAM_KEYS.put("name", NAME_ID_KEY);
+        PARAM_KEYS.put(ELEMENT_ID_KEY, ELEMENT_ID_KEY);
+        for (int elementIdx = SECOND_ELEMENT_IDX; elementIdx < MAX_ELEMENTS + SECOND_ELEMENT_IDX; ++elementIdx) {
+            PARAM_KEYS.put(ELEMENT_ID_KEY + elementIdx, ELEMENT_ID_KEY + elementIdx);
+        }
+    }
 
+    private final RouteTree<BaseRequestHandler> getHandler = new RouteTree<>();
+    private final RouteTree<BaseRequestHandler> postHandler = new RouteTree<>();
+    private final RouteTree<BaseRequestHandler> deleteHandler = new RouteTree<>();
 
     public AppiumServlet() {
         init();
@@ -147,6 +156,7 @@ public class AppiumServlet implements IHttpServlet {
         register(postHandler, new SetClipboard("/session/:sessionId/appium/device/set_clipboard"));
         register(postHandler, new AcceptAlert("/session/:sessionId/alert/accept"));
         register(postHandler, new DismissAlert("/session/:sessionId/alert/dismiss"));
+        register(postHandler, new Batch("/session/:sessionId/appium/batch", this));
 
         register(postHandler, new io.appium.uiautomator2.handler.gestures.Drag("/session/:sessionId/appium/gestures/drag"));
         register(postHandler, new io.appium.uiautomator2.handler.gestures.Fling("/session/:sessionId/appium/gestures/fling"));
@@ -161,6 +171,7 @@ public class AppiumServlet implements IHttpServlet {
 
     private void registerGetHandler() {
         register(getHandler, new Status("/status"));
+        register(getHandler, new GetMetrics("/appium/metrics"));
         register(getHandler, new GetSessions("/sessions"));
         register(getHandler, new GetSessionDetails("/session/:sessionId"));
         register(getHandler, new CaptureScreenshot("/session/:sessionId/screenshot"));
@@ -189,83 +200,62 @@ public class AppiumServlet implements IHttpServlet {
         register(getHandler, new GetDisplayDensity("/session/:sessionId/appium/device/display_density"));
     }
 
-    private void register(Map<String, BaseRequestHandler> registerOn, BaseRequestHandler handler) {
-        registerOn.put(handler.getMappedUri(), handler);
+    private void register(RouteTree<BaseRequestHandler> registerOn, BaseRequestHandler handler) {
+        registerOn.add(handler.getMappedUri(), handler);
     }
 
-    private BaseRequestHandler findMatcher(IHttpRequest request, Map<String, BaseRequestHandler> handler) {
-        String[] urlToMatchSections = getRequestUrlSections(request.uri());
-        for (Map.Entry<String, ? extends BaseRequestHandler> entry : handler.entrySet()) {
-            String[] mapperUrlSections = getMapperUrlSectionsCached(entry.getKey());
-            if (isFor(mapperUrlSections, urlToMatchSections)) {
-                return entry.getValue();
-            }
+    @Nullable
+    private RouteTree<BaseRequestHandler> getRoutes(String method) {
+        if ("GET".equals(method)) {
+            return getHandler;
         }
-        return null;
-    }
-
-    private String[] getRequestUrlSections(String urlToMatch) {
-        if (urlToMatch == null) {
-            return null;
+        if ("POST".equals(method)) {
+            return postHandler;
         }
-        int qPos = urlToMatch.indexOf('?');
-        if (qPos != -1) {
-            urlToMatch = urlToMatch.substring(0, urlToMatch.indexOf("?"));
+        if ("DELETE".equals(method)) {
+            return deleteHandler;
         }
-        return urlToMatch.split("/");
+        return null;
     }
 
-    private String[] getMapperUrlSectionsCached(String mapperUrl) {
-        String[] sections = mapperUrlSectionsCache.get(mapperUrl);
-        if (sections == null) {
-            sections = mapperUrl.split("/");
-            for (int i = 0; i < sections.length; i++) {
-                String section = sections[i];
-                // To work around a but in Selenium Grid 2.31.0.
-                int qPos = section.indexOf('?');
-                if (qPos != -1) {
-                    sections[i] = section.substring(0, qPos);
-                }
-            }
-            mapperUrlSectionsCache.put(mapperUrl, sections);
+    @Override
+    public void handleHttpRequest(IHttpRequest request, IHttpResponse response) {
+        RouteTree.Match<BaseRequestHandler> match = findRoute(request);
+        if (match == null) {
+            return;
+        }
+        RequestTiming timing = RequestTiming.start();
+        try {
+            AppiumResponse result = handleRequest(request, match);
+            // Streamed content is sent after the headers, so its serialization is not included
+            response.setHeader(SERVER_TIMING_HEADER, timing.toServerTimingHeader());
+            handleResponse(response, result);
+        } finally {
+            RequestTiming.finish();
         }
-        return sections;
     }
 
-    private boolean isFor(String[] mapperUrlSections, String[] urlToMatchSections) {
-        if (urlToMatchSections == null) {
-            return mapperUrlSections.length == 0;
-        }
-        if (mapperUrlSections.length != urlToMatchSections.length) {
-            return false;
-        }
-        for (int i = 0; i < mapperUrlSections.length; i++) {
-            if (!(mapperUrlSections[i].startsWith(":") || mapperUrlSections[i].equals(urlToMatchSections[i]))) {
-                return false;
-            }
-        }
-        return true;
+    /**
+     * Executes the given request in-process without rendering its result.
+     *
+     * @param request the request to execute
+     * @return the command result or null if no handler is registered for the request
+     */
+    @Nullable
+    public AppiumResponse execute(IHttpRequest request) {
+        RouteTree.Match<BaseRequestHandler> match = findRoute(request);
+        return match == null ? null : handleRequest(request, match);
     }
 
-    @Override
-    public void handleHttpRequest(IHttpRequest request, IHttpResponse response) {
-        BaseRequestHandler handler = null;
-        if ("GET".equals(request.method())) {
-            handler = findMatcher(request, getHandler);
-        } else if ("POST".equals(request.method())) {
-            handler = findMatcher(request, postHandler);
-        } else if ("DELETE".equals(request.method())) {
-            handler = findMatcher(request, deleteHandler);
-        }
-        if (handler != null) {
-            handleRequest(request, response, handler);
-        }
+    @Nullable
+    private RouteTree.Match<BaseRequestHandler> findRoute(IHttpRequest request) {
+        RouteTree<BaseRequestHandler> routes = getRoutes(request.method());
+        return routes == null ? null : routes.match(request.uri());
     }
 
-    private void handleRequest(IHttpRequest request, IHttpResponse response, BaseRequestHandler handler) {
-        addHandlerAttributesToRequest(request, handler.getMappedUri());
-        AppiumResponse result = handler.handle(request);
-        handleResponse(response, result);
+    private AppiumResponse handleRequest(IHttpRequest request, RouteTree.Match<BaseRequestHandler> match) {
+        addHandlerAttributesToRequest(request, match.getParams());
+        return match.getValue().handle(request);
     }
 
     private void handleResponse(IHttpResponse response, @Nullable AppiumResponse result) {
@@ -275,51 +265,12 @@ public class AppiumServlet implements IHttpServlet {
         response.end();
     }
 
-    private void addHandlerAttributesToRequest(IHttpRequest request, String mappedUri) {
-        String sessionId = getParameter(mappedUri, request.uri(), ":sessionId");
-        if (sessionId != null) {
-            request.data().put(SESSION_ID_KEY, sessionId);
-        }
-
-        String command = getParameter(mappedUri, request.uri(), ":command");
-        if (command != null) {
-            request.data().put(COMMAND_NAME_KEY, command);
-        }
-
-        String name = getParameter(mappedUri, request.uri(), ":name");
-        if (name != null) {
-            request.data().put(NAME_ID_KEY, name);
-        }
-
-        String id = getParameter(mappedUri, request.uri(), ":id");
-        if (id != null) {
-            request.data().put(ELEMENT_ID_KEY, id);
-        }
-        for (int elementIdx = SECOND_ELEMENT_IDX; elementIdx < MAX_ELEMENTS + SECOND_ELEMENT_IDX; ++elementIdx) {
-            String elementId = getParameter(mappedUri, request.uri(), ":id" + elementIdx);
-            if (elementId != null) {
-                request.data().put(ELEMENT_ID_KEY + elementIdx, elementId);
+    private void addHandlerAttributesToRequest(IHttpRequest request, Map<String, String> params) {
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            String key = PARAM_KEYS.get(param.getKey());
+            if (key != null) {
+                request.data().put(key, param.getValue());
             }
         }
     }
-
-    @Nullable
-    private String getParameter(String configuredUri, String actualUri, String param) {
-        String[] configuredSections = configuredUri.split("/");
-        String[] currentSections = actualUri.split("/");
-        if (configuredSections.length != currentSections.length) {
-            return null;
-        }
-        for (int i = 0; i < currentSections.length; i++) {
-            if (!configuredSections[i].contains(param)) {
-                continue;
-            }
-            try {
-                return URLDecoder.decode(currentSections[i], StandardCharsets.UTF_8.name());
-            } catch (UnsupportedEncodingException e) {
-                throw new IllegalArgumentException(e);
-            }
-        }
-        return null;
-    }
 }
@@ -0,0 +1,176 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.server;
+
+import androidx.annotation.Nullable;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Prefix tree of URL path templates like /session/:sessionId/element/:id/click.
+ * Templates are compiled once on registration, so a request path is matched
+ * and all its parameters are extracted in a single pass over its sections.
+ * Literal sections always take precedence over parameter placeholders.
+ *
+ * @param <T> the type of values bound to routes
+ */
+public class RouteTree<T> {
+    private static final String PARAM_PREFIX = ":";
+
+    private final Node<T> root = new Node<>();
+
+    public void add(String template, T value) {
+        String[] sections = splitPath(template);
+        Node<T> current = root;
+        for (String section : sections) {
+            // To work around a bug in Selenium Grid 2.31.0.
+            int qPos = section.indexOf('?');
+            if (qPos != -1) {
+                section = section.substring(0, qPos);
+            }
+            if (section.startsWith(PARAM_PREFIX)) {
+                String paramName = section.substring(PARAM_PREFIX.length());
+                if (current.paramChild == null) {
+                    current.paramChild = new Node<>();
+                    current.paramChild.paramName = paramName;
+                } else if (!paramName.equals(current.paramChild.paramName)) {
+                    throw new IllegalArgumentException(String.format(
+                            "The route '%s' declares the parameter ':%s' at the position where ':%s' " +
+                                    "is already registered", template, paramName, current.paramChild.paramName));
+                }
+                current = current.paramChild;
+            } else {
+                Node<T> child = current.children.get(section);
+                if (child == null) {
+                    child = new Node<>();
+                    current.children.put(section, child);
+                }
+                current = child;
+            }
+        }
+        if (current.value != null) {
+            throw new IllegalArgumentException(String.format("The route '%s' is already registered", template));
+        }
+        current.value = value;
+    }
+
+    /**
+     * Finds the value bound to the template matching the given path.
+     *
+     * @param uri the actual request URI, query string included
+     * @return the match or null if no route matches the path
+     */
+    @Nullable
+    public Match<T> match(@Nullable String uri) {
+        if (uri == null) {
+            return null;
+        }
+        int qPos = uri.indexOf('?');
+        String[] sections = splitPath(qPos == -1 ? uri : uri.substring(0, qPos));
+        String[] paramValues = new String[sections.length];
+        Node<T> node = find(root, sections, 0, paramValues);
+        if (node == null) {
+            return null;
+        }
+
+        Map<String, String> params = new LinkedHashMap<>();
+        Node<T> current = root;
+        for (int i = 0; i < sections.length; i++) {
+            Node<T> next = paramValues[i] == null ? current.children.get(sections[i]) : current.paramChild;
+            if (paramValues[i] != null) {
+                //noinspection ConstantConditions
+                params.put(next.paramName, decode(paramValues[i]));
+            }
+            current = next;
+        }
+        return new Match<>(node.value, params);
+    }
+
+    @Nullable
+    private static <T> Node<T> find(Node<T> node, String[] sections, int idx, String[] paramValues) {
+        if (idx == sections.length) {
+            return node.value == null ? null : node;
+        }
+        Node<T> child = node.children.get(sections[idx]);
+        if (child != null) {
+            Node<T> result = find(child, sections, idx + 1, paramValues);
+            if (result != null) {
+                return result;
+            }
+        }
+        if (node.paramChild != null) {
+            paramValues[idx] = sections[idx];
+            Node<T> result = find(node.paramChild, sections, idx + 1, paramValues);
+            if (result != null) {
+                return result;
+            }
+            paramValues[idx] = null;
+        }
+        return null;
+    }
+
+    private static String[] splitPath(String path) {
+        return path.split("/");
+    }
+
+    private static String decode(String value) {
+        if (value.indexOf('%') == -1 && value.indexOf('+') == -1) {
+            return value;
+        }
+        try {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static class Node<T> {
+        private final Map<String, Node<T>> children = new HashMap<>();
+        @Nullable
+        private Node<T> paramChild;
+        @Nullable
+        private String paramName;
+        @Nullable
+        private T value;
+    }
+
+    public static class Match<T> {
+        private final T value;
+        private final Map<String, String> params;
+
+        Match(T value, Map<String, String> params) {
+            this.value = value;
+            this.params = params;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        /**
+         * @return URL-decoded parameter values keyed by their names without the leading colon
+         */
+        public Map<String, String> getParams() {
+            return params;
+        }
+    }
+}
@@ -16,6 +16,8 @@
 
 package io.appium.uiautomator2.server;
 
+import androidx.annotation.Nullable;
+
 import java.util.HashMap;
 import java.util.Map;
 
@@ -33,6 +35,13 @@ public class ServerConfig {
     public static final int DEFAULT_MJPEG_SCALING_FACTOR = 50;
     public static final int DEFAULT_MJPEG_SERVER_SCREENSHOT_QUALITY = 50;
     public static final boolean DEFAULT_MJPEG_SERVER_BILINEAR_FILTERING = false;
+    public static final int DEFAULT_COMMAND_EXECUTOR_THREADS = 4;
+    public static final int DEFAULT_COMMAND_QUEUE_CAPACITY = 256;
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+    public static final int DEFAULT_MAX_REQUEST_BODY_SIZE = 16 * 1024 * 1024;
+    // Requests are executed by the command executor, so event loops only do I/O
+    public static final int DEFAULT_WORKER_THREADS = Math.min(2, Runtime.getRuntime().availableProcessors());
+    public static final boolean DEFAULT_POOLED_ALLOCATOR = true;
 
     private final static int SERVER_PORT = getValueFromEnvOrDefault(
         "SERVER_PORT",
@@ -51,6 +60,31 @@ public class ServerConfig {
         DEFAULT_MJPEG_SERVER_SCREENSHOT_QUALITY);
     private final static boolean MJPEG_BILINEAR_FILTERING =
         Boolean.parseBoolean(System.getenv("MJPEG_BILINEAR_FILTERING"));
+    private final static int COMMAND_EXECUTOR_THREADS = getValueFromEnvOrDefault(
+        "COMMAND_EXECUTOR_THREADS",
+        DEFAULT_COMMAND_EXECUTOR_THREADS);
+    private final static int COMMAND_QUEUE_CAPACITY = getValueFromEnvOrDefault(
+        "COMMAND_QUEUE_CAPACITY",
+        DEFAULT_COMMAND_QUEUE_CAPACITY);
+    private final static int MAX_REQUEST_BODY_SIZE = getValueFromEnvOrDefault(
+        "MAX_REQUEST_BODY_SIZE",
+        DEFAULT_MAX_REQUEST_BODY_SIZE);
+    // Responses smaller than this amount of bytes are never compressed. Negative values disable compression
+    private final static int COMPRESSION_THRESHOLD = getValueFromEnvOrDefault(
+        "COMPRESSION_THRESHOLD",
+        DEFAULT_COMPRESSION_THRESHOLD);
+    private final static int WORKER_THREADS = getValueFromEnvOrDefault(
+        "WORKER_THREADS",
+        DEFAULT_WORKER_THREADS);
+    private final static boolean POOLED_ALLOCATOR = System.getenv("POOLED_ALLOCATOR") == null
+        ? DEFAULT_POOLED_ALLOCATOR
+        : Boolean.parseBoolean(System.getenv("POOLED_ALLOCATOR"));
+    // Disabled unless a name is provided
+    private final static String LOCAL_SOCKET_NAME = System.getenv("LOCAL_SOCKET_NAME");
+    private final static boolean ALLOCATION_TRACKING =
+        Boolean.parseBoolean(System.getenv("ALLOCATION_TRACKING"));
+
+    private final static String LOCAL_SOCKET_NAME_KEY = "localSocketName";
 
     // In-memory overrides
     private static Map<String, Object> overrides = new HashMap<>();
@@ -111,6 +145,57 @@ public class ServerConfig {
             MJPEG_BILINEAR_FILTERING);
     }
 
+    public static int getCommandExecutorThreads() {
+        return COMMAND_EXECUTOR_THREADS;
+    }
+
+    public static int getCommandQueueCapacity() {
+        return COMMAND_QUEUE_CAPACITY;
+    }
+
+    /**
+     * @return the maximum size of a request body in bytes. Larger requests are rejected with HTTP 413.
+     */
+    public static int getMaxRequestBodySize() {
+        return MAX_REQUEST_BODY_SIZE;
+    }
+
+    public static int getCompressionThreshold() {
+        return COMPRESSION_THRESHOLD;
+    }
+
+    /**
+     * @return the amount of Netty event loop threads serving client connections
+     */
+    public static int getWorkerThreads() {
+        return WORKER_THREADS;
+    }
+
+    /**
+     * @return whether request and response buffers are taken from a pool
+     * instead of being allocated for each request
+     */
+    public static boolean isPooledAllocatorEnabled() {
+        return POOLED_ALLOCATOR;
+    }
+
+    /**
+     * @return whether the amount of memory allocated while executing each request
+     * is measured. Measuring slows allocations down a bit, so it is disabled by default.
+     */
+    public static boolean isAllocationTrackingEnabled() {
+        return ALLOCATION_TRACKING;
+    }
+
+    /**
+     * @return the name of the local abstract socket the server should listen on
+     * in addition to the TCP port or null if the local socket listener is disabled
+     */
+    @Nullable
+    public static String getLocalSocketName() {
+        return getValueFromOverridesOrDefault(LOCAL_SOCKET_NAME_KEY, LOCAL_SOCKET_NAME);
+    }
+
     public static void setServerPort(int serverPort) {
         setOverridesValue(ServerPort.SETTING_NAME, serverPort);
     }
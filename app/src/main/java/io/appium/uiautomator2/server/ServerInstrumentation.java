@@ -25,6 +25,7 @@ import android.os.Looper;
 import android.os.PowerManager;
 import android.os.SystemClock;
 
+import androidx.annotation.Nullable;
 import androidx.test.platform.app.InstrumentationRegistry;
 import androidx.test.uiautomator.Configurator;
 
@@ -39,18 +40,22 @@ import static androidx.test.core.app.ApplicationProvider.getApplicationContext;
 import static io.appium.uiautomator2.server.ServerConfig.getMjpegServerPort;
 import static io.appium.uiautomator2.server.ServerConfig.getServerPort;
 import static io.appium.uiautomator2.utils.Device.getUiDevice;
+import static io.appium.uiautomator2.utils.StringHelpers.isBlank;
 
 public class ServerInstrumentation {
     private static final int MIN_PORT = 1024;
     private static final int MAX_PORT = 65535;
     private static final String WAKE_LOCK_TAG = "UiAutomator2:ScreenKeeper";
     private static final long MAX_TEST_DURATION = 24 * 60 * 60 * 1000;
+    private static final String LOCAL_SOCKET_NAME_ARG = "LOCAL_SOCKET_NAME";
 
     private static ServerInstrumentation instance;
 
     private final PowerManager powerManager;
     private final int serverPort;
     private final int mjpegServerPort;
+    @Nullable
+    private final String localSocketName;
     private HttpdThread serverThread;
     private MjpegScreenshotServer mjpegScreenshotServerThread;
     private PowerManager.WakeLock wakeLock;
@@ -75,7 +80,8 @@ public class ServerInstrumentation {
         }
     }
 
-    private ServerInstrumentation(Context context, int serverPort, int mjpegServerPort) {
+    private ServerInstrumentation(Context context, int serverPort, int mjpegServerPort,
+                                  @Nullable String localSocketName) {
         if (isValidPort(serverPort)) {
             this.serverPort = serverPort;
         } else {
@@ -102,6 +108,8 @@ public class ServerInstrumentation {
             this.mjpegServerPort = ServerConfig.DEFAULT_MJPEG_SERVER_PORT;
         }
 
+        this.localSocketName = isBlank(localSocketName) ? null : localSocketName;
+
         this.powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
 
         setAccessibilityServiceState();
@@ -112,12 +120,22 @@ public class ServerInstrumentation {
             instance = new ServerInstrumentation(
                 getApplicationContext(),
                 getServerPort(),
-                getMjpegServerPort()
+                getMjpegServerPort(),
+                getLocalSocketName()
             );
         }
         return instance;
     }
 
+    /**
+     * The instrumentation argument takes precedence over the server configuration
+     */
+    @Nullable
+    private static String getLocalSocketName() {
+        String localSocketName = InstrumentationRegistry.getArguments().getString(LOCAL_SOCKET_NAME_ARG);
+        return isBlank(localSocketName) ? ServerConfig.getLocalSocketName() : localSocketName;
+    }
+
     private void releaseWakeLock() {
         Logger.debug(String.format(
                 "Got request to release the wake lock (current value %s, timeout %s)",
@@ -204,7 +222,7 @@ public class ServerInstrumentation {
             stopServer();
         }
 
-        serverThread = new HttpdThread(this.serverPort);
+        serverThread = new HttpdThread(this.serverPort, this.localSocketName);
         serverThread.start();
 
         //client to wait for io.appium.uiautomator2.server to up
@@ -290,9 +308,9 @@ public class ServerInstrumentation {
         private final AndroidServer server;
         private Looper looper;
 
-        public HttpdThread(int serverPort) {
+        public HttpdThread(int serverPort, @Nullable String localSocketName) {
             // Create the io.appium.uiautomator2.server but absolutely do not start it here
-            server = new AndroidServer(serverPort);
+            server = new AndroidServer(serverPort, localSocketName);
         }
 
         @Override
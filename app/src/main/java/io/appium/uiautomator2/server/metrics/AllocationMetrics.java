@@ -0,0 +1,52 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.server.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accumulates the amount of heap memory allocated by command threads while executing requests.
+ * Allocations made by event loop threads for decoding and encoding are not included.
+ */
+public class AllocationMetrics {
+    private final AtomicLong trackedRequests = new AtomicLong();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private final AtomicLong allocatedObjects = new AtomicLong();
+
+    public void recordRequest(long bytes, long objects) {
+        trackedRequests.incrementAndGet();
+        allocatedBytes.addAndGet(bytes);
+        allocatedObjects.addAndGet(objects);
+    }
+
+    public long getTrackedRequestsCount() {
+        return trackedRequests.get();
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    public long getAllocatedObjects() {
+        return allocatedObjects.get();
+    }
+
+    public double getAverageBytesPerRequest() {
+        long count = trackedRequests.get();
+        return count == 0 ? 0 : (double) allocatedBytes.get() / count;
+    }
+}
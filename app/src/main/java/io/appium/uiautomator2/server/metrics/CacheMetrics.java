@@ -0,0 +1,61 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.server.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accumulates lookup statistics of an internal cache.
+ */
+public class CacheMetrics {
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    public void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    public void recordEviction() {
+        evictions.incrementAndGet();
+    }
+
+    public long getHitsCount() {
+        return hits.get();
+    }
+
+    public long getMissesCount() {
+        return misses.get();
+    }
+
+    public long getEvictionsCount() {
+        return evictions.get();
+    }
+
+    /**
+     * @return the share of lookups served from the cache or zero if there were no lookups yet
+     */
+    public double getHitRatio() {
+        long hitsCount = hits.get();
+        long total = hitsCount + misses.get();
+        return total == 0 ? 0 : (double) hitsCount / total;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.server.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accumulates statistics about HTTP response compression.
+ */
+public class CompressionMetrics {
+    private final AtomicLong compressedResponses = new AtomicLong();
+    private final AtomicLong skippedResponses = new AtomicLong();
+    private final AtomicLong originalBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+    private final AtomicLong compressionTimeNs = new AtomicLong();
+
+    public void recordCompressed(long originalSize, long compressedSize, long durationNs) {
+        compressedResponses.incrementAndGet();
+        originalBytes.addAndGet(originalSize);
+        compressedBytes.addAndGet(compressedSize);
+        compressionTimeNs.addAndGet(durationNs);
+    }
+
+    /**
+     * Records a response the client accepted to compress, but which has been
+     * sent as is because it was too small or compression did not reduce its size.
+     */
+    public void recordSkipped() {
+        skippedResponses.incrementAndGet();
+    }
+
+    public long getCompressedResponsesCount() {
+        return compressedResponses.get();
+    }
+
+    public long getSkippedResponsesCount() {
+        return skippedResponses.get();
+    }
+
+    public long getOriginalBytes() {
+        return originalBytes.get();
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes.get();
+    }
+
+    /**
+     * @return the ratio of original to compressed sizes or zero if nothing has been compressed yet
+     */
+    public double getCompressionRatio() {
+        long compressed = compressedBytes.get();
+        return compressed == 0 ? 0 : (double) originalBytes.get() / compressed;
+    }
+
+    public double getTotalCompressionTimeMs() {
+        return compressionTimeNs.get() / 1e6;
+    }
+
+    public double getAverageCompressionTimeMs() {
+        long count = compressedResponses.get();
+        return count == 0 ? 0 : compressionTimeNs.get() / 1e6 / count;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.server.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with fixed exponential buckets from 100us to 60s.
+ * Recording a value costs a few atomic increments, so it is safe to use on hot paths.
+ * Percentiles are estimated by linear interpolation inside the matching bucket.
+ */
+public class LatencyHistogram {
+    private static final long[] BUCKET_BOUNDS_NS = toNanos(new double[]{
+            0.1, 0.2, 0.5, 1, 2, 5, 10, 20, 50, 100, 200, 500,
+            1000, 2000, 5000, 10000, 20000, 60000
+    });
+
+    // The last bucket counts values above the largest bound
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS_NS.length + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumNs = new AtomicLong();
+    private final AtomicLong maxNs = new AtomicLong();
+
+    private static long[] toNanos(double[] boundsMs) {
+        long[] result = new long[boundsMs.length];
+        for (int i = 0; i < boundsMs.length; i++) {
+            result[i] = (long) (boundsMs[i] * TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return result;
+    }
+
+    public void record(long durationNs) {
+        if (durationNs < 0) {
+            durationNs = 0;
+        }
+        int idx = 0;
+        while (idx < BUCKET_BOUNDS_NS.length && durationNs > BUCKET_BOUNDS_NS[idx]) {
+            idx++;
+        }
+        buckets.incrementAndGet(idx);
+        count.incrementAndGet();
+        sumNs.addAndGet(durationNs);
+        long currentMax;
+        do {
+            currentMax = maxNs.get();
+        } while (durationNs > currentMax && !maxNs.compareAndSet(currentMax, durationNs));
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getSumNs() {
+        return sumNs.get();
+    }
+
+    public long getMaxNs() {
+        return maxNs.get();
+    }
+
+    /**
+     * @param percentile the percentile in range (0, 100]
+     * @return the estimated latency in nanoseconds or 0 if nothing has been recorded yet
+     */
+    public long getPercentileNs(double percentile) {
+        long[] counts = new long[buckets.length()];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long max = maxNs.get();
+        double rank = Math.max(1, Math.ceil(total * percentile / 100));
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0 || cumulative + counts[i] < rank) {
+                cumulative += counts[i];
+                continue;
+            }
+            long lower = i == 0 ? 0 : BUCKET_BOUNDS_NS[i - 1];
+            long upper = i < BUCKET_BOUNDS_NS.length ? Math.min(BUCKET_BOUNDS_NS[i], max) : max;
+            if (upper <= lower) {
+                return upper;
+            }
+            return lower + (long) ((upper - lower) * (rank - cumulative) / counts[i]);
+        }
+        return max;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.server.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import io.appium.uiautomator2.http.CommandExecutor;
+import io.appium.uiautomator2.http.RawContent;
+
+/**
+ * Renders server metrics in the Prometheus text exposition format.
+ */
+public class PrometheusExporter implements RawContent {
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final ServerMetrics metrics;
+
+    public PrometheusExporter(ServerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public String getContentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+        writeLatencies(writer, "appium_handler_latency_seconds", "Command handler latency",
+                "handler", metrics.getHandlerLatencies());
+        Map<String, LatencyHistogram> stageLatencies = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            stageLatencies.put(stage.getMetricName(), metrics.getStageLatency(stage));
+        }
+        writeLatencies(writer, "appium_stage_latency_seconds", "Internal stage latency",
+                "stage", stageLatencies);
+
+        CompressionMetrics compression = metrics.getCompressionMetrics();
+        writeMetric(writer, "appium_responses_compressed_total", "counter",
+                "Responses sent compressed", compression.getCompressedResponsesCount());
+        writeMetric(writer, "appium_responses_compression_skipped_total", "counter",
+                "Compressible responses sent as is", compression.getSkippedResponsesCount());
+        writeMetric(writer, "appium_responses_original_bytes_total", "counter",
+                "Size of compressed responses before compression", compression.getOriginalBytes());
+        writeMetric(writer, "appium_responses_compressed_bytes_total", "counter",
+                "Size of compressed responses after compression", compression.getCompressedBytes());
+        writeMetric(writer, "appium_responses_compression_ratio", "gauge",
+                "Ratio of original to compressed response sizes", compression.getCompressionRatio());
+        writeMetric(writer, "appium_response_compression_seconds_total", "counter",
+                "Time spent compressing responses", compression.getTotalCompressionTimeMs() / 1000);
+        writeMetric(writer, "appium_response_compression_average_seconds", "gauge",
+                "Average time spent compressing a response", compression.getAverageCompressionTimeMs() / 1000);
+
+        CacheMetrics xpathCache = metrics.getXPathCacheMetrics();
+        writeMetric(writer, "appium_xpath_cache_hits_total", "counter",
+                "XPath lookups which reused a compiled expression", xpathCache.getHitsCount());
+        writeMetric(writer, "appium_xpath_cache_misses_total", "counter",
+                "XPath lookups which had to compile the expression", xpathCache.getMissesCount());
+        writeMetric(writer, "appium_xpath_cache_evictions_total", "counter",
+                "Compiled XPath expressions evicted from the cache", xpathCache.getEvictionsCount());
+
+        CacheMetrics snapshotCache = metrics.getSnapshotCacheMetrics();
+        writeMetric(writer, "appium_snapshot_cache_hits_total", "counter",
+                "Hierarchy lookups which reused the cached snapshot", snapshotCache.getHitsCount());
+        writeMetric(writer, "appium_snapshot_cache_misses_total", "counter",
+                "Hierarchy lookups which had to capture a new snapshot", snapshotCache.getMissesCount());
+        writeMetric(writer, "appium_snapshot_cache_evictions_total", "counter",
+                "Cached snapshots invalidated by UI changes", snapshotCache.getEvictionsCount());
+
+        TraversalMetrics traversal = metrics.getTraversalMetrics();
+        writeMetric(writer, "appium_snapshots_captured_total", "counter",
+                "Hierarchy snapshots captured from the accessibility tree", traversal.getSnapshotsCount());
+        writeMetric(writer, "appium_node_child_fetches_total", "counter",
+                "Child accessibility node lookups made while traversing the hierarchy",
+                traversal.getChildFetchesCount());
+        writeMetric(writer, "appium_node_child_fetch_seconds_total", "counter",
+                "Time spent in child accessibility node lookups",
+                traversal.getChildFetchTimeNs() / NANOS_PER_SECOND);
+
+        AllocationMetrics allocations = metrics.getAllocationMetrics();
+        if (allocations.getTrackedRequestsCount() > 0) {
+            writeMetric(writer, "appium_request_allocations_tracked_total", "counter",
+                    "Requests whose heap allocations have been measured", allocations.getTrackedRequestsCount());
+            writeMetric(writer, "appium_request_allocated_bytes_total", "counter",
+                    "Heap bytes allocated while executing requests", allocations.getAllocatedBytes());
+            writeMetric(writer, "appium_request_allocated_objects_total", "counter",
+                    "Heap objects allocated while executing requests", allocations.getAllocatedObjects());
+        }
+
+        CommandExecutor executor = metrics.getCommandExecutor();
+        if (executor != null) {
+            writeMetric(writer, "appium_commands_pending", "gauge",
+                    "Commands accepted, but not finished yet", executor.getPendingCommandsCount());
+            writeMetric(writer, "appium_commands_executed_total", "counter",
+                    "Commands taken from the queue", executor.getExecutedCommandsCount());
+            writeMetric(writer, "appium_command_queue_wait_average_seconds", "gauge",
+                    "The average time commands have waited in the queue", executor.getAverageWaitTimeMs() / 1000);
+            writeMetric(writer, "appium_command_queue_wait_max_seconds", "gauge",
+                    "The longest time a command has waited in the queue", executor.getMaxWaitTimeMs() / 1000);
+        }
+        writer.flush();
+    }
+
+    /**
+     * Writes a summary family with quantiles, sum and count followed by a separate gauge
+     * family with maximum values, since samples of different families must not interleave.
+     */
+    private static void writeLatencies(Writer writer, String name, String help, String labelName,
+                                       Map<String, LatencyHistogram> histograms) throws IOException {
+        writer.write(String.format("# HELP %s %s\n# TYPE %s summary\n", name, help, name));
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            String label = toLabel(labelName, entry.getKey());
+            LatencyHistogram histogram = entry.getValue();
+            for (double quantile : QUANTILES) {
+                writer.write(String.format("%s{%s,quantile=\"%s\"} %s\n", name, label, quantile,
+                        histogram.getPercentileNs(quantile * 100) / NANOS_PER_SECOND));
+            }
+            writer.write(String.format("%s_sum{%s} %s\n", name, label, histogram.getSumNs() / NANOS_PER_SECOND));
+            writer.write(String.format("%s_count{%s} %s\n", name, label, histogram.getCount()));
+        }
+
+        String maxName = name.replace("_seconds", "_max_seconds");
+        writer.write(String.format("# HELP %s %s, maximum\n# TYPE %s gauge\n", maxName, help, maxName));
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            writer.write(String.format("%s{%s} %s\n", maxName, toLabel(labelName, entry.getKey()),
+                    entry.getValue().getMaxNs() / NANOS_PER_SECOND));
+        }
+    }
+
+    private static String toLabel(String name, String value) {
+        return String.format("%s=\"%s\"", name, escapeLabelValue(value));
+    }
+
+    private static void writeMetric(Writer writer, String name, String type, String help,
+                                    Number value) throws IOException {
+        writer.write(String.format("# HELP %s %s\n# TYPE %s %s\n%s %s\n", name, help, name, type, name, value));
+    }
+
+    static String escapeLabelValue(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.server.metrics;
+
+import androidx.annotation.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects per-stage durations of a single request, so they could be reported back
+ * to the client in the Server-Timing response header.
+ *
+ * The context is bound to the thread executing the request. Stages recorded via
+ * {@link ServerMetrics#recordStage(Stage, long)} are added to it automatically.
+ */
+public class RequestTiming {
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+    private static final String TOTAL = "total";
+
+    private final long startNs = System.nanoTime();
+    private final AtomicLongArray durationsNs = new AtomicLongArray(Stage.values().length);
+
+    /**
+     * Creates a new timing context and binds it to the current thread.
+     *
+     * @return the created context
+     */
+    public static RequestTiming start() {
+        RequestTiming timing = new RequestTiming();
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    /**
+     * @return the timing context bound to the current thread or null
+     * if the current thread does not serve a request
+     */
+    @Nullable
+    public static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Unbinds the timing context from the current thread.
+     */
+    public static void finish() {
+        CURRENT.remove();
+    }
+
+    void record(Stage stage, long durationNs) {
+        durationsNs.addAndGet(stage.ordinal(), durationNs);
+    }
+
+    public long getDurationNs(Stage stage) {
+        return durationsNs.get(stage.ordinal());
+    }
+
+    /**
+     * @return durations in milliseconds of all stages the request has passed through
+     * in their declaration order, followed by the total request duration
+     */
+    public Map<String, Double> toMap() {
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            long durationNs = getDurationNs(stage);
+            if (durationNs > 0) {
+                result.put(stage.getMetricName(), toMs(durationNs));
+            }
+        }
+        result.put(TOTAL, toMs(System.nanoTime() - startNs));
+        return result;
+    }
+
+    /**
+     * @return the value of the Server-Timing header, for example
+     * <code>snapshot;dur=12.345, xpath_evaluation;dur=1.2, total;dur=15.01</code>
+     */
+    public String toServerTimingHeader() {
+        StringBuilder result = new StringBuilder();
+        for (Map.Entry<String, Double> entry : toMap().entrySet()) {
+            if (result.length() > 0) {
+                result.append(", ");
+            }
+            result.append(entry.getKey()).append(";dur=")
+                    .append(String.format(Locale.ROOT, "%.3f", entry.getValue()));
+        }
+        return result.toString();
+    }
+
+    private static double toMs(long durationNs) {
+        return Math.round(durationNs / 1e3) / 1e3;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.server.metrics;
+
+import androidx.annotation.Nullable;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import io.appium.uiautomator2.http.CommandExecutor;
+
+/**
+ * The process-wide registry of server performance metrics.
+ */
+public class ServerMetrics {
+    private static ServerMetrics instance;
+
+    private final CompressionMetrics compressionMetrics = new CompressionMetrics();
+    private final AllocationMetrics allocationMetrics = new AllocationMetrics();
+    private final CacheMetrics xpathCacheMetrics = new CacheMetrics();
+    private final CacheMetrics snapshotCacheMetrics = new CacheMetrics();
+    private final TraversalMetrics traversalMetrics = new TraversalMetrics();
+    private final ConcurrentMap<String, LatencyHistogram> handlerLatencies = new ConcurrentHashMap<>();
+    private final LatencyHistogram[] stageLatencies = new LatencyHistogram[Stage.values().length];
+    private volatile CommandExecutor commandExecutor;
+
+    private ServerMetrics() {
+        for (int i = 0; i < stageLatencies.length; i++) {
+            stageLatencies[i] = new LatencyHistogram();
+        }
+    }
+
+    public static synchronized ServerMetrics getInstance() {
+        if (instance == null) {
+            instance = new ServerMetrics();
+        }
+        return instance;
+    }
+
+    public CompressionMetrics getCompressionMetrics() {
+        return compressionMetrics;
+    }
+
+    public AllocationMetrics getAllocationMetrics() {
+        return allocationMetrics;
+    }
+
+    public CacheMetrics getXPathCacheMetrics() {
+        return xpathCacheMetrics;
+    }
+
+    public CacheMetrics getSnapshotCacheMetrics() {
+        return snapshotCacheMetrics;
+    }
+
+    public TraversalMetrics getTraversalMetrics() {
+        return traversalMetrics;
+    }
+
+    /**
+     * @param handlerName the class name of the command handler relative to the handlers package,
+     *                    e.g. "Click" or "gestures.Click"
+     * @param durationNs the time the handler has spent to produce its response
+     */
+    public void recordHandlerLatency(String handlerName, long durationNs) {
+        LatencyHistogram histogram = handlerLatencies.get(handlerName);
+        if (histogram == null) {
+            LatencyHistogram newHistogram = new LatencyHistogram();
+            histogram = handlerLatencies.putIfAbsent(handlerName, newHistogram);
+            if (histogram == null) {
+                histogram = newHistogram;
+            }
+        }
+        histogram.record(durationNs);
+    }
+
+    /**
+     * Records the stage duration into the global histogram and into the timing context
+     * of the request being executed by the current thread if there is any.
+     */
+    public void recordStage(Stage stage, long durationNs) {
+        stageLatencies[stage.ordinal()].record(durationNs);
+        RequestTiming timing = RequestTiming.current();
+        if (timing != null) {
+            timing.record(stage, durationNs);
+        }
+    }
+
+    /**
+     * @return handler latencies sorted by handler names
+     */
+    public Map<String, LatencyHistogram> getHandlerLatencies() {
+        return new TreeMap<>(handlerLatencies);
+    }
+
+    public LatencyHistogram getStageLatency(Stage stage) {
+        return stageLatencies[stage.ordinal()];
+    }
+
+    public void setCommandExecutor(@Nullable CommandExecutor commandExecutor) {
+        this.commandExecutor = commandExecutor;
+    }
+
+    @Nullable
+    public CommandExecutor getCommandExecutor() {
+        return commandExecutor;
+    }
+}
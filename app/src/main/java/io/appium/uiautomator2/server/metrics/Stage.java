@@ -0,0 +1,44 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.server.metrics;
+
+/**
+ * Internal stages of command execution, whose latencies are tracked separately.
+ */
+public enum Stage {
+    AX_CACHE_REFRESH("ax_cache_refresh"),
+    IDLE_WAIT("idle_wait"),
+    SELECTOR_MATCHING("selector_matching"),
+    ELEMENT_WRAPPING("element_wrapping"),
+    ELEMENT_CACHING("element_caching"),
+    SNAPSHOT("snapshot"),
+    SERIALIZATION("serialization"),
+    XPATH_EVALUATION("xpath_evaluation"),
+    SCREENSHOT_CAPTURE("screenshot_capture"),
+    SCREENSHOT_COMPRESSION("screenshot_compression"),
+    EVENT_INJECTION("event_injection");
+
+    private final String metricName;
+
+    Stage(String metricName) {
+        this.metricName = metricName;
+    }
+
+    public String getMetricName() {
+        return metricName;
+    }
+}
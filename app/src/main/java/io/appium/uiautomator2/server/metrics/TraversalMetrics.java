@@ -0,0 +1,56 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.server.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accumulates the number of accessibility node lookups made while traversing the hierarchy.
+ * Lookups served from the local accessibility cache are much faster than
+ * the ones going to the target app, so the total fetch time reflects binder round-trips.
+ */
+public class TraversalMetrics {
+    private final AtomicLong snapshots = new AtomicLong();
+    private final AtomicLong childFetches = new AtomicLong();
+    private final AtomicLong childFetchTimeNs = new AtomicLong();
+
+    public void recordSnapshot() {
+        snapshots.incrementAndGet();
+    }
+
+    public void recordChildFetch(long durationNs) {
+        childFetches.incrementAndGet();
+        childFetchTimeNs.addAndGet(durationNs);
+    }
+
+    public long getSnapshotsCount() {
+        return snapshots.get();
+    }
+
+    public long getChildFetchesCount() {
+        return childFetches.get();
+    }
+
+    public long getChildFetchTimeNs() {
+        return childFetchTimeNs.get();
+    }
+
+    public double getAverageChildFetchesPerSnapshot() {
+        long count = snapshots.get();
+        return count == 0 ? 0 : (double) childFetches.get() / count;
+    }
+}
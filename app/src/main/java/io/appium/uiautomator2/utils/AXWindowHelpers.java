@@ -26,9 +26,12 @@ import java.util.List;
 
 import io.appium.uiautomator2.common.exceptions.UiAutomator2Exception;
 import io.appium.uiautomator2.core.UiAutomatorBridge;
+import io.appium.uiautomator2.model.SnapshotCache;
 import io.appium.uiautomator2.model.internal.CustomUiDevice;
 import io.appium.uiautomator2.model.settings.EnableMultiWindows;
 import io.appium.uiautomator2.model.settings.Settings;
+import io.appium.uiautomator2.server.metrics.ServerMetrics;
+import io.appium.uiautomator2.server.metrics.Stage;
 
 public class AXWindowHelpers {
     private static final long AX_ROOT_RETRIEVAL_TIMEOUT_MS = 10000;
@@ -53,9 +56,15 @@ public class AXWindowHelpers {
     }
 
     public static void refreshAccessibilityCache() {
-        Device.waitForIdle();
+        if (!Device.waitForIdle()) {
+            // Events about recent UI changes might still be on their way
+            SnapshotCache.getInstance().invalidate();
+        }
+        // The idle wait is recorded as a separate stage
+        final long startNs = System.nanoTime();
         clearAccessibilityCache();
         cachedWindowRoots = null;
+        ServerMetrics.getInstance().recordStage(Stage.AX_CACHE_REFRESH, System.nanoTime() - startNs);
     }
 
     private static AccessibilityNodeInfo getActiveWindowRoot() {
@@ -28,6 +28,8 @@ import java.util.Objects;
 
 import io.appium.uiautomator2.model.settings.Settings;
 import io.appium.uiautomator2.model.settings.WaitForIdleTimeout;
+import io.appium.uiautomator2.server.metrics.ServerMetrics;
+import io.appium.uiautomator2.server.metrics.Stage;
 
 public abstract class Device {
     public static UiDevice getUiDevice() {
@@ -65,14 +67,18 @@ public abstract class Device {
         return getUiDevice().pressBack();
     }
 
-    public static void waitForIdle() {
+    /**
+     * @return false if the wait has been skipped, because it is disabled in settings
+     */
+    public static boolean waitForIdle() {
         long timeoutMs = Settings.get(WaitForIdleTimeout.class).getValue();
         if (timeoutMs <= 0) {
             Logger.info("Idle timeout is not greater than zero. Skipping the wait");
-            return;
+            return false;
         }
 
         Logger.info(String.format("Waiting up to %sms for the device to idle", timeoutMs));
+        final long startNs = System.nanoTime();
         try {
             /*
              * In some cases UiAutomator2 framework is throwing an exception
@@ -82,6 +88,9 @@ public abstract class Device {
             getUiDevice().waitForIdle(timeoutMs);
         } catch (Exception e) {
             Logger.error(String.format("Unable to wait %sms for the device to idle", timeoutMs), e);
+        } finally {
+            ServerMetrics.getInstance().recordStage(Stage.IDLE_WAIT, System.nanoTime() - startNs);
         }
+        return true;
     }
 }
@@ -21,8 +21,6 @@ import android.view.accessibility.AccessibilityNodeInfo;
 import androidx.annotation.Nullable;
 import androidx.test.uiautomator.UiSelector;
 
-import java.util.Arrays;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.regex.Pattern;
@@ -30,12 +28,14 @@ import java.util.regex.Pattern;
 import io.appium.uiautomator2.common.exceptions.UiAutomator2Exception;
 import io.appium.uiautomator2.common.exceptions.UiSelectorSyntaxException;
 import io.appium.uiautomator2.core.AccessibilityNodeInfoDumper;
+import io.appium.uiautomator2.core.CompiledXPath;
+import io.appium.uiautomator2.core.XPathCache;
 import io.appium.uiautomator2.model.AndroidElement;
 import io.appium.uiautomator2.model.AppiumUIA2Driver;
 import io.appium.uiautomator2.model.By;
-import io.appium.uiautomator2.model.UiElementSnapshot;
 import io.appium.uiautomator2.model.internal.CustomUiDevice;
 import io.appium.uiautomator2.model.settings.DisableIdLocatorAutocompletion;
+import io.appium.uiautomator2.model.settings.EnforceXpath1;
 import io.appium.uiautomator2.model.settings.Settings;
 
 import static io.appium.uiautomator2.core.AxNodeInfoExtractor.toAxNodeInfo;
@@ -95,30 +95,16 @@ public class ElementLocationHelpers {
         return String.format("%s:id/%s", packageName, locator);
     }
 
-    private static Set<Attribute> extractQueriedAttributes(String xpathExpression) {
-        if (xpathExpression.contains("@*")) {
-            return new HashSet<>(Arrays.asList(UiElementSnapshot.SUPPORTED_ATTRIBUTES));
-        }
-
-        Set<Attribute> result = new HashSet<>();
-        for (Attribute attr : Attribute.values()) {
-            if (xpathExpression.contains("@" + attr.toString())) {
-                result.add(attr);
-            }
-        }
-        return result;
-    }
-
     public static NodeInfoList getXPathNodeMatch(
             final String expression, @Nullable AndroidElement element, boolean multiple) {
         AccessibilityNodeInfo root = element == null ? null : toAxNodeInfo(element.getUiObject());
-        // We are trying to be smart here and only include the actually queried
-        // attributes into the source XML document. This allows to improve the performance a lot
-        // while building this document.
-        Set<Attribute> includedAttributes = extractQueriedAttributes(expression);
+        CompiledXPath compiledXPath = XPathCache.getInstance()
+                .get(expression, Settings.get(EnforceXpath1.class).getValue());
+        // Only the actually queried attributes are included into the snapshot
+        Set<Attribute> includedAttributes = compiledXPath.getQueriedAttributes();
         Logger.info(String.format("The following attributes will be included to the page source: %s",
                 includedAttributes));
-        return new AccessibilityNodeInfoDumper(root, includedAttributes).findNodes(expression, multiple);
+        return new AccessibilityNodeInfoDumper(root, includedAttributes).findNodes(compiledXPath, multiple);
     }
 
     public static UiSelector toSelector(String uiaExpression) throws UiSelectorSyntaxException {
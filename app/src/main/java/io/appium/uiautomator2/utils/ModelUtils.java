@@ -2,27 +2,68 @@ package io.appium.uiautomator2.utils;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParser;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 
 import io.appium.uiautomator2.http.IHttpRequest;
 import io.appium.uiautomator2.model.api.BaseModel;
 
 public class ModelUtils {
+    private static final String JSON_BODY_KEY = "JSON_BODY_KEY";
+    // Gson instances are thread-safe and cache type adapters once they have been
+    // resolved, so creating them for each call would rebuild reflective adapters every time
+    private static final Gson PARSER = new Gson();
+    private static final Gson SERIALIZER = new GsonBuilder()
+            .disableHtmlEscaping()
+            .serializeNulls()
+            .create();
+    private static final Gson SERIALIZER_WITHOUT_NULLS = new GsonBuilder()
+            .disableHtmlEscaping()
+            .create();
+
     public static <T extends BaseModel> T toModel(IHttpRequest request, Class<T> modelCls) {
-        //noinspection unchecked
-        return (T) new Gson().fromJson(request.body(), modelCls).validate();
+        return modelCls.cast(PARSER.fromJson(getJsonBody(request), modelCls).validate());
+    }
+
+    public static <T extends BaseModel> T toModel(String json, Class<T> modelCls) {
+        return modelCls.cast(PARSER.fromJson(json, modelCls).validate());
+    }
+
+    /**
+     * Parses the request body directly from its bytes. The parsed tree is cached in
+     * the request data, so handlers mapping the same body to multiple models
+     * do not tokenize it again.
+     */
+    private static JsonElement getJsonBody(IHttpRequest request) {
+        Object cachedBody = request.data().get(JSON_BODY_KEY);
+        if (cachedBody instanceof JsonElement) {
+            return (JsonElement) cachedBody;
+        }
+        try (Reader reader = new InputStreamReader(request.bodyStream(), StandardCharsets.UTF_8)) {
+            JsonElement body = JsonParser.parseReader(reader);
+            request.data().put(JSON_BODY_KEY, body);
+            return body;
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
     }
 
     public static Object toObject(JSONArray json, Type type) {
-        return new Gson().fromJson(json.toString(), type);
+        return PARSER.fromJson(json.toString(), type);
     }
 
     public static Object toObject(JSONObject json, Type type) {
-        return new Gson().fromJson(json.toString(), type);
+        return PARSER.fromJson(json.toString(), type);
     }
 
     public static String toJsonString(Object model) {
@@ -30,11 +71,17 @@ public class ModelUtils {
     }
 
     public static String toJsonString(Object model, boolean includeNullValues) {
-        GsonBuilder builder = new GsonBuilder()
-                .disableHtmlEscaping();
-        if (includeNullValues) {
-            builder.serializeNulls();
-        }
-        return builder.create().toJson(model);
+        return (includeNullValues ? SERIALIZER : SERIALIZER_WITHOUT_NULLS).toJson(model);
+    }
+
+    /**
+     * Serializes the model directly to the given writer without building an intermediate string.
+     *
+     * @param model the model to serialize
+     * @param writer the destination writer
+     * @throws com.google.gson.JsonIOException if the writer fails
+     */
+    public static void writeJson(Object model, Appendable writer) {
+        SERIALIZER.toJson(model, writer);
     }
 }
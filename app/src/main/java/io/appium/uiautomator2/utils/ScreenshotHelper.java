@@ -23,6 +23,7 @@ import android.graphics.Rect;
 import android.os.Build;
 import android.os.ParcelFileDescriptor;
 import android.util.Base64;
+import android.util.Base64OutputStream;
 import android.util.DisplayMetrics;
 import android.view.Display;
 
@@ -34,12 +35,16 @@ import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 
 import io.appium.uiautomator2.common.exceptions.CompressScreenshotException;
 import io.appium.uiautomator2.common.exceptions.CropScreenshotException;
 import io.appium.uiautomator2.common.exceptions.TakeScreenshotException;
 import io.appium.uiautomator2.core.UiAutomatorBridge;
+import io.appium.uiautomator2.http.StreamableContent;
 import io.appium.uiautomator2.model.internal.CustomUiDevice;
+import io.appium.uiautomator2.server.metrics.ServerMetrics;
+import io.appium.uiautomator2.server.metrics.Stage;
 
 import static android.graphics.Bitmap.CompressFormat.JPEG;
 import static android.graphics.Bitmap.CompressFormat.PNG;
@@ -56,8 +61,22 @@ public class ScreenshotHelper {
      * @return Base64-encoded screenshot string.
      */
     public static String takeScreenshot(@Nullable final Rect cropArea) throws TakeScreenshotException {
+        return Base64.encodeToString(takeScreenshotAsPng(cropArea), Base64.DEFAULT);
+    }
+
+    public static String takeScreenshot() throws TakeScreenshotException {
+        return takeScreenshot(null);
+    }
+
+    /**
+     * Grab device screenshot and crop it to specifyed area if cropArea is not null.
+     *
+     * @param cropArea Area to crop.
+     * @return PNG-compressed screenshot bytes.
+     */
+    public static byte[] takeScreenshotAsPng(@Nullable final Rect cropArea) throws TakeScreenshotException {
         if (cropArea == null) {
-            return takeDeviceScreenshot(String.class);
+            return takeDeviceScreenshot(byte[].class);
         }
 
         Bitmap screenshot = takeDeviceScreenshot(Bitmap.class);
@@ -65,24 +84,42 @@ public class ScreenshotHelper {
             final Bitmap elementScreenshot = crop(screenshot, cropArea);
             screenshot.recycle();
             screenshot = elementScreenshot;
-            return Base64.encodeToString(compress(screenshot), Base64.DEFAULT);
+            return compress(screenshot);
         } finally {
             screenshot.recycle();
         }
     }
 
-    public static String takeScreenshot() throws TakeScreenshotException {
-        return takeScreenshot(null);
+    /**
+     * Grab device screenshot and crop it to specifyed area if cropArea is not null.
+     * The screenshot is taken immediately, but its Base64 representation is only
+     * produced while being written to the response stream.
+     *
+     * @param cropArea Area to crop.
+     * @return Base64-encoded screenshot content.
+     */
+    public static StreamableContent takeScreenshotContent(@Nullable final Rect cropArea)
+            throws TakeScreenshotException {
+        final byte[] pngBytes = takeScreenshotAsPng(cropArea);
+        return new StreamableContent() {
+            @Override
+            public void writeTo(OutputStream outputStream) throws IOException {
+                try (OutputStream base64Stream = new Base64OutputStream(outputStream, Base64.DEFAULT)) {
+                    base64Stream.write(pngBytes);
+                }
+            }
+        };
     }
 
     /**
      * Takes a shot of the current device's screen
      *
-     * @param outputType Either String.class or Bitmap.class
-     * @return Either base64-encoded content of the PNG screenshot or the screenshot as bitmap image
+     * @param outputType Either byte[].class or Bitmap.class
+     * @return Either the content of the PNG screenshot or the screenshot as bitmap image
      * @throws TakeScreenshotException if there was an error while taking the screenshot
      */
     private static <T> T takeDeviceScreenshot(Class<T> outputType) throws TakeScreenshotException {
+        final long startNs = System.nanoTime();
         Display display = UiAutomatorBridge.getInstance().getDefaultDisplay();
         UiAutomation automation = CustomUiDevice.getInstance().getUiAutomation();
         DisplayMetrics metrics = new DisplayMetrics();
@@ -99,8 +136,9 @@ public class ScreenshotHelper {
                     if (pngBytes.length <= PNG_MAGIC_LENGTH) {
                         throw new IllegalStateException("screencap returned an invalid response");
                     }
-                    if (outputType == String.class) {
-                        return outputType.cast(Base64.encodeToString(pngBytes, Base64.DEFAULT));
+                    if (outputType == byte[].class) {
+                        recordStage(Stage.SCREENSHOT_CAPTURE, startNs);
+                        return outputType.cast(pngBytes);
                     }
                     screenshot = BitmapFactory.decodeByteArray(
                         pngBytes,
@@ -128,15 +166,16 @@ public class ScreenshotHelper {
             throw new TakeScreenshotException();
         }
 
+        recordStage(Stage.SCREENSHOT_CAPTURE, startNs);
         Logger.info(String.format(
             "Got screenshot with resolution: %sx%s",
             screenshot.getWidth(),
             screenshot.getHeight()
         ));
 
-        if (outputType == String.class) {
+        if (outputType == byte[].class) {
             try {
-                return outputType.cast(Base64.encodeToString(compress(screenshot), Base64.DEFAULT));
+                return outputType.cast(compress(screenshot));
             } finally {
                 screenshot.recycle();
             }
@@ -144,7 +183,12 @@ public class ScreenshotHelper {
         return outputType.cast(screenshot);
     }
 
+    private static void recordStage(Stage stage, long startNs) {
+        ServerMetrics.getInstance().recordStage(stage, System.nanoTime() - startNs);
+    }
+
     private static byte[] compress(final Bitmap bitmap) throws TakeScreenshotException {
+        final long startNs = System.nanoTime();
         try (final ByteArrayOutputStream stream = new ByteArrayOutputStream()) {
             if (!bitmap.compress(PNG, 100, stream)) {
                 throw new CompressScreenshotException(PNG);
@@ -152,10 +196,13 @@ public class ScreenshotHelper {
             return stream.toByteArray();
         } catch (IOException e) {
             throw new CompressScreenshotException(PNG, e);
+        } finally {
+            recordStage(Stage.SCREENSHOT_COMPRESSION, startNs);
         }
     }
 
     public static byte[] compressJpeg(final Bitmap bitmap, float scale, int quality, boolean filter) throws TakeScreenshotException {
+        final long startNs = System.nanoTime();
         Bitmap resultBitmap;
         if (Math.abs(scale - 1.0f) < Float.MIN_NORMAL) {
             resultBitmap = bitmap;
@@ -178,6 +225,8 @@ public class ScreenshotHelper {
             return stream.toByteArray();
         } catch (IOException e) {
             throw new CompressScreenshotException(JPEG, e);
+        } finally {
+            recordStage(Stage.SCREENSHOT_COMPRESSION, startNs);
         }
     }
 
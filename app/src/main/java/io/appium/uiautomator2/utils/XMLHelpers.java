@@ -16,15 +16,28 @@
 
 package io.appium.uiautomator2.utils;
 
+import android.view.View;
+
 import androidx.annotation.Nullable;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
+import io.appium.uiautomator2.model.settings.NormalizeTagNames;
+import io.appium.uiautomator2.model.settings.Settings;
+
+import static net.gcardone.junidecode.Junidecode.unidecode;
+
 public abstract class XMLHelpers {
-    // XML 1.0 Legal Characters (http://stackoverflow.com/a/4237934/347155)
-    // #x9 | #xA | #xD | [#x20-#xD7FF] | [#xE000-#xFFFD] | [#x10000-#x10FFFF]
-    private final static Pattern XML10_PATTERN = Pattern.compile("[^" + "\u0009\r\n" +
-            "\u0020-\uD7FF" + "\uE000-\uFFFD" + "\ud800\udc00-\udbff\udfff" + "]");
+    // Substitutes characters, which are not allowed in XML documents
+    public static final String NON_XML_CHAR_REPLACEMENT = "?";
+    private static final String DEFAULT_VIEW_CLASS_NAME = View.class.getName();
+    // Class names are limited to widgets available in the app under test,
+    // so the cache is only cleared as a safeguard
+    private static final int MAX_NODE_NAMES_CACHE_SIZE = 1024;
+    private static final Map<String, String> nodeNamesCache = new ConcurrentHashMap<>();
+    private static final Map<String, String> normalizedNodeNamesCache = new ConcurrentHashMap<>();
     // https://stackoverflow.com/questions/3158274/what-would-be-a-regex-for-valid-xml-names
     private final static Pattern XML10_START_TAG_PATTERN = Pattern.compile("^[^" + "_" +
             "A-Z" + "a-z" + "\u00C0-\u00D6" + "\u00F8-\u02FF" +
@@ -47,10 +60,118 @@ public abstract class XMLHelpers {
                 .replaceAll("_");
     }
 
+    /**
+     * Transforms the given element class name into a valid XML node name.
+     *
+     * @param className the element class name
+     * @return the node name to be used in the page source
+     */
+    public static String toXmlNodeName(@Nullable String className) {
+        return toXmlNodeName(className, Settings.get(NormalizeTagNames.class).getValue());
+    }
+
+    /**
+     * Transforms the given element class name into a valid XML node name.
+     * Results are memoized, since the same class names are met over and over.
+     *
+     * @param className the element class name
+     * @param shouldNormalize whether to transliterate the name to ASCII
+     * @return the node name to be used in the page source
+     */
+    public static String toXmlNodeName(@Nullable String className, boolean shouldNormalize) {
+        if (StringHelpers.isBlank(className)) {
+            return DEFAULT_VIEW_CLASS_NAME;
+        }
+
+        Map<String, String> cache = shouldNormalize ? normalizedNodeNamesCache : nodeNamesCache;
+        String result = cache.get(className);
+        if (result == null) {
+            result = buildXmlNodeName(className, shouldNormalize);
+            if (cache.size() >= MAX_NODE_NAMES_CACHE_SIZE) {
+                cache.clear();
+            }
+            cache.put(className, result);
+        }
+        return result;
+    }
+
+    private static String buildXmlNodeName(String className, boolean shouldNormalize) {
+        String fixedName = className
+                .replaceAll("[$@#&]", ".")
+                .replaceAll("\\.+", ".")
+                .replaceAll("(^\\.|\\.$)", "");
+
+        if (shouldNormalize) {
+            // A workaround for the Apache Harmony bug described in https://github.com/appium/appium/issues/11854
+            // The buggy implementation: https://android.googlesource.com/platform/dalvik/+/21d27c095fee51fd6eac6a68d50b79df4dc97d85/libcore/xml/src/main/java/org/apache/harmony/xml/dom/DocumentImpl.java#84
+            fixedName = unidecode(fixedName).replaceAll("[^A-Za-z0-9\\-._]", "_");
+        }
+
+        fixedName = toNodeName(fixedName);
+        if (StringHelpers.isBlank(fixedName)) {
+            fixedName = DEFAULT_VIEW_CLASS_NAME;
+        }
+        if (!fixedName.equals(className)) {
+            Logger.info(String.format("Rewrote class name '%s' to XML node name '%s'", className, fixedName));
+        }
+        return fixedName;
+    }
+
+    /**
+     * XML 1.0 Legal Characters (http://stackoverflow.com/a/4237934/347155)
+     * #x9 | #xA | #xD | [#x20-#xD7FF] | [#xE000-#xFFFD] | [#x10000-#x10FFFF]
+     *
+     * @param codePoint the code point to verify. Unpaired surrogates are passed as is.
+     * @return whether the code point may appear in an XML 1.0 document
+     */
+    public static boolean isValidXmlCodePoint(int codePoint) {
+        return codePoint == 0x9 || codePoint == 0xA || codePoint == 0xD
+                || (codePoint >= 0x20 && codePoint <= 0xD7FF)
+                || (codePoint >= 0xE000 && codePoint <= 0xFFFD)
+                || (codePoint >= 0x10000 && codePoint <= 0x10FFFF);
+    }
+
+    private static int indexOfInvalidXmlChar(String str) {
+        for (int i = 0; i < str.length(); ) {
+            int codePoint = str.codePointAt(i);
+            if (!isValidXmlCodePoint(codePoint)) {
+                return i;
+            }
+            i += Character.charCount(codePoint);
+        }
+        return -1;
+    }
+
+    /**
+     * Replaces characters which are not allowed in XML 1.0 documents.
+     * No copy is made if the source string has no such characters.
+     *
+     * @param source the value to sanitize
+     * @param replacement the string to put in place of each invalid character
+     * @return the sanitized string or null if the source is null
+     */
     @Nullable
     public static String toSafeString(@Nullable Object source, String replacement) {
-        return source == null ? null : XML10_PATTERN
-                .matcher(String.valueOf(source))
-                .replaceAll(replacement);
+        if (source == null) {
+            return null;
+        }
+        String str = String.valueOf(source);
+        int start = indexOfInvalidXmlChar(str);
+        if (start < 0) {
+            return str;
+        }
+
+        StringBuilder result = new StringBuilder(str.length() + replacement.length());
+        result.append(str, 0, start);
+        for (int i = start; i < str.length(); ) {
+            int codePoint = str.codePointAt(i);
+            if (isValidXmlCodePoint(codePoint)) {
+                result.appendCodePoint(codePoint);
+            } else {
+                result.append(replacement);
+            }
+            i += Character.charCount(codePoint);
+        }
+        return result.toString();
     }
 }
@@ -0,0 +1,147 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The reference decoder of the binary page source format described in {@link BinaryHierarchyWriter}.
+ * It only depends on the JDK, so clients can copy it as is.
+ */
+public class BinaryHierarchyDecoder {
+    private static final byte[] MAGIC = new byte[]{'U', '2', 'H'};
+    private static final int VERSION = 1;
+    private static final int TYPE_BOOLEAN = 0;
+    private static final int TYPE_INTEGER = 1;
+    private static final int TYPE_STRING = 2;
+    private static final int TYPE_BOUNDS = 3;
+
+    private final DataInputStream input;
+    private String[] strings;
+    private String[] attributeNames;
+    private int[] attributeTypes;
+
+    private BinaryHierarchyDecoder(InputStream input) {
+        this.input = new DataInputStream(input);
+    }
+
+    public static class Element {
+        // Values are Boolean, Integer, String or int[4] for bounds
+        public final Map<String, Object> attributes = new LinkedHashMap<>();
+        public final List<Element> children = new ArrayList<>();
+    }
+
+    public static Element decode(byte[] data) throws IOException {
+        return new BinaryHierarchyDecoder(new ByteArrayInputStream(data)).decodeDocument();
+    }
+
+    private Element decodeDocument() throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        input.readFully(magic);
+        if (!Arrays.equals(MAGIC, magic)) {
+            throw new IOException("Not a binary hierarchy");
+        }
+        int version = input.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException(String.format("The format version %s is not supported", version));
+        }
+
+        strings = new String[readVarint()];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[readVarint()];
+            input.readFully(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        int attributesCount = readVarint();
+        attributeNames = new String[attributesCount];
+        attributeTypes = new int[attributesCount];
+        for (int i = 0; i < attributesCount; i++) {
+            attributeNames[i] = strings[readVarint()];
+            attributeTypes[i] = input.readUnsignedByte();
+        }
+
+        Map<String, Object> rootAttributes = new LinkedHashMap<>();
+        int rootAttributesCount = readVarint();
+        for (int i = 0; i < rootAttributesCount; i++) {
+            rootAttributes.put(strings[readVarint()], strings[readVarint()]);
+        }
+        Element root = decodeElement();
+        root.attributes.putAll(rootAttributes);
+        return root;
+    }
+
+    private Element decodeElement() throws IOException {
+        Element element = new Element();
+        int presence = readVarint();
+        int booleans = readVarint();
+        for (int i = 0; i < attributeNames.length; i++) {
+            if ((presence & (1 << i)) == 0) {
+                continue;
+            }
+            switch (attributeTypes[i]) {
+                case TYPE_BOOLEAN:
+                    element.attributes.put(attributeNames[i], (booleans & (1 << i)) != 0);
+                    break;
+                case TYPE_INTEGER:
+                    element.attributes.put(attributeNames[i], readSignedVarint());
+                    break;
+                case TYPE_STRING:
+                    element.attributes.put(attributeNames[i], strings[readVarint()]);
+                    break;
+                case TYPE_BOUNDS:
+                    element.attributes.put(attributeNames[i], new int[]{
+                            readSignedVarint(), readSignedVarint(), readSignedVarint(), readSignedVarint()
+                    });
+                    break;
+                default:
+                    throw new IOException(String.format("Unknown attribute type %s", attributeTypes[i]));
+            }
+        }
+        int childrenCount = readVarint();
+        for (int i = 0; i < childrenCount; i++) {
+            element.children.add(decodeElement());
+        }
+        return element;
+    }
+
+    private int readSignedVarint() throws IOException {
+        int value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private int readVarint() throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = input.readUnsignedByte();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import io.appium.uiautomator2.model.TestElement;
+import io.appium.uiautomator2.model.UiElement;
+import io.appium.uiautomator2.utils.Attribute;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryHierarchyWriterTests {
+    private static byte[] write(UiElement<?, ?> root, Map<String, String> rootAttributes) throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        BinaryHierarchyWriter.write(root, rootAttributes, stream);
+        return stream.toByteArray();
+    }
+
+    @Test
+    public void shouldRoundTripTheHierarchy() throws Exception {
+        TestElement button = new TestElement("android.widget.Button", 1);
+        button.with(Attribute.TEXT, "Привет \"OK\"");
+        button.with(Attribute.CLICKABLE, true);
+        button.with(Attribute.CHECKED, false);
+        button.with(Attribute.SELECTION_START, -1);
+        button.with(Attribute.BOUNDS, "[-10,20][1080,1920]");
+        button.with(Attribute.ORIGINAL_TEXT, "not exposed");
+        TestElement label = new TestElement("android.widget.TextView", 0);
+        TestElement root = new TestElement("hierarchy", 0, label, button);
+        Map<String, String> rootAttributes = new LinkedHashMap<>();
+        rootAttributes.put("rotation", "0");
+
+        BinaryHierarchyDecoder.Element decoded = BinaryHierarchyDecoder.decode(write(root, rootAttributes));
+        assertEquals("hierarchy", decoded.attributes.get("class"));
+        assertEquals("0", decoded.attributes.get("rotation"));
+        assertEquals(2, decoded.children.size());
+
+        Map<String, Object> labelAttributes = decoded.children.get(0).attributes;
+        assertEquals(0, labelAttributes.get("index"));
+        assertEquals("android.widget.TextView", labelAttributes.get("class"));
+        assertFalse(labelAttributes.containsKey("clickable"));
+
+        BinaryHierarchyDecoder.Element decodedButton = decoded.children.get(1);
+        assertEquals(1, decodedButton.attributes.get("index"));
+        assertEquals("Привет \"OK\"", decodedButton.attributes.get("text"));
+        assertEquals(true, decodedButton.attributes.get("clickable"));
+        assertEquals(false, decodedButton.attributes.get("checked"));
+        assertEquals(-1, decodedButton.attributes.get("selection-start"));
+        assertArrayEquals(new int[]{-10, 20, 1080, 1920}, (int[]) decodedButton.attributes.get("bounds"));
+        assertFalse(decodedButton.attributes.containsKey("original-text"));
+        assertTrue(decodedButton.children.isEmpty());
+    }
+
+    @Test
+    public void shouldStoreRepeatedStringsOnce() throws Exception {
+        TestElement[] children = new TestElement[100];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = new TestElement("android.widget.LinearLayout", i);
+        }
+        byte[] data = write(new TestElement("hierarchy", 0, children), Collections.<String, String>emptyMap());
+        String content = new String(data, "ISO-8859-1");
+        assertEquals(content.indexOf("android.widget.LinearLayout"),
+                content.lastIndexOf("android.widget.LinearLayout"));
+        assertEquals(100, BinaryHierarchyDecoder.decode(data).children.size());
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.core;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class FastXPathTests {
+    private static final String XML = "<hierarchy rotation=\"0\">" +
+            "<android.widget.FrameLayout index=\"0\" resource-id=\"root\">" +
+            "<android.widget.LinearLayout index=\"0\">" +
+            "<android.widget.TextView index=\"0\" text=\"Title\"/>" +
+            "<android.widget.Button index=\"1\" text=\"OK\" enabled=\"true\"/>" +
+            "<android.widget.Button index=\"2\" text=\"Cancel\" enabled=\"false\"/>" +
+            "</android.widget.LinearLayout>" +
+            "<android.widget.LinearLayout index=\"1\" resource-id=\"list\">" +
+            "<android.widget.TextView index=\"0\" text=\"Item 1\"/>" +
+            "<android.widget.TextView index=\"1\" text=\"Item 2\"/>" +
+            "<android.widget.LinearLayout index=\"2\">" +
+            "<android.widget.TextView index=\"0\" text=\"Nested item\"/>" +
+            "<android.widget.TextView index=\"1\"/>" +
+            "</android.widget.LinearLayout>" +
+            "</android.widget.LinearLayout>" +
+            "</android.widget.FrameLayout>" +
+            "</hierarchy>";
+
+    private Document document;
+    private int visitedParents;
+
+    private final FastXPath.Tree<Element> tree = new FastXPath.Tree<Element>() {
+        @Override
+        public String getTagName(Element node) {
+            return node.getTagName();
+        }
+
+        @Override
+        public String getAttribute(Element node, String name) {
+            return node.hasAttribute(name) ? node.getAttribute(name) : null;
+        }
+
+        @Override
+        public List<Element> getChildren(Element node) {
+            visitedParents++;
+            List<Element> result = new ArrayList<>();
+            NodeList children = node.getChildNodes();
+            for (int i = 0; i < children.getLength(); i++) {
+                if (children.item(i) instanceof Element) {
+                    result.add((Element) children.item(i));
+                }
+            }
+            return result;
+        }
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new InputSource(new StringReader(XML)));
+        visitedParents = 0;
+    }
+
+    private List<Node> evaluateWithEngine(String expression) throws Exception {
+        NodeList nodes = (NodeList) XPathFactory.newInstance().newXPath()
+                .evaluate(expression, document, XPathConstants.NODESET);
+        List<Node> result = new ArrayList<>();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            result.add(nodes.item(i));
+        }
+        return result;
+    }
+
+    private List<Element> evaluate(String expression, boolean multiple) {
+        FastXPath fastXPath = FastXPath.compile(expression);
+        assertNotNull(expression, fastXPath);
+        return fastXPath.evaluate(tree, document.getDocumentElement(), multiple);
+    }
+
+    private void assertSameAsEngine(String expression) throws Exception {
+        List<Node> expected = evaluateWithEngine(expression);
+        assertEquals(expression, expected, new ArrayList<Node>(evaluate(expression, true)));
+        List<Element> first = evaluate(expression, false);
+        assertEquals(expression, expected.isEmpty() ? 0 : 1, first.size());
+        if (!expected.isEmpty()) {
+            assertEquals(expression, expected.get(0), first.get(0));
+        }
+    }
+
+    @Test
+    public void shouldMatchTheEngineResults() throws Exception {
+        String[] expressions = new String[]{
+                "/hierarchy",
+                "/*",
+                "//*",
+                "/hierarchy/android.widget.FrameLayout/android.widget.LinearLayout",
+                "//android.widget.Button[@text='OK']",
+                "//android.widget.Button[@text = \"Cancel\"]",
+                "//*[@resource-id='list']//android.widget.TextView",
+                "//*[@resource-id='list']//android.widget.TextView[2]",
+                "//*[@resource-id='list']/android.widget.TextView[2]",
+                "//android.widget.TextView[1]",
+                "//android.widget.LinearLayout//android.widget.TextView",
+                "//android.widget.LinearLayout//*[contains(@text, 'item')]",
+                "//*[starts-with(@text, 'Item')][2]",
+                "//*[contains(@text, '')]",
+                "//android.widget.TextView[2][@text='Item 2']",
+                "//android.widget.TextView[@text!='Item 1']",
+                "//android.widget.Button[@enabled='true' and @text='OK']",
+                "//android.widget.Button[@enabled='true' and @text='Cancel']",
+                "//android.widget.Button[@enabled='true'][1]",
+                "//*[@missing='x']",
+                "//android.widget.LinearLayout[3]",
+                "/hierarchy//android.widget.LinearLayout/android.widget.LinearLayout/*",
+        };
+        for (String expression : expressions) {
+            assertSameAsEngine(expression);
+        }
+    }
+
+    @Test
+    public void shouldRejectUnsupportedExpressions() {
+        String[] expressions = new String[]{
+                "",
+                "android.widget.Button",
+                ".//android.widget.Button",
+                "//android.widget.Button/..",
+                "//android.widget.Button[last()]",
+                "//android.widget.Button[@text='a' or @text='b']",
+                "(//android.widget.Button)[2]",
+                "//android.widget.Button[@index=1]",
+                "//android.widget.Button[0]",
+                "//android.widget.Button[text()='OK']",
+                "//android.widget.Button[@text='it''s']",
+                "//child::android.widget.Button",
+                "//android.widget.Button | //android.widget.TextView",
+                "//android.widget.Button[not(@text='OK')]",
+        };
+        for (String expression : expressions) {
+            assertNull(expression, FastXPath.compile(expression));
+        }
+    }
+
+    @Test
+    public void shouldStopAtFirstMatch() {
+        List<Element> result = evaluate("//android.widget.TextView", false);
+        assertEquals(1, result.size());
+        assertEquals("Title", result.get(0).getAttribute("text"));
+        // hierarchy, FrameLayout and the first LinearLayout
+        assertEquals(3, visitedParents);
+    }
+
+    @Test
+    public void shouldSkipSubtreesThatCannotMatch() {
+        evaluate("/hierarchy/android.widget.Button", true);
+        // Only the children of the hierarchy element are checked
+        assertEquals(1, visitedParents);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.core;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import io.appium.uiautomator2.model.TestElement;
+import io.appium.uiautomator2.model.UiElement;
+import io.appium.uiautomator2.utils.Attribute;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JsonHierarchyWriterTests {
+    private static String write(UiElement<?, ?> root, Map<String, String> rootAttributes) throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        JsonHierarchyWriter.write(root, rootAttributes, stream);
+        return new String(stream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void shouldWriteNativeValues() throws Exception {
+        TestElement button = new TestElement("android.widget.Button", 1);
+        button.with(Attribute.TEXT, "Say \"OK\"\n");
+        button.with(Attribute.CLICKABLE, true);
+        button.with(Attribute.BOUNDS, "[-10,20][1080,1920]");
+        // Not a part of the XML source either
+        button.with(Attribute.ORIGINAL_TEXT, "foo");
+        TestElement root = new TestElement("hierarchy", 0, button);
+        Map<String, String> rootAttributes = new LinkedHashMap<>();
+        rootAttributes.put("rotation", "0");
+        rootAttributes.put("width", "1080");
+
+        String json = write(root, rootAttributes);
+        assertFalse(json.contains("\n"));
+        JsonObject hierarchy = JsonParser.parseString(json).getAsJsonObject();
+        assertEquals("hierarchy", hierarchy.get("class").getAsString());
+        assertEquals(1080, hierarchy.get("width").getAsInt());
+        JsonArray children = hierarchy.getAsJsonArray("children");
+        assertEquals(1, children.size());
+
+        JsonObject buttonJson = children.get(0).getAsJsonObject();
+        assertEquals(1, buttonJson.get("index").getAsInt());
+        assertEquals("Say \"OK\"\n", buttonJson.get("text").getAsString());
+        assertTrue(buttonJson.get("clickable").getAsBoolean());
+        assertEquals(JsonParser.parseString("[-10,20,1080,1920]"), buttonJson.get("bounds"));
+        assertFalse(buttonJson.has("original-text"));
+        assertFalse(buttonJson.has("children"));
+        assertFalse(buttonJson.has("rotation"));
+    }
+
+    @Test
+    public void shouldKeepAttributesOrder() throws Exception {
+        TestElement element = new TestElement("android.view.View", 3);
+        assertEquals("{\"index\":3,\"class\":\"android.view.View\"}",
+                write(element, Collections.<String, String>emptyMap()));
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import io.appium.uiautomator2.common.exceptions.InvalidSelectorException;
+import io.appium.uiautomator2.server.metrics.CacheMetrics;
+import io.appium.uiautomator2.utils.Attribute;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class XPathCacheTests {
+    private CacheMetrics metrics;
+    private XPathCache cache;
+
+    @Before
+    public void setUp() {
+        metrics = new CacheMetrics();
+        cache = new XPathCache(2, metrics);
+    }
+
+    @Test
+    public void shouldReuseCompiledExpressions() {
+        CompiledXPath first = cache.get("//*[@text='OK']", true);
+        CompiledXPath second = cache.get("//*[@text='OK']", true);
+        assertSame(first, second);
+        assertEquals(1, metrics.getHitsCount());
+        assertEquals(1, metrics.getMissesCount());
+    }
+
+    @Test
+    public void shouldSeparateEngines() {
+        CompiledXPath xpath1 = cache.get("//*", true);
+        CompiledXPath xpath2 = cache.get("//*", false);
+        assertNotSame(xpath1, xpath2);
+        assertTrue(xpath1.isXpath1());
+        assertFalse(xpath2.isXpath1());
+        assertEquals(2, metrics.getMissesCount());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedExpressions() {
+        CompiledXPath first = cache.get("//a", true);
+        cache.get("//b", true);
+        cache.get("//a", true);
+        cache.get("//c", true);
+        assertEquals(2, cache.size());
+        assertEquals(1, metrics.getEvictionsCount());
+        assertSame(first, cache.get("//a", true));
+        cache.get("//b", true);
+        assertEquals(4, metrics.getMissesCount());
+    }
+
+    @Test
+    public void shouldNotCacheInvalidExpressions() {
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.get("//*[", true);
+                fail("The expression must be rejected");
+            } catch (InvalidSelectorException e) {
+                // expected
+            }
+        }
+        assertEquals(0, cache.size());
+        assertEquals(2, metrics.getMissesCount());
+    }
+
+    @Test
+    public void shouldExtractQueriedAttributes() {
+        CompiledXPath compiled = cache.get("//*[@resource-id='foo' and contains(@text, 'bar')]", false);
+        assertTrue(compiled.getQueriedAttributes().contains(Attribute.RESOURCE_ID));
+        assertTrue(compiled.getQueriedAttributes().contains(Attribute.TEXT));
+        assertFalse(compiled.getQueriedAttributes().contains(Attribute.BOUNDS));
+    }
+}
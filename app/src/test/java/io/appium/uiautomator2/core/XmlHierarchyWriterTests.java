@@ -0,0 +1,91 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import io.appium.uiautomator2.model.TestElement;
+import io.appium.uiautomator2.model.UiElement;
+import io.appium.uiautomator2.utils.Attribute;
+
+import static org.junit.Assert.assertEquals;
+
+public class XmlHierarchyWriterTests {
+    private static String write(UiElement<?, ?> root, Map<String, String> rootAttributes,
+                                boolean shouldIndent) throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        XmlHierarchyWriter.write(root, rootAttributes, stream, shouldIndent);
+        return new String(stream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static TestElement createHierarchy() {
+        TestElement button = new TestElement("android.widget.Button", 0);
+        button.with(Attribute.TEXT, "Say <OK> & go\n\u0001\u00e9\uD83D\uDE00");
+        button.with(Attribute.CONTENT_DESC, "\"Hello\", 'World'");
+        button.with(Attribute.CLICKABLE, true);
+        button.with(Attribute.BOUNDS, "[0,0][100,-20]");
+        // Not a part of the XML source
+        button.with(Attribute.ORIGINAL_TEXT, "foo");
+        TestElement layout = new TestElement("android.widget.LinearLayout", 1, button);
+        return new TestElement("hierarchy", 0, layout);
+    }
+
+    @Test
+    public void shouldWriteIndentedXml() throws Exception {
+        Map<String, String> rootAttributes = new LinkedHashMap<>();
+        rootAttributes.put("rotation", "0");
+        rootAttributes.put("width", "1080");
+        assertEquals("<?xml version='1.0' encoding='UTF-8' standalone='yes' ?>\r\n" +
+                        "<hierarchy index=\"0\" class=\"hierarchy\" rotation=\"0\" width=\"1080\">\r\n" +
+                        "  <android.widget.LinearLayout index=\"1\" class=\"android.widget.LinearLayout\">\r\n" +
+                        "    <android.widget.Button index=\"0\" class=\"android.widget.Button\" " +
+                        "text=\"Say &lt;OK&gt; &amp; go&#10;?\u00e9&#128512;\" " +
+                        "content-desc='\"Hello\", &apos;World&apos;' " +
+                        "clickable=\"true\" bounds=\"[0,0][100,-20]\" />\r\n" +
+                        "  </android.widget.LinearLayout>\r\n" +
+                        "</hierarchy>",
+                write(createHierarchy(), rootAttributes, true));
+    }
+
+    @Test
+    public void shouldWriteCompactXml() throws Exception {
+        TestElement root = new TestElement("hierarchy", 0, new TestElement("android.view.View", -12345));
+        assertEquals("<?xml version='1.0' encoding='UTF-8' standalone='yes' ?>" +
+                        "<hierarchy index=\"0\" class=\"hierarchy\">" +
+                        "<android.view.View index=\"-12345\" class=\"android.view.View\" />" +
+                        "</hierarchy>",
+                write(root, Collections.<String, String>emptyMap(), false));
+    }
+
+    @Test
+    public void shouldWriteValuesLongerThanBuffer() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            text.append("\u044f&");
+        }
+        TestElement element = new TestElement("android.widget.TextView", 0);
+        element.with(Attribute.TEXT, text.toString());
+        String xml = write(element, Collections.<String, String>emptyMap(), false);
+        assertEquals(5000, xml.split("\u044f&amp;", -1).length - 1);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.handler;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.appium.uiautomator2.common.exceptions.InvalidArgumentException;
+import io.appium.uiautomator2.model.api.ElementModel;
+
+import static io.appium.uiautomator2.utils.w3c.ElementConstants.W3C_ELEMENT_ID_KEY_NAME;
+import static org.junit.Assert.assertEquals;
+
+public class BatchTests {
+    private static ElementModel element(String id) {
+        ElementModel model = new ElementModel();
+        model.w3cElementId = id;
+        model.jwpElementId = id;
+        return model;
+    }
+
+    private static String resolveBodyReferences(String body, List<?> values) {
+        JsonElement result = Batch.resolveReferences(JsonParser.parseString(body), values);
+        return result.toString();
+    }
+
+    @Test
+    public void shouldKeepStringsWithoutReferences() {
+        assertEquals("element/abc/click",
+                Batch.resolveReferences("element/abc/click", Collections.emptyList()));
+    }
+
+    @Test
+    public void shouldResolveSingleElementReferences() {
+        Map<String, Object> detailedElement = new HashMap<>();
+        detailedElement.put(W3C_ELEMENT_ID_KEY_NAME, "def");
+        List<Object> values = Arrays.<Object>asList(element("abc"), detailedElement);
+        assertEquals("element/abc/click", Batch.resolveReferences("element/${0}/click", values));
+        assertEquals("{\"id\":\"def\",\"other\":[\"abc\"]}",
+                resolveBodyReferences("{\"id\":\"${1}\",\"other\":[\"${0}\"]}", values));
+    }
+
+    @Test
+    public void shouldKeepLiteralReferencesInBodyText() {
+        List<Object> values = Collections.<Object>singletonList(element("abc"));
+        String body = "{\"text\":\"price: ${0}\",\"value\":[\"${a}\",\"${0}x\"],\"${0}\":1}";
+        assertEquals(body, resolveBodyReferences(body, values));
+    }
+
+    @Test
+    public void shouldResolveListItemReferences() {
+        List<Object> values = Collections.<Object>singletonList(Arrays.asList(element("abc"), element("def")));
+        assertEquals("element/def/text", Batch.resolveReferences("element/${0.1}/text", values));
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void shouldFailOnForwardReferences() {
+        Batch.resolveReferences("element/${1}/click", Collections.<Object>singletonList(element("abc")));
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void shouldFailOnNonElementReferences() {
+        Batch.resolveReferences("element/${0}/click", Collections.<Object>singletonList("text"));
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void shouldFailOnTooLargeIndexes() {
+        Batch.resolveReferences("element/${99999999999}/click", Collections.<Object>singletonList(element("abc")));
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void shouldFailOnOutOfRangeListReferences() {
+        Batch.resolveReferences("element/${0.2}/click",
+                Collections.<Object>singletonList(Collections.singletonList(element("abc"))));
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.handler;
+
+import org.junit.Test;
+
+import java.util.EnumSet;
+
+import io.appium.uiautomator2.common.exceptions.InvalidArgumentException;
+import io.appium.uiautomator2.core.AccessibilityNodeInfoDumper;
+import io.appium.uiautomator2.model.UiElementSnapshot;
+import io.appium.uiautomator2.utils.Attribute;
+
+import static org.junit.Assert.assertEquals;
+
+public class SourceTests {
+
+    @Test
+    public void shouldParseMaxDepth() {
+        assertEquals(UiElementSnapshot.DEFAULT_MAX_DEPTH, Source.parseMaxDepth(null));
+        assertEquals(0, Source.parseMaxDepth("0"));
+        assertEquals(5, Source.parseMaxDepth("5"));
+        assertEquals(UiElementSnapshot.DEFAULT_MAX_DEPTH,
+                Source.parseMaxDepth(String.valueOf(UiElementSnapshot.DEFAULT_MAX_DEPTH)));
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void shouldRejectNegativeMaxDepth() {
+        Source.parseMaxDepth("-1");
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void shouldRejectMaxDepthAboveTheLimit() {
+        Source.parseMaxDepth(String.valueOf(UiElementSnapshot.DEFAULT_MAX_DEPTH + 1));
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void shouldRejectNonNumericMaxDepth() {
+        Source.parseMaxDepth("deep");
+    }
+
+    @Test
+    public void shouldParseAttributes() {
+        assertEquals(AccessibilityNodeInfoDumper.getSourceAttributes(), Source.parseAttributes(null));
+        assertEquals(EnumSet.of(Attribute.TEXT, Attribute.CLICKABLE),
+                Source.parseAttributes("text, clickable"));
+        assertEquals(EnumSet.of(Attribute.RESOURCE_ID), Source.parseAttributes("resource-id"));
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void shouldRejectUnknownAttributes() {
+        Source.parseAttributes("text,foo");
+    }
+
+    @Test(expected = InvalidArgumentException.class)
+    public void shouldRejectAttributesHiddenFromPageSource() {
+        Source.parseAttributes(Attribute.ORIGINAL_TEXT.toString());
+    }
+}
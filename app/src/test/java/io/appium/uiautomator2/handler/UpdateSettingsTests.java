@@ -26,6 +26,8 @@ import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.HashMap;
 
@@ -208,8 +210,8 @@ public class UpdateSettingsTests {
 
     @Test
     public void shouldFailBecauseOfNoSessionFound() {
-        when(req.body())
-                .thenReturn(toJsonString(new SettingsModel(SETTING_NAME, SETTING_VALUE)));
+        when(req.bodyStream()).thenReturn(new ByteArrayInputStream(
+                toJsonString(new SettingsModel(SETTING_NAME, SETTING_VALUE)).getBytes(StandardCharsets.UTF_8)));
         AppiumResponse resp = updateSettings.handle(req);
         assertNotEquals(resp.getHttpStatus(), HttpResponseStatus.OK);
         assertThat(resp.getValue(), is(instanceOf(Throwable.class)));
@@ -0,0 +1,66 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.http;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AppiumResponseTests {
+    private static RawContent rawContent(final String contentType, final byte[] bytes) {
+        return new RawContent() {
+            @Override
+            public String getContentType() {
+                return contentType;
+            }
+
+            @Override
+            public void writeTo(OutputStream outputStream) throws IOException {
+                outputStream.write(bytes);
+            }
+        };
+    }
+
+    @Test
+    public void shouldDetectTextContentTypes() {
+        assertTrue(AppiumResponse.isTextContentType("text/plain; version=0.0.4"));
+        assertTrue(AppiumResponse.isTextContentType("application/json; charset=utf-8"));
+        assertTrue(AppiumResponse.isTextContentType("application/xml"));
+        assertFalse(AppiumResponse.isTextContentType("application/vnd.appium.hierarchy"));
+        assertFalse(AppiumResponse.isTextContentType(null));
+    }
+
+    @Test
+    public void shouldRenderTextRawContentAsString() throws IOException {
+        byte[] metrics = "appium_requests_total 1\n".getBytes(StandardCharsets.UTF_8);
+        assertEquals("appium_requests_total 1\n",
+                new AppiumResponse("1", rawContent("text/plain", metrics)).getRenderedValue());
+    }
+
+    @Test
+    public void shouldRenderBinaryRawContentAsBase64() throws IOException {
+        byte[] hierarchy = new byte[]{0, (byte) 0xff, 'A'};
+        assertEquals("AP9B", new AppiumResponse("1",
+                rawContent("application/vnd.appium.hierarchy", hierarchy)).getRenderedValue());
+    }
+}
@@ -0,0 +1,121 @@
+package io.appium.uiautomator2.http;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CommandExecutorTests {
+    private CommandExecutor executor;
+
+    @Before
+    public void setUp() {
+        executor = new CommandExecutor(4, 100);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void shouldExecuteCommandsOfTheSameQueueInOrder() throws InterruptedException {
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch done = new CountDownLatch(50);
+        for (int i = 0; i < 50; i++) {
+            final int idx = i;
+            executor.execute("session", new Runnable() {
+                @Override
+                public void run() {
+                    order.add(idx);
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+        assertEquals(50, executor.getExecutedCommandsCount());
+    }
+
+    @Test
+    public void shouldNotBlockUnboundCommandsBySlowSessionCommands() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch statusDone = new CountDownLatch(1);
+        executor.execute("session", new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ignored) {
+                }
+            }
+        });
+        executor.execute(null, new Runnable() {
+            @Override
+            public void run() {
+                statusDone.countDown();
+            }
+        });
+        assertTrue(statusDone.await(5, TimeUnit.SECONDS));
+        assertTrue(executor.getPendingCommandsCount() >= 1);
+        release.countDown();
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void shouldRejectCommandsWhenQueueIsFull() {
+        CommandExecutor smallExecutor = new CommandExecutor(1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            Runnable blocker = new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+            };
+            smallExecutor.execute("session", blocker);
+            smallExecutor.execute("session", blocker);
+        } finally {
+            release.countDown();
+            smallExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldExtractSessionIdAsQueueKey() {
+        assertEquals("abc", ServerHandler.getSerialQueueKey("/session/abc/element/1/click"));
+        assertEquals("abc", ServerHandler.getSerialQueueKey("/session/abc?foo=bar"));
+        assertNull(ServerHandler.getSerialQueueKey("/session"));
+        assertNull(ServerHandler.getSerialQueueKey("/status"));
+        assertNull(ServerHandler.getSerialQueueKey("/sessions"));
+    }
+
+    @Test
+    public void shouldSerializeSessionlessRequestsOfTheSameChannel() {
+        Channel channel = new EmbeddedChannel();
+        Channel otherChannel = new EmbeddedChannel();
+        assertEquals("abc", ServerHandler.getSerialQueueKey(channel, "/session/abc/element"));
+        assertEquals(ServerHandler.getSerialQueueKey(channel, "/status"),
+                ServerHandler.getSerialQueueKey(channel, "/sessions"));
+        assertNotEquals(ServerHandler.getSerialQueueKey(channel, "/status"),
+                ServerHandler.getSerialQueueKey(otherChannel, "/status"));
+    }
+}
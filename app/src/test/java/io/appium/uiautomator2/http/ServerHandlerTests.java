@@ -0,0 +1,82 @@
+package io.appium.uiautomator2.http;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.util.CharsetUtil;
+
+import static io.netty.handler.codec.http.HttpMethod.GET;
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ServerHandlerTests {
+    private CommandExecutor executor;
+
+    @Before
+    public void setUp() {
+        executor = new CommandExecutor(4, 100);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    private void awaitPendingCommands(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (executor.getPendingCommandsCount() > count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, executor.getPendingCommandsCount());
+    }
+
+    private static String readContent(EmbeddedChannel channel) {
+        FullHttpResponse response = (FullHttpResponse) channel.readOutbound();
+        try {
+            return response.content().toString(CharsetUtil.UTF_8);
+        } finally {
+            response.release();
+        }
+    }
+
+    @Test
+    public void shouldSendResponsesInTheOrderOfPipelinedRequests() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        IHttpServlet servlet = new IHttpServlet() {
+            @Override
+            public void handleHttpRequest(IHttpRequest request, IHttpResponse response) throws Exception {
+                if (request.uri().startsWith("/session/")) {
+                    release.await(5, TimeUnit.SECONDS);
+                }
+                response.setContent(request.uri());
+                response.end();
+            }
+        };
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new ServerHandler(Collections.singletonList(servlet), executor));
+
+        channel.writeInbound(new DefaultFullHttpRequest(HTTP_1_1, GET, "/session/abc/source"));
+        channel.writeInbound(new DefaultFullHttpRequest(HTTP_1_1, GET, "/status"));
+        // The sessionless command is not blocked by the session one
+        awaitPendingCommands(1);
+        // but its response waits for the response to the preceding request
+        assertNull(channel.readOutbound());
+
+        release.countDown();
+        awaitPendingCommands(0);
+        assertEquals("/session/abc/source", readContent(channel));
+        assertEquals("/status", readContent(channel));
+        assertNull(channel.readOutbound());
+        channel.finish();
+    }
+}
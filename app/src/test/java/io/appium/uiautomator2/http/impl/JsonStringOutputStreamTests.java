@@ -0,0 +1,37 @@
+package io.appium.uiautomator2.http.impl;
+
+import com.google.gson.Gson;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+public class JsonStringOutputStreamTests {
+    private static String escape(String value) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (JsonStringOutputStream stream = new JsonStringOutputStream(result)) {
+            stream.write(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return new String(result.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void shouldKeepPlainTextAsIs() throws IOException {
+        assertEquals("<hierarchy text='Привет'/>", escape("<hierarchy text='Привет'/>"));
+    }
+
+    @Test
+    public void shouldEscapeSpecialCharacters() throws IOException {
+        assertEquals("a\\\"b\\\\c\\nd\\re\\tf\\u0001", escape("a\"b\\c\nd\re\tf\u0001"));
+    }
+
+    @Test
+    public void shouldProduceValidJsonStrings() throws IOException {
+        String value = "<?xml version='1.0'?>\n<node text=\"\\\" \u001f €\"/>";
+        assertEquals(value, new Gson().fromJson("\"" + escape(value) + "\"", String.class));
+    }
+}
@@ -0,0 +1,76 @@
+package io.appium.uiautomator2.http.impl;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ResponseCompressorTests {
+    private static FullHttpResponse createResponse(String content) {
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        response.content().writeBytes(content.getBytes(StandardCharsets.UTF_8));
+        return response;
+    }
+
+    @Test
+    public void shouldPreferGzip() {
+        assertEquals(ResponseCompressor.GZIP,
+                ResponseCompressor.negotiate("deflate, gzip", 0).getEncoding());
+        assertEquals(ResponseCompressor.DEFLATE,
+                ResponseCompressor.negotiate("gzip;q=0.5, deflate", 0).getEncoding());
+        assertEquals(ResponseCompressor.GZIP,
+                ResponseCompressor.negotiate("*", 0).getEncoding());
+    }
+
+    @Test
+    public void shouldNotCompressIfNotAccepted() {
+        assertNull(ResponseCompressor.negotiate(null, 0));
+        assertNull(ResponseCompressor.negotiate("identity", 0));
+        assertNull(ResponseCompressor.negotiate("gzip;q=0", 0));
+        assertNull(ResponseCompressor.negotiate("gzip", -1));
+    }
+
+    @Test
+    public void shouldSkipSmallResponses() {
+        FullHttpResponse response = createResponse("{\"value\":null}");
+        ResponseCompressor.negotiate("gzip", 1024).compress(response);
+        assertNull(response.headers().get(HttpHeaders.Names.CONTENT_ENCODING));
+        assertEquals(14, response.content().readableBytes());
+    }
+
+    @Test
+    public void shouldCompressLargeResponses() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            content.append("<android.widget.TextView text=\"item\" clickable=\"false\"/>");
+        }
+        FullHttpResponse response = createResponse(content.toString());
+        ResponseCompressor.negotiate("gzip", 1024).compress(response);
+        assertEquals("gzip", response.headers().get(HttpHeaders.Names.CONTENT_ENCODING));
+        int compressedSize = response.content().readableBytes();
+        assertTrue(compressedSize < content.length() / 10);
+        assertEquals(String.valueOf(compressedSize), response.headers().get(HttpHeaders.Names.CONTENT_LENGTH));
+
+        byte[] decompressed = new byte[content.length()];
+        try (GZIPInputStream stream = new GZIPInputStream(new ByteBufInputStream(response.content()))) {
+            int offset = 0;
+            int count;
+            while ((count = stream.read(decompressed, offset, decompressed.length - offset)) > 0) {
+                offset += count;
+            }
+        }
+        assertEquals(content.toString(), new String(decompressed, StandardCharsets.UTF_8));
+    }
+}
@@ -21,6 +21,9 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
 import io.appium.uiautomator2.http.IHttpRequest;
 import io.appium.uiautomator2.model.api.KeyCodeModel;
 import io.appium.uiautomator2.model.api.touch.w3c.W3CActionsModel;
@@ -36,9 +39,13 @@ public class SerializationTests {
     @Mock
     private IHttpRequest req;
 
+    private void mockBody(String body) {
+        when(req.bodyStream()).thenReturn(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
     @Test
     public void shouldSerializeProperlyFormattedJson() {
-        when(req.body()).thenReturn("{ \"actions\": [ {" +
+        mockBody("{ \"actions\": [ {" +
                 "\"type\": \"key\"," +
                 "\"id\": \"keyboard\"," +
                 "\"actions\": [" +
@@ -59,7 +66,7 @@ public class SerializationTests {
 
     @Test(expected = IllegalArgumentException.class)
     public void shouldFailIfListItemDoesNotHaveRequiredField() {
-        when(req.body()).thenReturn("{ \"actions\": [ {" +
+        mockBody("{ \"actions\": [ {" +
                 "\"type\": \"key\"," +
                 "\"id\": \"keyboard\"," +
                 "\"actions\": [" +
@@ -73,7 +80,7 @@ public class SerializationTests {
 
     @Test(expected = IllegalArgumentException.class)
     public void shouldFailIfRequiredFieldIsMissing() {
-        when(req.body()).thenReturn("{}");
+        mockBody("{}");
         toModel(req, KeyCodeModel.class);
     }
 }
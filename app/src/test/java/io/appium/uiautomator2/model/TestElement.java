@@ -0,0 +1,54 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.model;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.appium.uiautomator2.utils.Attribute;
+
+/**
+ * A detached UI element with predefined attributes to build test hierarchies.
+ */
+public class TestElement extends UiElement<Object, TestElement> {
+    private final Map<Attribute, Object> attributes = new LinkedHashMap<>();
+    private final List<TestElement> children;
+
+    public TestElement(String className, int index, TestElement... children) {
+        super(null);
+        attributes.put(Attribute.INDEX, index);
+        attributes.put(Attribute.CLASS, className);
+        this.children = Arrays.asList(children);
+    }
+
+    public TestElement with(Attribute attribute, Object value) {
+        attributes.put(attribute, value);
+        return this;
+    }
+
+    @Override
+    public List<TestElement> getChildren() {
+        return children;
+    }
+
+    @Override
+    protected Map<Attribute, Object> getAttributes() {
+        return attributes;
+    }
+}
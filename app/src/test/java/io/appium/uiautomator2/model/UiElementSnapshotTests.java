@@ -0,0 +1,203 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.model;
+
+import android.graphics.Rect;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import androidx.test.uiautomator.UiDevice;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import io.appium.uiautomator2.core.AxNodeInfoHelper;
+import io.appium.uiautomator2.utils.Attribute;
+import io.appium.uiautomator2.utils.Device;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({Device.class})
+public class UiElementSnapshotTests {
+    private static final Set<Attribute> BOUNDS_ATTRIBUTES = Collections.singleton(Attribute.BOUNDS);
+    private static final int DISPLAY_WIDTH = 1080;
+    private static final int DISPLAY_HEIGHT = 1920;
+
+    @Mock
+    private UiDevice uiDevice;
+
+    @Before
+    public void setUp() {
+        PowerMockito.mockStatic(Device.class);
+        when(Device.getUiDevice()).thenReturn(uiDevice);
+        when(uiDevice.getDisplayWidth()).thenReturn(DISPLAY_WIDTH);
+        when(uiDevice.getDisplayHeight()).thenReturn(DISPLAY_HEIGHT);
+    }
+
+    private static AccessibilityNodeInfo createNode(int left, int top, int right, int bottom,
+                                                    boolean isScrollable) {
+        final Rect bounds = new Rect(left, top, right, bottom);
+        AccessibilityNodeInfo node = mock(AccessibilityNodeInfo.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                invocation.<Rect>getArgument(0).set(bounds);
+                return null;
+            }
+        }).when(node).getBoundsInScreen(any(Rect.class));
+        when(node.isScrollable()).thenReturn(isScrollable);
+        when(node.isVisibleToUser()).thenReturn(true);
+        return node;
+    }
+
+    private static void addChildren(AccessibilityNodeInfo parent, AccessibilityNodeInfo... children) {
+        when(parent.getChildCount()).thenReturn(children.length);
+        for (int index = 0; index < children.length; ++index) {
+            when(parent.getChild(index)).thenReturn(children[index]);
+            when(children[index].getParent()).thenReturn(parent);
+        }
+    }
+
+    private static void assertSameBoundsAsBottomUp(UiElementSnapshot element) {
+        assertEquals(AxNodeInfoHelper.getBounds(element.getNode()).toShortString(), element.getBounds());
+        for (UiElementSnapshot child : element.getChildren()) {
+            assertSameBoundsAsBottomUp(child);
+        }
+    }
+
+    @Test
+    public void shouldCalculateSameBoundsAsBottomUpForNestedScrollables() {
+        AccessibilityNodeInfo root = createNode(0, 0, DISPLAY_WIDTH, DISPLAY_HEIGHT, false);
+        AccessibilityNodeInfo list = createNode(0, 200, DISPLAY_WIDTH, 1200, true);
+        AccessibilityNodeInfo header = createNode(0, 0, DISPLAY_WIDTH, 150, false);
+        AccessibilityNodeInfo firstItem = createNode(0, 100, DISPLAY_WIDTH, 400, false);
+        AccessibilityNodeInfo carousel = createNode(-500, 300, 1500, 700, true);
+        AccessibilityNodeInfo card = createNode(900, 350, 1400, 600, false);
+        AccessibilityNodeInfo cardTitle = createNode(950, 380, 1300, 420, false);
+        AccessibilityNodeInfo lastItem = createNode(0, 1100, DISPLAY_WIDTH, 1400, false);
+        addChildren(root, header, list);
+        addChildren(list, firstItem, carousel, lastItem);
+        addChildren(carousel, card);
+        addChildren(card, cardTitle);
+
+        UiElementSnapshot snapshot = UiElementSnapshot.take(root, BOUNDS_ATTRIBUTES);
+        assertSameBoundsAsBottomUp(snapshot);
+        UiElementSnapshot visibleList = snapshot.getChildren().get(1);
+        assertEquals("[0,200][1080,400]", visibleList.getChildren().get(0).getBounds());
+        assertEquals("[950,380][1080,420]",
+                visibleList.getChildren().get(1).getChildren().get(0).getChildren().get(0).getBounds());
+        assertEquals("[0,1100][1080,1200]", visibleList.getChildren().get(2).getBounds());
+
+        // Scrollable ancestors of a custom root are not part of the snapshot
+        UiElementSnapshot carouselSnapshot = UiElementSnapshot.take(carousel, BOUNDS_ATTRIBUTES);
+        assertSameBoundsAsBottomUp(carouselSnapshot);
+        assertEquals("[900,350][1080,600]", carouselSnapshot.getChildren().get(0).getBounds());
+    }
+
+    @Test
+    public void shouldFallBackToBottomUpBoundsBeyondMaxDepth() {
+        // Bottom-up calculation does not look for scrollable ancestors further than the max depth
+        int chainLength = AxNodeInfoHelper.MAX_DEPTH + 5;
+        AccessibilityNodeInfo root = createNode(0, 0, DISPLAY_WIDTH, 500, true);
+        AccessibilityNodeInfo parent = root;
+        for (int i = 0; i < chainLength; ++i) {
+            AccessibilityNodeInfo child = createNode(0, 0, DISPLAY_WIDTH, DISPLAY_HEIGHT, false);
+            addChildren(parent, child);
+            parent = child;
+        }
+
+        UiElementSnapshot element = UiElementSnapshot.take(root, chainLength, BOUNDS_ATTRIBUTES);
+        assertSameBoundsAsBottomUp(element);
+        for (int depth = 1; depth <= chainLength; ++depth) {
+            element = element.getChildren().get(0);
+            assertEquals(depth < AxNodeInfoHelper.MAX_DEPTH ? "[0,0][1080,500]" : "[0,0][1080,1920]",
+                    element.getBounds());
+        }
+    }
+
+    @Test
+    public void shouldReturnNullForExcludedAttributes() {
+        AccessibilityNodeInfo node = createNode(0, 0, DISPLAY_WIDTH, DISPLAY_HEIGHT, false);
+        when(node.getContentDescription()).thenReturn("description");
+        when(node.getViewIdResourceName()).thenReturn("id");
+
+        UiElementSnapshot snapshot = UiElementSnapshot.take(node,
+                Collections.singleton(Attribute.RESOURCE_ID));
+        assertNull(snapshot.getContentDescription());
+        assertNull(snapshot.get(Attribute.CLICKABLE));
+        assertEquals("id", snapshot.getResourceId());
+        verify(node, never()).getContentDescription();
+        verify(node, never()).isClickable();
+    }
+
+    @Test
+    public void shouldRetrieveAttributeValuesOnlyOnce() {
+        AccessibilityNodeInfo node = createNode(0, 0, DISPLAY_WIDTH, DISPLAY_HEIGHT, false);
+        when(node.getContentDescription()).thenReturn("description");
+        when(node.isClickable()).thenReturn(true);
+
+        UiElementSnapshot snapshot = UiElementSnapshot.take(node,
+                new HashSet<>(Arrays.asList(Attribute.CONTENT_DESC, Attribute.CLICKABLE)));
+        verify(node, never()).getContentDescription();
+        verify(node, never()).isClickable();
+        for (int i = 0; i < 3; ++i) {
+            assertEquals("description", snapshot.getContentDescription());
+            assertEquals(Boolean.TRUE, snapshot.get(Attribute.CLICKABLE));
+        }
+        verify(node, times(1)).getContentDescription();
+        verify(node, times(1)).isClickable();
+    }
+
+    @Test
+    public void shouldShareOrderedAttributeKeysWithChildren() {
+        AccessibilityNodeInfo root = createNode(0, 0, DISPLAY_WIDTH, DISPLAY_HEIGHT, false);
+        AccessibilityNodeInfo child = createNode(0, 0, DISPLAY_WIDTH, 100, false);
+        addChildren(root, child);
+
+        UiElementSnapshot snapshot = UiElementSnapshot.take(root,
+                new HashSet<>(Arrays.asList(Attribute.HINT, Attribute.BOUNDS, Attribute.INDEX)));
+        assertEquals(Arrays.asList(Attribute.INDEX, Attribute.CLASS, Attribute.BOUNDS, Attribute.HINT),
+                new ArrayList<>(snapshot.attributeKeys()));
+        assertSame(snapshot.attributeKeys(), snapshot.getChildren().get(0).attributeKeys());
+
+        UiElementSnapshot classOnlySnapshot = UiElementSnapshot.take(root, Collections.<Attribute>emptySet());
+        assertEquals(Collections.singletonList(Attribute.CLASS),
+                new ArrayList<>(classOnlySnapshot.attributeKeys()));
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.appium.uiautomator2.model.dom;
+
+import org.eclipse.wst.xml.xpath2.api.Item;
+import org.eclipse.wst.xml.xpath2.api.ResultSequence;
+import org.eclipse.wst.xml.xpath2.processor.Engine;
+import org.eclipse.wst.xml.xpath2.processor.util.DynamicContextBuilder;
+import org.eclipse.wst.xml.xpath2.processor.util.StaticContextBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.DOMException;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
+
+import io.appium.uiautomator2.model.TestElement;
+import io.appium.uiautomator2.model.UiElement;
+import io.appium.uiautomator2.utils.Attribute;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+public class SnapshotDocumentTests {
+    private TestElement okButton;
+    private TestElement cancelButton;
+    private TestElement hierarchy;
+    private SnapshotDocument document;
+
+    @Before
+    public void setUp() {
+        okButton = new TestElement("android.widget.Button", 0)
+                .with(Attribute.TEXT, "OK")
+                .with(Attribute.CLICKABLE, true)
+                .with(Attribute.ORIGINAL_TEXT, "OK");
+        cancelButton = new TestElement("android.widget.Button", 1)
+                .with(Attribute.TEXT, "Cancel")
+                .with(Attribute.CLICKABLE, false);
+        TestElement layout = new TestElement("android.widget.LinearLayout", 0, okButton, cancelButton)
+                .with(Attribute.TEXT, "");
+        TestElement frame = new TestElement("android.widget.FrameLayout", 0, layout)
+                .with(Attribute.TEXT, "");
+        hierarchy = new TestElement("hierarchy", 0, frame);
+        Map<String, String> displayInfo = new LinkedHashMap<>();
+        displayInfo.put("width", "1080");
+        displayInfo.put("height", "1920");
+        document = new SnapshotDocument(hierarchy, displayInfo);
+    }
+
+    private List<UiElement<?, ?>> evaluateXpath1(Node context, String xpath) throws Exception {
+        NodeList nodes = (NodeList) XPathFactory.newInstance().newXPath().compile(xpath)
+                .evaluate(context, XPathConstants.NODESET);
+        List<UiElement<?, ?>> result = new ArrayList<>();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            result.add(((SnapshotElement) nodes.item(i)).getUiElement());
+        }
+        return result;
+    }
+
+    private List<UiElement<?, ?>> evaluateXpath2(Node context, String xpath) {
+        StaticContextBuilder scb = new StaticContextBuilder();
+        ResultSequence rs = new Engine().parseExpression(xpath, scb)
+                .evaluate(new DynamicContextBuilder(scb), new Object[]{context});
+        List<UiElement<?, ?>> result = new ArrayList<>();
+        Iterator<Item> iterator = rs.iterator();
+        while (iterator.hasNext()) {
+            result.add(((SnapshotElement) iterator.next().getNativeValue()).getUiElement());
+        }
+        return result;
+    }
+
+    @Test
+    public void shouldExposeElementsAsInPageSource() {
+        Element root = document.getDocumentElement();
+        assertEquals("hierarchy", root.getTagName());
+        assertEquals("1080", root.getAttribute("width"));
+        Element frame = (Element) root.getFirstChild();
+        assertEquals("android.widget.FrameLayout", frame.getTagName());
+        Element ok = (Element) frame.getFirstChild().getFirstChild();
+        assertEquals("OK", ok.getAttribute("text"));
+        assertEquals("true", ok.getAttribute("clickable"));
+        assertEquals("0", ok.getAttribute("index"));
+        // Attributes hidden from the page source are not visible
+        assertFalse(ok.hasAttribute("original-text"));
+        assertSame(ok, ok.getNextSibling().getPreviousSibling());
+        assertEquals(2, document.getElementsByTagName("android.widget.Button").getLength());
+    }
+
+    @Test
+    public void shouldEvaluateXpath1Queries() throws Exception {
+        assertEquals(Arrays.<UiElement<?, ?>>asList(okButton),
+                evaluateXpath1(document, "//android.widget.Button[@text='OK']"));
+        assertEquals(Arrays.<UiElement<?, ?>>asList(cancelButton),
+                evaluateXpath1(document, "/hierarchy/*/android.widget.LinearLayout/*[2]"));
+        assertEquals(Arrays.<UiElement<?, ?>>asList(hierarchy),
+                evaluateXpath1(document, "/hierarchy[@width='1080']"));
+        assertEquals(Arrays.<UiElement<?, ?>>asList(okButton, cancelButton),
+                evaluateXpath1(document.getDocumentElement().getFirstChild(), ".//*[contains(@class, 'Button')]"));
+    }
+
+    @Test
+    public void shouldEvaluateXpath2Queries() {
+        assertEquals(Arrays.<UiElement<?, ?>>asList(okButton),
+                evaluateXpath2(document, "//*[@clickable='true']"));
+        assertEquals(Arrays.<UiElement<?, ?>>asList(okButton, cancelButton),
+                evaluateXpath2(document, "(//android.widget.Button | //android.widget.Button[1])"));
+        assertEquals(Arrays.<UiElement<?, ?>>asList(cancelButton),
+                evaluateXpath2(document, "//android.widget.Button[matches(@text, '^Can')]"));
+    }
+
+    @Test
+    public void shouldCompareDocumentPositions() {
+        Node frame = document.getDocumentElement().getFirstChild();
+        Node ok = frame.getFirstChild().getFirstChild();
+        Node cancel = ok.getNextSibling();
+        assertEquals(Node.DOCUMENT_POSITION_FOLLOWING, ok.compareDocumentPosition(cancel));
+        assertEquals(Node.DOCUMENT_POSITION_PRECEDING, cancel.compareDocumentPosition(ok));
+        assertEquals(Node.DOCUMENT_POSITION_CONTAINS | Node.DOCUMENT_POSITION_PRECEDING,
+                ok.compareDocumentPosition(frame));
+        Node textAttribute = ((Element) ok).getAttributeNode("text");
+        assertEquals(Node.DOCUMENT_POSITION_FOLLOWING, textAttribute.compareDocumentPosition(cancel));
+    }
+
+    @Test
+    public void shouldOnlyExposeIncludedAttributes() throws Exception {
+        SnapshotDocument limitedDocument = new SnapshotDocument(hierarchy,
+                Collections.<String, String>emptyMap(), EnumSet.of(Attribute.CLICKABLE));
+        Element ok = (Element) limitedDocument.getDocumentElement()
+                .getFirstChild().getFirstChild().getFirstChild();
+        assertEquals("true", ok.getAttribute("clickable"));
+        assertEquals("android.widget.Button", ok.getAttribute("class"));
+        assertFalse(ok.hasAttribute("text"));
+        assertEquals(2, ok.getAttributes().getLength());
+        assertEquals(Arrays.<UiElement<?, ?>>asList(okButton),
+                evaluateXpath1(limitedDocument, "//*[@clickable='true']"));
+    }
+
+    @Test(expected = DOMException.class)
+    public void shouldBeReadOnly() {
+        document.getDocumentElement().setAttribute("text", "foo");
+    }
+}
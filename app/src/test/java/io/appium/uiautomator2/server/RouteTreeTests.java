@@ -0,0 +1,67 @@
+package io.appium.uiautomator2.server;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RouteTreeTests {
+    private RouteTree<String> routes;
+
+    @Before
+    public void setUp() {
+        routes = new RouteTree<>();
+        routes.add("/status", "status");
+        routes.add("/session", "newSession");
+        routes.add("/session/:sessionId", "sessionDetails");
+        routes.add("/session/:sessionId/element/active", "activeElement");
+        routes.add("/session/:sessionId/element/:id/text", "text");
+        routes.add("/session/:sessionId/element/:id/attribute/:name", "attribute");
+        routes.add("/session/:sessionId/appium/element/:id/scroll_to/:id2", "scrollTo");
+    }
+
+    @Test
+    public void shouldMatchLiteralRoutes() {
+        assertEquals("status", routes.match("/status").getValue());
+        assertEquals("newSession", routes.match("/session").getValue());
+        assertEquals(0, routes.match("/status").getParams().size());
+    }
+
+    @Test
+    public void shouldExtractAllParameters() {
+        RouteTree.Match<String> match = routes.match("/session/abc/appium/element/1/scroll_to/2");
+        assertEquals("scrollTo", match.getValue());
+        assertEquals("abc", match.getParams().get("sessionId"));
+        assertEquals("1", match.getParams().get("id"));
+        assertEquals("2", match.getParams().get("id2"));
+    }
+
+    @Test
+    public void shouldPreferLiteralSectionsAndFallBackToParameters() {
+        assertEquals("activeElement", routes.match("/session/abc/element/active").getValue());
+        RouteTree.Match<String> match = routes.match("/session/abc/element/active/text");
+        assertEquals("text", match.getValue());
+        assertEquals("active", match.getParams().get("id"));
+    }
+
+    @Test
+    public void shouldDecodeParametersAndIgnoreQuery() {
+        RouteTree.Match<String> match = routes.match("/session/abc/element/1/attribute/content%2Ddesc?foo=bar");
+        assertEquals("attribute", match.getValue());
+        assertEquals("content-desc", match.getParams().get("name"));
+    }
+
+    @Test
+    public void shouldNotMatchUnknownRoutes() {
+        assertNull(routes.match("/session/abc/element"));
+        assertNull(routes.match("/session/abc/element/1/text/more"));
+        assertNull(routes.match("/unknown"));
+        assertNull(routes.match(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectDuplicateRoutes() {
+        routes.add("/session/:sessionId/element/:id/text", "duplicate");
+    }
+}
@@ -0,0 +1,56 @@
+package io.appium.uiautomator2.server.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTests {
+    private static long ms(double value) {
+        return (long) (value * TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    @Test
+    public void shouldReportZeroWhenEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentileNs(50));
+        assertEquals(0, histogram.getMaxNs());
+    }
+
+    @Test
+    public void shouldTrackCountSumAndMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(ms(3));
+        histogram.record(ms(7));
+        histogram.record(ms(1));
+        assertEquals(3, histogram.getCount());
+        assertEquals(ms(11), histogram.getSumNs());
+        assertEquals(ms(7), histogram.getMaxNs());
+    }
+
+    @Test
+    public void shouldEstimatePercentilesWithinBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            histogram.record(ms(1.5));
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(ms(150));
+        }
+        long p50 = histogram.getPercentileNs(50);
+        assertTrue(p50 > ms(1) && p50 <= ms(2));
+        long p99 = histogram.getPercentileNs(99);
+        assertTrue(p99 > ms(100) && p99 <= ms(150));
+        assertEquals(ms(150), histogram.getPercentileNs(100));
+    }
+
+    @Test
+    public void shouldNotExceedMaxForValuesAboveAllBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.SECONDS.toNanos(90));
+        assertEquals(TimeUnit.SECONDS.toNanos(90), histogram.getPercentileNs(50));
+    }
+}
@@ -0,0 +1,53 @@
+package io.appium.uiautomator2.server.metrics;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RequestTimingTests {
+    @After
+    public void tearDown() {
+        RequestTiming.finish();
+    }
+
+    @Test
+    public void shouldBindContextToCurrentThread() {
+        assertNull(RequestTiming.current());
+        RequestTiming timing = RequestTiming.start();
+        assertSame(timing, RequestTiming.current());
+        RequestTiming.finish();
+        assertNull(RequestTiming.current());
+    }
+
+    @Test
+    public void shouldCollectStagesRecordedViaServerMetrics() {
+        RequestTiming timing = RequestTiming.start();
+        ServerMetrics.getInstance().recordStage(Stage.SNAPSHOT, TimeUnit.MILLISECONDS.toNanos(3));
+        ServerMetrics.getInstance().recordStage(Stage.SNAPSHOT, TimeUnit.MILLISECONDS.toNanos(2));
+        ServerMetrics.getInstance().recordStage(Stage.XPATH_EVALUATION, TimeUnit.MICROSECONDS.toNanos(1500));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(5), timing.getDurationNs(Stage.SNAPSHOT));
+
+        Map<String, Double> durations = timing.toMap();
+        assertEquals(5.0, durations.get("snapshot"), 0.0001);
+        assertEquals(1.5, durations.get("xpath_evaluation"), 0.0001);
+        assertFalse(durations.containsKey("serialization"));
+        assertTrue(durations.containsKey("total"));
+    }
+
+    @Test
+    public void shouldFormatServerTimingHeader() {
+        RequestTiming timing = RequestTiming.start();
+        ServerMetrics.getInstance().recordStage(Stage.AX_CACHE_REFRESH, TimeUnit.MICROSECONDS.toNanos(12345));
+        ServerMetrics.getInstance().recordStage(Stage.SERIALIZATION, TimeUnit.MICROSECONDS.toNanos(250));
+        String header = timing.toServerTimingHeader();
+        assertTrue(header, header.startsWith("ax_cache_refresh;dur=12.345, serialization;dur=0.250, total;dur="));
+    }
+}
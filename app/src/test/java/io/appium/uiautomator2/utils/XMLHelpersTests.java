@@ -33,6 +33,7 @@ import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import android.os.SystemClock;
 
@@ -261,4 +262,15 @@ public class XMLHelpersTests {
         List<Node> nodes = findNodesUsingXpath2(XML, query, false);
         assertEquals(nodes.size(), 1);
     }
+
+    @Test
+    public void replacesInvalidXmlCharacters() {
+        assertEquals("a?b\n?\uD83D\uDE00?", XMLHelpers.toSafeString("a\u0000b\n\uFFFE\uD83D\uDE00\uD800", "?"));
+    }
+
+    @Test
+    public void keepsValidXmlStringAsIs() {
+        String source = "some, text \u00e9\uD83D\uDE00";
+        assertSame(source, XMLHelpers.toSafeString(source, "?"));
+    }
 }